@@ -0,0 +1,56 @@
+package ir.oliateaching.domains;
+
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+
+// Append-only answer log: a changed answer is a new row, the one with the highest id wins
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = AttemptAnswer.TABLE_NAME,
+        indexes = @Index(name = "idx_attempt_answers_attempt", columnList = AttemptAnswer.ATTEMPT_ID_COLUMN))
+public class AttemptAnswer {
+
+    public static final String TABLE_NAME = "attempt_answers";
+    public static final String ID_COLUMN = "id";
+    public static final String ATTEMPT_ID_COLUMN = "attempt_id";
+    public static final String QUESTION_ID_COLUMN = "question_id";
+    public static final String SELECTED_OPTION_COLUMN = "selected_option";
+    public static final String ANSWER_TEXT_COLUMN = "answer_text";
+    public static final String ANSWERED_AT_COLUMN = "answered_at";
+    public static final String AWARDED_SCORE_COLUMN = "awarded_score";
+
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = ID_COLUMN)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = ATTEMPT_ID_COLUMN)
+    private ExamAttempt attempt;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = QUESTION_ID_COLUMN)
+    private Question question;
+
+    // 1-based, as typed by the student and checked by MultipleChoiceQuestion.isCorrect
+    @Column(name = SELECTED_OPTION_COLUMN)
+    private Integer selectedOption;
+
+    @Column(name = ANSWER_TEXT_COLUMN, columnDefinition = "TEXT")
+    private String answerText;
+
+    @Column(name = ANSWERED_AT_COLUMN, nullable = false)
+    private LocalDateTime answeredAt;
+
+    @Column(name = AWARDED_SCORE_COLUMN)
+    private Double awardedScore;
+}
@@ -6,18 +6,24 @@ import ir.oliateaching.enums.CourseStatus;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashSet;
+import java.util.Set;
 
 @Getter
 @Setter
 @Entity
 @Table(name = Course.TABLE_NAME)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Course.CACHE_REGION)
 public class Course extends BaseDomain<Long> {
 
     public static final String TABLE_NAME = "courses";
+    public static final String CACHE_REGION = "courses";
     public static final String STUDENT_ID_COLUMN = "student_id";
     public static final String COURSE_CODE_COLUMN = "course_code";
     public static final String TITLE_COLUMN = "title";
@@ -58,17 +64,16 @@ public class Course extends BaseDomain<Long> {
 
 
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = TEACHER_ID_COLUMN)
     private Teacher teacher;
 
-    @ManyToMany
-    @JoinTable(
-            name = COURSE_STUDENTS_JOIN_COLUMN,
-            joinColumns = @JoinColumn(name = COURSE_ID_COLUMN),
-            inverseJoinColumns = @JoinColumn(name = STUDENT_ID_COLUMN)
-    )
-    private List<Student> students = new ArrayList<>();
+    @OneToMany(mappedBy = Enrollment.COURSE_FIELD)
+    private Set<Enrollment> enrollments = new HashSet<>();
+
+    // Filled by the WITH_ROSTER_COUNT fetch plan so the roster itself is never loaded
+    @Transient
+    private Long rosterCount;
 
 
     @Column(name = CREATED_AT_COLUMN, nullable = false)
@@ -103,24 +108,37 @@ public class Course extends BaseDomain<Long> {
 
 
     // Methods for help us
-    public void addStudent(Student student) {
-        if (!students.contains(student)) {
-            students.add(student);
-            student.enrollInCourse(this);
-            this.updatedAt = LocalDate.now();
+    // Both sides are only updated when already loaded, the caller persists/removes the Enrollment row
+    public Enrollment addStudent(Student student) {
+        Enrollment enrollment = new Enrollment(this, student);
+        if (Hibernate.isInitialized(enrollments)) {
+            enrollments.add(enrollment);
+        }
+        student.enrollInCourse(enrollment);
+        if (rosterCount != null) {
+            rosterCount++;
         }
+        this.updatedAt = LocalDate.now();
+        return enrollment;
     }
 
-    public void removeStudent(Student student) {
-        if (students.contains(student)) {
-            students.remove(student);
-            student.unenrollFromCourse(this);
-            this.updatedAt = LocalDate.now();
+    public void removeStudent(Enrollment enrollment) {
+        if (Hibernate.isInitialized(enrollments)) {
+            enrollments.remove(enrollment);
         }
+        enrollment.getStudent().unenrollFromCourse(enrollment);
+        if (rosterCount != null) {
+            rosterCount--;
+        }
+        this.updatedAt = LocalDate.now();
     }
 
+    // Loads the enrollment rows only, never the Student rows
     public int getStudentCount() {
-        return students.size();
+        if (rosterCount != null) {
+            return rosterCount.intValue();
+        }
+        return enrollments.size();
     }
 
     @Override
@@ -131,7 +149,7 @@ public class Course extends BaseDomain<Long> {
                 ", title='" + title + '\'' +
                 ", status=" + status +
                 ", teacher=" + (teacher != null ? teacher.getFullName() : "Not assigned") +
-                ", students=" + students.size() +
+                ", students=" + (Hibernate.isInitialized(enrollments) ? enrollments.size() : "?") +
                 '}';
     }
 }
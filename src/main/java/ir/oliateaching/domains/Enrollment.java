@@ -0,0 +1,70 @@
+package ir.oliateaching.domains;
+
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+
+@Getter
+@NoArgsConstructor
+@Entity
+@Table(name = Enrollment.TABLE_NAME)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Enrollment.CACHE_REGION)
+public class Enrollment {
+
+    public static final String TABLE_NAME = Course.COURSE_STUDENTS_JOIN_COLUMN;
+    public static final String CACHE_REGION = "enrollments";
+    public static final String ENROLLED_AT_COLUMN = "enrolled_at";
+    public static final String COURSE_FIELD = "course";
+    public static final String STUDENT_FIELD = "student";
+
+
+    @EmbeddedId
+    private EnrollmentId id;
+
+    @MapsId("courseId")
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = Course.COURSE_ID_COLUMN)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Course course;
+
+    @MapsId("studentId")
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = Course.STUDENT_ID_COLUMN)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Student student;
+
+    @Column(name = ENROLLED_AT_COLUMN)
+    private LocalDate enrolledAt;
+
+    public Enrollment(Course course, Student student) {
+        if (course.getId() == null || student.getId() == null) {
+            throw new IllegalArgumentException("Course and student must be saved before enrollment");
+        }
+        this.id = new EnrollmentId(course.getId(), student.getId());
+        this.course = course;
+        this.student = student;
+        this.enrolledAt = LocalDate.now();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Enrollment that)) return false;
+        return Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(id);
+    }
+}
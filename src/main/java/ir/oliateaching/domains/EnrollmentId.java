@@ -0,0 +1,40 @@
+package ir.oliateaching.domains;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+
+@Getter
+@NoArgsConstructor
+@Embeddable
+public class EnrollmentId implements Serializable {
+
+    @Column(name = Course.COURSE_ID_COLUMN)
+    private Long courseId;
+
+    @Column(name = Course.STUDENT_ID_COLUMN)
+    private Long studentId;
+
+    public EnrollmentId(Long courseId, Long studentId) {
+        this.courseId = courseId;
+        this.studentId = studentId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof EnrollmentId that)) return false;
+        return Objects.equals(courseId, that.courseId) &&
+                Objects.equals(studentId, that.studentId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(courseId, studentId);
+    }
+}
@@ -2,11 +2,15 @@ package ir.oliateaching.domains;
 
 
 
+import ir.oliateaching.utils.EssayAnalyzer;
 import jakarta.persistence.*;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -30,6 +34,7 @@ public class EssayQuestion extends Question {
     @CollectionTable(name = QUESTION_KEYWORDS,
                     joinColumns = @JoinColumn(name = PRIMARY_KEY_JOIN_COLUMN))
     @Column(name = KEYWORD)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = QUESTION_KEYWORDS)
     private List<String> expectedKeywords = new ArrayList<>();
 
     @Column(name = MIN_WORDS_COLUMN)
@@ -40,9 +45,16 @@ public class EssayQuestion extends Question {
 
 
     @Override
-    public String display() {
-        return String.format("[Essay - %f Score]\n%s\n(MIN %d Word)",
-                getScore(), getText(), minWords);
+    public void writeTo(Appendable out) throws IOException {
+        out.append("[Essay - ");
+        appendScore(out, getScore());
+        out.append(" Score]\n").append(getText()).append("\n(MIN ");
+        if (minWords == null) {
+            out.append("null");
+        } else {
+            appendNumber(out, minWords);
+        }
+        out.append(" Word)");
     }
 
     @Override
@@ -51,7 +63,7 @@ public class EssayQuestion extends Question {
             return false;
         }
 
-        int wordCount = studentAnswer.trim().split("\\s+").length;
+        int wordCount = EssayAnalyzer.countWords(studentAnswer);
 
         return wordCount >= minWords && wordCount <= maxWords;
     }
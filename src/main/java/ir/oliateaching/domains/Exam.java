@@ -2,9 +2,14 @@ package ir.oliateaching.domains;
 
 
 import ir.oliateaching.domains.base.BaseDomain;
+import ir.oliateaching.utils.CompiledExamInvalidator;
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
@@ -16,18 +21,27 @@ import java.util.List;
 @Setter
 @Entity
 @Table(name = Exam.TABLE_NAME)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Exam.CACHE_REGION)
+@EntityListeners(CompiledExamInvalidator.class)
 public class Exam extends BaseDomain<Long> {
 
     public static final String TABLE_NAME = "exams";
+    public static final String CACHE_REGION = "exams";
     public static final String EXAM_CODE_COLUMN = "exam_code";
     public static final String COURSE_ID_COLUMN = "course_id";
     public static final String TITLE_COLUMN = "exam_title";
     public static final String DESCRIPTION_COLUMN = "description";
     public static final String START_DATE_COLUMN = "start_date";
     public static final String END_DATE_COLUMN = "end_date";
+    public static final String DURATION_MINUTES_COLUMN = "duration_minutes";
     public static final String MAPPED_BY_EXAM_TABLE_COLUMN = "exam";
     public static final String CREATED_AT_COLUMN = "created_at";
     public static final String UPDATED_AT_COLUMN = "updated_at";
+    public static final String PAPER_VERSION_COLUMN = "paper_version";
+    public static final String TOTAL_SCORE_COLUMN = "total_score";
+    public static final String QUESTION_COUNT_COLUMN = "question_count";
+    public static final String VERSION_COLUMN = "version";
 
 
     @Column(name = EXAM_CODE_COLUMN, nullable = false, unique = true, length = 20)
@@ -45,6 +59,10 @@ public class Exam extends BaseDomain<Long> {
     @Column(name = END_DATE_COLUMN, nullable = false)
     private LocalDate endDate;
 
+    // Time a student has once the exam is started, null means until the exam window closes
+    @Column(name = DURATION_MINUTES_COLUMN)
+    private Integer durationMinutes;
+
 
     @ManyToOne
     @JoinColumn(name = COURSE_ID_COLUMN)
@@ -60,6 +78,26 @@ public class Exam extends BaseDomain<Long> {
     @Column(name = UPDATED_AT_COLUMN)
     private LocalDate updatedAt;
 
+    // Bumped whenever questions are added or removed, so the exam row itself changes with its paper
+    @Column(name = PAPER_VERSION_COLUMN, nullable = false)
+    private long paperVersion;
+
+    // Kept in step with the questions, so listings never have to load them
+    @Setter(AccessLevel.NONE)
+    @Column(name = TOTAL_SCORE_COLUMN, nullable = false)
+    private double totalScores;
+
+    @Setter(AccessLevel.NONE)
+    @Column(name = QUESTION_COUNT_COLUMN, nullable = false)
+    private int questionCount;
+
+    // The totals above are written back as absolute values, so concurrent edits of one exam must not
+    // overwrite each other; QuestionRepositoryImpl.insertBatch bumps it with its relative update
+    @Version
+    @Setter(AccessLevel.NONE)
+    @Column(name = VERSION_COLUMN, nullable = false)
+    private long version;
+
     public Exam() {
         this.createdAt = LocalDate.now();
     }
@@ -78,30 +116,56 @@ public class Exam extends BaseDomain<Long> {
         this.updatedAt = LocalDate.now();
     }
 
+    // Membership is decided by the question's own exam reference, the lazy list is only updated when
+    // already loaded, the same way Course.addStudent treats its enrollments; a new question added to an
+    // unloaded list is not reached by the cascade and has to be persisted by the caller. A question of
+    // another exam is taken out of that exam's totals first.
     public void addQuestion(Question question) {
-        if (!questions.contains(question)) {
+        if (belongsHere(question)) {
+            return;
+        }
+        if (question.getExam() != null) {
+            question.getExam().removeQuestion(question);
+        }
+        if (Hibernate.isInitialized(questions)) {
             questions.add(question);
-            question.setExam(this);
-            this.updatedAt = LocalDate.now();
         }
+        question.setExam(this);
+        this.updatedAt = LocalDate.now();
+        this.paperVersion++;
+        this.totalScores += question.getScore();
+        this.questionCount++;
     }
 
     public void removeQuestion(Question question) {
-        if(questions.contains(question)) {
+        if (!belongsHere(question)) {
+            return;
+        }
+        if (Hibernate.isInitialized(questions)) {
             questions.remove(question);
-            question.setExam(null);
-            this.updatedAt = LocalDate.now();
         }
+        question.setExam(null);
+        this.updatedAt = LocalDate.now();
+        this.paperVersion++;
+        this.totalScores -= question.getScore();
+        this.questionCount--;
     }
 
-    public double getTotalScores(){
-        return questions.stream()
-                .mapToDouble(Question::getScore)
-                .sum();
+    // Compares ids as well, the question may reference this exam through a proxy
+    private boolean belongsHere(Question question) {
+        Exam owner = question.getExam();
+        if (owner == null) {
+            return false;
+        }
+        return owner == this || (getId() != null && getId().equals(owner.getId()));
     }
 
-    public int getQuestionCount() {
-        return questions.size();
+    // Called by Question.setScore when the score of one of this exam's questions changes
+    void adjustTotalScores(double delta) {
+        if (delta != 0) {
+            this.totalScores += delta;
+            this.updatedAt = LocalDate.now();
+        }
     }
 
     @Override
@@ -112,7 +176,8 @@ public class Exam extends BaseDomain<Long> {
                 ", examTitle='" + examTitle + '\'' +
                 ", startDate='" + startDate + '\'' +
                 ", endDate='" + endDate + '\'' +
-                ", questions count='" + getQuestionCount() + '\'' +
+                ", questions count='" + questionCount + '\'' +
+                ", total score='" + totalScores + '\'' +
                 ", course={" + course + "}" +
                 '}';
     }
@@ -0,0 +1,69 @@
+package ir.oliateaching.domains;
+
+
+import ir.oliateaching.domains.base.BaseDomain;
+import ir.oliateaching.enums.AttemptStatus;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = ExamAttempt.TABLE_NAME,
+        uniqueConstraints = @UniqueConstraint(columnNames = {ExamAttempt.EXAM_ID_COLUMN, ExamAttempt.STUDENT_ID_COLUMN}))
+public class ExamAttempt extends BaseDomain<Long> {
+
+    public static final String TABLE_NAME = "exam_attempts";
+    public static final String EXAM_ID_COLUMN = "exam_id";
+    public static final String STUDENT_ID_COLUMN = "student_id";
+    public static final String STATUS_COLUMN = "status";
+    public static final String STARTED_AT_COLUMN = "started_at";
+    public static final String SUBMITTED_AT_COLUMN = "submitted_at";
+    public static final String SCORE_COLUMN = "score";
+
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = EXAM_ID_COLUMN)
+    private Exam exam;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = STUDENT_ID_COLUMN)
+    private Student student;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = STATUS_COLUMN, nullable = false)
+    private AttemptStatus status;
+
+    @Column(name = STARTED_AT_COLUMN, nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = SUBMITTED_AT_COLUMN)
+    private LocalDateTime submittedAt;
+
+    @Column(name = SCORE_COLUMN)
+    private Double score;
+
+    public ExamAttempt(Exam exam, Student student) {
+        this.exam = exam;
+        this.student = student;
+        this.status = AttemptStatus.IN_PROGRESS;
+        this.startedAt = LocalDateTime.now();
+    }
+
+    @Override
+    public String toString() {
+        return "ExamAttempt{" +
+                "id=" + getId() +
+                ", status=" + status +
+                ", startedAt=" + startedAt +
+                ", submittedAt=" + submittedAt +
+                ", score=" + score +
+                '}';
+    }
+}
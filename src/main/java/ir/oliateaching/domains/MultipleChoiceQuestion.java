@@ -5,7 +5,10 @@ import jakarta.persistence.*;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -30,6 +33,7 @@ public class MultipleChoiceQuestion extends Question{
     @CollectionTable(name = QUESTION_OPTION,
                     joinColumns = @JoinColumn(name = PRIMARY_KEY__JOIN_COLUMN))
     @OrderColumn(name = OPTION_ORDER_COLUMN)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = QUESTION_OPTION)
     @Column(name = OPTION_TEXT_COLUMN)
     private List<String> options = new ArrayList<>();
 
@@ -38,15 +42,24 @@ public class MultipleChoiceQuestion extends Question{
 
 
     @Override
-    public String display() {
-        StringBuilder sb = new StringBuilder();
-        sb.append(String.format("[Multiple Choice - %f Score]\n%s\n", getScore(), getText()));
-
+    public void writeTo(Appendable out) throws IOException {
+        writeHeaderTo(out);
         for (int i = 0; i < options.size(); i++) {
-            sb.append(String.format("   %d. %s\n", i + 1, options.get(i)));
+            writeOption(out, i + 1, options.get(i));
         }
+    }
+
+    // Score and question text, without the options
+    public void writeHeaderTo(Appendable out) throws IOException {
+        out.append("[Multiple Choice - ");
+        appendScore(out, getScore());
+        out.append(" Score]\n").append(getText()).append('\n');
+    }
 
-        return sb.toString();
+    public static void writeOption(Appendable out, int number, String option) throws IOException {
+        out.append("   ");
+        appendNumber(out, number);
+        out.append(". ").append(option).append('\n');
     }
 
     @Override
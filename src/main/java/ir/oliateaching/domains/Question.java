@@ -2,10 +2,14 @@ package ir.oliateaching.domains;
 
 import ir.oliateaching.domains.base.BaseDomain;
 import ir.oliateaching.enums.QuestionType;
+import ir.oliateaching.utils.CompiledExamInvalidator;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
 
 
 @Getter
@@ -13,6 +17,7 @@ import lombok.Setter;
 @Entity
 @Table(name = Question.TABLE_NAME)
 @Inheritance(strategy = InheritanceType.JOINED)
+@EntityListeners(CompiledExamInvalidator.class)
 
 public abstract class Question extends BaseDomain<Long> {
 
@@ -28,7 +33,7 @@ public abstract class Question extends BaseDomain<Long> {
     private String text;
 
     @Column(name = QUESTION_SCORE_COLUMN, nullable = false)
-    public double score;
+    private double score;
 
     @Enumerated(EnumType.STRING)
     @Column(name = QUESTION_TYPE_COLUMN, nullable = false)
@@ -38,7 +43,53 @@ public abstract class Question extends BaseDomain<Long> {
     @JoinColumn(name = EXAM_ID_COLUMN)
     private Exam exam;
 
-    public abstract String display();
+    public void setScore(double score) {
+        if (exam != null) {
+            exam.adjustTotalScores(score - this.score);
+        }
+        this.score = score;
+    }
+
+    // Streams the printable form of the question, without building intermediate Strings
+    public abstract void writeTo(Appendable out) throws IOException;
+
+    public String display() {
+        StringBuilder sb = new StringBuilder();
+        try {
+            writeTo(sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString();
+    }
 
     public abstract boolean validateAnswer(Object answer);
+
+    // Same text as "%f", always with six decimals and a '.' separator
+    protected static void appendScore(Appendable out, double score) throws IOException {
+        if (score < 0) {
+            out.append('-');
+        }
+        long micros = Math.round(Math.abs(score) * 1_000_000);
+        appendNumber(out, micros / 1_000_000);
+        out.append('.');
+        long fraction = micros % 1_000_000;
+        for (long unit = 100_000; unit > 0; unit /= 10) {
+            out.append((char) ('0' + fraction / unit % 10));
+        }
+    }
+
+    protected static void appendNumber(Appendable out, long number) throws IOException {
+        if (number < 0) {
+            out.append('-');
+            number = -number;
+        }
+        long unit = 1;
+        while (unit <= number / 10) {
+            unit *= 10;
+        }
+        for (; unit > 0; unit /= 10) {
+            out.append((char) ('0' + number / unit % 10));
+        }
+    }
 }
\ No newline at end of file
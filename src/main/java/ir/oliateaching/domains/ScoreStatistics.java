@@ -0,0 +1,80 @@
+package ir.oliateaching.domains;
+
+
+import ir.oliateaching.domains.base.BaseDomain;
+import ir.oliateaching.utils.ScoreSummary;
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+
+// Persisted ScoreSummary of an exam (question is null) or of one question of it. Count and mean are
+// copied out of the summary so they can be queried and sorted on. questionKey repeats the question id,
+// or EXAM_LEVEL_KEY for the exam row, so the unique constraint also covers the exam row: PostgreSQL
+// treats NULL question ids as distinct.
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = ScoreStatistics.TABLE_NAME,
+        uniqueConstraints = @UniqueConstraint(columnNames = {ScoreStatistics.EXAM_ID_COLUMN, ScoreStatistics.QUESTION_KEY_COLUMN}))
+public class ScoreStatistics extends BaseDomain<Long> {
+
+    public static final String TABLE_NAME = "score_statistics";
+    public static final String EXAM_ID_COLUMN = "exam_id";
+    public static final String QUESTION_ID_COLUMN = "question_id";
+    public static final String QUESTION_KEY_COLUMN = "question_key";
+    public static final String SCORE_COUNT_COLUMN = "score_count";
+    public static final String MEAN_PERCENT_COLUMN = "mean_percent";
+    public static final String SUMMARY_COLUMN = "summary";
+    public static final int MAX_SUMMARY_BYTES = 2048;
+    public static final long EXAM_LEVEL_KEY = 0;
+
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = EXAM_ID_COLUMN)
+    private Exam exam;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = QUESTION_ID_COLUMN)
+    private Question question;
+
+    @Setter(AccessLevel.NONE)
+    @Column(name = QUESTION_KEY_COLUMN, nullable = false)
+    private long questionKey;
+
+    @Column(name = SCORE_COUNT_COLUMN, nullable = false)
+    private long scoreCount;
+
+    @Column(name = MEAN_PERCENT_COLUMN, nullable = false)
+    private double meanPercent;
+
+    @Column(name = SUMMARY_COLUMN, nullable = false, length = MAX_SUMMARY_BYTES)
+    private byte[] summary;
+
+    public ScoreStatistics(Exam exam, Question question) {
+        this.exam = exam;
+        this.question = question;
+        this.questionKey = question == null ? EXAM_LEVEL_KEY : question.getId();
+        setSummary(new ScoreSummary());
+    }
+
+    public ScoreSummary getScoreSummary() {
+        return ScoreSummary.fromBytes(summary);
+    }
+
+    public void setSummary(ScoreSummary scoreSummary) {
+        this.summary = scoreSummary.toBytes();
+        this.scoreCount = scoreSummary.getCount();
+        this.meanPercent = scoreSummary.getMean();
+    }
+
+    // Folds newly graded scores into the stored summary
+    public void merge(ScoreSummary scores) {
+        ScoreSummary merged = getScoreSummary();
+        merged.merge(scores);
+        setSummary(merged);
+    }
+}
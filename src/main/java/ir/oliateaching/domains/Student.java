@@ -6,17 +6,19 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.Hibernate;
 
 import java.time.LocalDate;
 import java.time.Year;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashSet;
+import java.util.Set;
 
 
 @Getter
 @Setter
 @Entity
-@Table(name = Student.TABLE_NAME)
+@Table(name = Student.TABLE_NAME, uniqueConstraints =
+        @UniqueConstraint(name = Student.STUDENT_CODE_UNIQUE_CONSTRAINT, columnNames = Student.STUDENT_CODE_COLUMN))
 @PrimaryKeyJoinColumn(name = Student.PRIMARY_KEY_JOIN_COLUMN)
 public class Student extends User {
 
@@ -27,9 +29,11 @@ public class Student extends User {
     public static final String FIELD_OF_STUDY_COLUMN = "field_of_study";
     public static final String ENTRY_YEAR_COLUMN = "entry_year";
 
+    public static final String STUDENT_CODE_UNIQUE_CONSTRAINT = "uk_students_student_code";
 
 
-    @Column(name = STUDENT_CODE_COLUMN, unique = true, length = 10)
+
+    @Column(name = STUDENT_CODE_COLUMN, length = 10)
     private String studentCode;
 
     @Column(name = FIELD_OF_STUDY_COLUMN, length = 100)
@@ -38,8 +42,8 @@ public class Student extends User {
     @Column(name = ENTRY_YEAR_COLUMN)
     private Integer entryYear;
 
-    @ManyToMany(mappedBy = TABLE_NAME)
-    private List<Course> enrolledCourses = new ArrayList<>();
+    @OneToMany(mappedBy = Enrollment.STUDENT_FIELD)
+    private Set<Enrollment> enrollments = new HashSet<>();
 
     public Student() {
         setRole(UserRole.STUDENT);
@@ -50,13 +54,15 @@ public class Student extends User {
         super(username, password, firstName, lastName, email, UserRole.STUDENT);
     }
 
-    public void enrollInCourse(Course course) {
-        if (!enrolledCourses.contains(course)) {
-            enrolledCourses.add(course);
+    public void enrollInCourse(Enrollment enrollment) {
+        if (Hibernate.isInitialized(enrollments)) {
+            enrollments.add(enrollment);
         }
     }
 
-    public void unenrollFromCourse(Course course) {
-        enrolledCourses.remove(course);
+    public void unenrollFromCourse(Enrollment enrollment) {
+        if (Hibernate.isInitialized(enrollments)) {
+            enrollments.remove(enrollment);
+        }
     }
 }
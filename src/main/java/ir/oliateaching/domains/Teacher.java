@@ -17,7 +17,8 @@ import java.util.List;
 @Entity
 @Setter
 @Getter
-@Table(name = Teacher.TABLE_NAME)
+@Table(name = Teacher.TABLE_NAME, uniqueConstraints =
+        @UniqueConstraint(name = Teacher.TEACHER_CODE_UNIQUE_CONSTRAINT, columnNames = Teacher.TEACHER_CODE_COLUMN))
 @PrimaryKeyJoinColumn(name = Teacher.PRIMARY_KEY_JOIN_COLUMN)
 public class Teacher extends User {
 
@@ -28,9 +29,11 @@ public class Teacher extends User {
     public static final String EXPERTISE_COLUMN = "expertise";
     public static final String DEGREE_COLUMN = "degree";
 
+    public static final String TEACHER_CODE_UNIQUE_CONSTRAINT = "uk_teachers_teacher_code";
 
 
-    @Column(name = TEACHER_CODE_COLUMN, unique = true, length = 10)
+
+    @Column(name = TEACHER_CODE_COLUMN, length = 10)
     private String teacherCode;
 
     @Column(name = EXPERTISE_COLUMN, length = 200)
@@ -4,8 +4,11 @@ package ir.oliateaching.domains;
 import ir.oliateaching.domains.base.BaseDomain;
 import ir.oliateaching.enums.UserRole;
 import ir.oliateaching.enums.UserStatus;
+import ir.oliateaching.utils.UserExistenceFilterListener;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.internal.NaturalIdHelper;
 
 import java.time.LocalDateTime;
@@ -15,11 +18,19 @@ import java.util.Objects;
 @Getter
 @Setter
 @Entity
-@Table(name = User.TABLE_NAME)
+@Table(name = User.TABLE_NAME, uniqueConstraints = {
+        @UniqueConstraint(name = User.USERNAME_UNIQUE_CONSTRAINT, columnNames = User.USERNAME_COLUMN),
+        @UniqueConstraint(name = User.EMAIL_UNIQUE_CONSTRAINT, columnNames = User.EMAIL_COLUMN),
+        @UniqueConstraint(name = User.NATIONAL_ID_UNIQUE_CONSTRAINT, columnNames = User.NATIONAL_ID_COLUMN)
+})
 @Inheritance(strategy = InheritanceType.JOINED)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = User.CACHE_REGION)
+@EntityListeners(UserExistenceFilterListener.class)
 public abstract class User extends BaseDomain<Long> {
 
     public static final String TABLE_NAME = "users";
+    public static final String CACHE_REGION = "users";
 
     public static final String USERNAME_COLUMN = "username";
     public static final String PASSWORD_COLUMN = "password";
@@ -34,9 +45,14 @@ public abstract class User extends BaseDomain<Long> {
     public static final String APPROVED_DATE_COLUMN = "approved_date";
     public static final String APPROVED_BY_COLUMN = "approved_by";
 
+    // Named so a violation raised at insert can be traced back to the field
+    public static final String USERNAME_UNIQUE_CONSTRAINT = "uk_users_username";
+    public static final String EMAIL_UNIQUE_CONSTRAINT = "uk_users_email";
+    public static final String NATIONAL_ID_UNIQUE_CONSTRAINT = "uk_users_national_id";
 
 
-    @Column(name = USERNAME_COLUMN, nullable = false, unique = true, length = 50)
+
+    @Column(name = USERNAME_COLUMN, nullable = false, length = 50)
     private String username;
 
     @Column(name = PASSWORD_COLUMN, nullable = false, length = 100)
@@ -54,7 +70,7 @@ public abstract class User extends BaseDomain<Long> {
     @Column(name = PHONE_NUMBER_COLUMN, length = 11)
     private String phoneNumber;
 
-    @Column(name = NATIONAL_ID_COLUMN, unique = true, length = 10)
+    @Column(name = NATIONAL_ID_COLUMN, length = 10)
     private String nationalId;
 
     @Enumerated(EnumType.STRING)
@@ -0,0 +1,27 @@
+package ir.oliateaching.dto;
+
+import lombok.Getter;
+
+
+// Answer to one question, selectedOption for multiple choice or answerText for essays
+@Getter
+public class AnswerDTO {
+
+    private final Long questionId;
+    private final Integer selectedOption;
+    private final String answerText;
+
+    public AnswerDTO(Long questionId, Integer selectedOption, String answerText) {
+        this.questionId = questionId;
+        this.selectedOption = selectedOption;
+        this.answerText = answerText;
+    }
+
+    public static AnswerDTO choice(Long questionId, int selectedOption) {
+        return new AnswerDTO(questionId, selectedOption, null);
+    }
+
+    public static AnswerDTO essay(Long questionId, String answerText) {
+        return new AnswerDTO(questionId, null, answerText);
+    }
+}
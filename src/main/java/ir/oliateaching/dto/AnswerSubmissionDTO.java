@@ -0,0 +1,24 @@
+package ir.oliateaching.dto;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+
+// Answers sent together for one attempt, the final submission also closes the attempt
+@Getter
+public class AnswerSubmissionDTO {
+
+    private final Long attemptId;
+    private final List<AnswerDTO> answers;
+    private final boolean finalSubmission;
+    private final LocalDateTime submittedAt;
+
+    public AnswerSubmissionDTO(Long attemptId, List<AnswerDTO> answers, boolean finalSubmission) {
+        this.attemptId = attemptId;
+        this.answers = List.copyOf(answers);
+        this.finalSubmission = finalSubmission;
+        this.submittedAt = LocalDateTime.now();
+    }
+}
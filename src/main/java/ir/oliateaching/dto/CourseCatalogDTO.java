@@ -0,0 +1,43 @@
+package ir.oliateaching.dto;
+
+import lombok.Getter;
+
+import java.time.LocalDate;
+
+
+// Read model for the course catalog, filled by a single projection query
+@Getter
+public class CourseCatalogDTO {
+
+    private final Long id;
+    private final String courseCode;
+    private final String title;
+    private final String teacherLastName;
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+    private final long enrolledCount;
+    private final boolean enrolledByMe;
+
+    public CourseCatalogDTO(Long id, String courseCode, String title, String teacherLastName,
+                            LocalDate startDate, LocalDate endDate, Long enrolledCount, Boolean enrolledByMe) {
+        this.id = id;
+        this.courseCode = courseCode;
+        this.title = title;
+        this.teacherLastName = teacherLastName;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.enrolledCount = enrolledCount == null ? 0 : enrolledCount;
+        this.enrolledByMe = Boolean.TRUE.equals(enrolledByMe);
+    }
+
+    @Override
+    public String toString() {
+        return "CourseCatalogDTO{" +
+                "id=" + id +
+                ", courseCode='" + courseCode + '\'' +
+                ", title='" + title + '\'' +
+                ", enrolledCount=" + enrolledCount +
+                ", enrolledByMe=" + enrolledByMe +
+                '}';
+    }
+}
@@ -0,0 +1,42 @@
+package ir.oliateaching.dto;
+
+import ir.oliateaching.enums.EnrollmentOutcome;
+import lombok.Getter;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+@Getter
+public class EnrollmentReportDTO {
+
+    // courseId -> (studentId -> outcome), in request order
+    private final Map<Long, Map<Long, EnrollmentOutcome>> outcomes = new LinkedHashMap<>();
+
+    public void record(Long courseId, Long studentId, EnrollmentOutcome outcome) {
+        outcomes.computeIfAbsent(courseId, id -> new LinkedHashMap<>()).put(studentId, outcome);
+    }
+
+    public Map<Long, EnrollmentOutcome> getOutcomes(Long courseId) {
+        return outcomes.getOrDefault(courseId, Map.of());
+    }
+
+    public Map<EnrollmentOutcome, Long> getSummary() {
+        Map<EnrollmentOutcome, Long> summary = new EnumMap<>(EnrollmentOutcome.class);
+        for (Map<Long, EnrollmentOutcome> byStudent : outcomes.values()) {
+            for (EnrollmentOutcome outcome : byStudent.values()) {
+                summary.merge(outcome, 1L, Long::sum);
+            }
+        }
+        return summary;
+    }
+
+    @Override
+    public String toString() {
+        return "EnrollmentReportDTO{" +
+                "courses=" + outcomes.size() +
+                ", summary=" + getSummary() +
+                '}';
+    }
+}
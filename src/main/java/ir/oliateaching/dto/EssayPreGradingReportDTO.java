@@ -0,0 +1,34 @@
+package ir.oliateaching.dto;
+
+import lombok.Getter;
+
+
+@Getter
+public class EssayPreGradingReportDTO {
+
+    private final Long examId;
+    private final long essaysScored;
+    private final long outOfWordBounds;
+    private final double averageCoverage;
+    private final long elapsedMillis;
+
+    public EssayPreGradingReportDTO(Long examId, long essaysScored, long outOfWordBounds,
+                                    double totalCoverage, long elapsedMillis) {
+        this.examId = examId;
+        this.essaysScored = essaysScored;
+        this.outOfWordBounds = outOfWordBounds;
+        this.averageCoverage = essaysScored == 0 ? 0 : totalCoverage / essaysScored;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "EssayPreGradingReportDTO{" +
+                "examId=" + examId +
+                ", essaysScored=" + essaysScored +
+                ", outOfWordBounds=" + outOfWordBounds +
+                ", averageCoverage=" + String.format("%.2f", averageCoverage) +
+                ", elapsedMillis=" + elapsedMillis +
+                '}';
+    }
+}
@@ -0,0 +1,52 @@
+package ir.oliateaching.dto;
+
+import ir.oliateaching.enums.WarmupStatus;
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+
+@Getter
+public class ExamReadinessDTO {
+
+    private final Long examId;
+    private final String examCode;
+    private final String examTitle;
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+    private final WarmupStatus status;
+    private final LocalDateTime warmedAt;
+    private final int rosterSize;
+    private final long warmupMillis;
+    private final String error;
+
+    public ExamReadinessDTO(Long examId, String examCode, String examTitle, LocalDate startDate, LocalDate endDate,
+                            WarmupStatus status, LocalDateTime warmedAt, int rosterSize, long warmupMillis,
+                            String error) {
+        this.examId = examId;
+        this.examCode = examCode;
+        this.examTitle = examTitle;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.status = status;
+        this.warmedAt = warmedAt;
+        this.rosterSize = rosterSize;
+        this.warmupMillis = warmupMillis;
+        this.error = error;
+    }
+
+    @Override
+    public String toString() {
+        return "ExamReadinessDTO{" +
+                "examId=" + examId +
+                ", examCode='" + examCode + '\'' +
+                ", startDate=" + startDate +
+                ", status=" + status +
+                ", warmedAt=" + warmedAt +
+                ", rosterSize=" + rosterSize +
+                ", warmupMillis=" + warmupMillis +
+                (error == null ? "" : ", error='" + error + '\'') +
+                '}';
+    }
+}
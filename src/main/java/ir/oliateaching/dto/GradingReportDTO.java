@@ -0,0 +1,37 @@
+package ir.oliateaching.dto;
+
+import lombok.Getter;
+
+
+@Getter
+public class GradingReportDTO {
+
+    private final Long examId;
+    private final long attemptsGraded;
+    private final long answersRead;
+    private final double maxScore;
+    private final double averageScore;
+    private final long elapsedMillis;
+
+    public GradingReportDTO(Long examId, long attemptsGraded, long answersRead, double maxScore,
+                            double totalScore, long elapsedMillis) {
+        this.examId = examId;
+        this.attemptsGraded = attemptsGraded;
+        this.answersRead = answersRead;
+        this.maxScore = maxScore;
+        this.averageScore = attemptsGraded == 0 ? 0 : totalScore / attemptsGraded;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "GradingReportDTO{" +
+                "examId=" + examId +
+                ", attemptsGraded=" + attemptsGraded +
+                ", answersRead=" + answersRead +
+                ", maxScore=" + maxScore +
+                ", averageScore=" + String.format("%.2f", averageScore) +
+                ", elapsedMillis=" + elapsedMillis +
+                '}';
+    }
+}
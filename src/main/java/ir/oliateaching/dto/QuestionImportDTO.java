@@ -0,0 +1,40 @@
+package ir.oliateaching.dto;
+
+import ir.oliateaching.enums.QuestionType;
+import jakarta.validation.constraints.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+// One item of a question-bank file, options for multiple choice questions or keywords for essays
+@Getter
+@Setter
+public class QuestionImportDTO {
+
+    private long lineNumber;
+    // Set by the reader when a value could not be converted, the item is then rejected
+    private String parseError;
+
+    @NotNull(message = "Question type must be MULTIPLE_CHOICES or ESSAY")
+    private QuestionType type;
+
+    @NotBlank(message = "Question text cannot be empty")
+    @Size(max = 2000, message = "Question text cannot exceed 2000 characters")
+    private String text;
+
+    @Positive(message = "Score must be greater than 0")
+    private double score;
+
+    private List<@NotBlank(message = "Options and keywords cannot be empty") String> items = new ArrayList<>();
+
+    private Integer correctAnswerIndex;
+
+    @PositiveOrZero(message = "Minimum words cannot be negative")
+    private Integer minWords;
+
+    @PositiveOrZero(message = "Maximum words cannot be negative")
+    private Integer maxWords;
+}
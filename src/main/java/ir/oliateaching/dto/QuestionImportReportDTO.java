@@ -0,0 +1,54 @@
+package ir.oliateaching.dto;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+@Getter
+public class QuestionImportReportDTO {
+
+    private static final int MAX_KEPT_ERRORS = 100;
+
+    private long read;
+    private long imported;
+    private long rejected;
+    private long elapsedMillis;
+    // Only the first errors are kept so a bad file cannot grow the report without bound
+    private final List<String> errors = new ArrayList<>();
+
+    public void recordRead() {
+        read++;
+    }
+
+    public void recordImported(int count) {
+        imported += count;
+    }
+
+    public void recordRejected(long lineNumber, String reason) {
+        rejected++;
+        if (errors.size() < MAX_KEPT_ERRORS) {
+            errors.add("line " + lineNumber + ": " + reason);
+        }
+    }
+
+    public void finish(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public double getItemsPerSecond() {
+        return elapsedMillis == 0 ? read : read * 1000.0 / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "QuestionImportReportDTO{" +
+                "read=" + read +
+                ", imported=" + imported +
+                ", rejected=" + rejected +
+                ", elapsedMillis=" + elapsedMillis +
+                ", itemsPerSecond=" + String.format("%.0f", getItemsPerSecond()) +
+                '}';
+    }
+}
@@ -0,0 +1,56 @@
+package ir.oliateaching.dto;
+
+import ir.oliateaching.utils.ScoreSummary;
+import lombok.Getter;
+
+import java.util.Arrays;
+
+
+// Score statistics in points out of maxScore; course level statistics use percentages (maxScore 100)
+@Getter
+public class ScoreStatisticsDTO {
+
+    public static final int HISTOGRAM_BUCKETS = 10;
+
+    private final String label;
+    private final double maxScore;
+    private final long count;
+    private final double mean;
+    private final double standardDeviation;
+    private final double min;
+    private final double max;
+    private final double median;
+    private final double percentile90;
+    private final double percentile99;
+    // Attempts per tenth of the maximum score
+    private final long[] histogram;
+
+    public ScoreStatisticsDTO(String label, double maxScore, ScoreSummary summary) {
+        double scale = maxScore / 100;
+        this.label = label;
+        this.maxScore = maxScore;
+        this.count = summary.getCount();
+        this.mean = summary.getMean() * scale;
+        this.standardDeviation = summary.getStandardDeviation() * scale;
+        this.min = summary.getMin() * scale;
+        this.max = summary.getMax() * scale;
+        this.median = summary.percentile(0.5) * scale;
+        this.percentile90 = summary.percentile(0.9) * scale;
+        this.percentile99 = summary.percentile(0.99) * scale;
+        this.histogram = summary.getHistogram(HISTOGRAM_BUCKETS);
+    }
+
+    @Override
+    public String toString() {
+        return "ScoreStatisticsDTO{" +
+                "label='" + label + '\'' +
+                ", maxScore=" + maxScore +
+                ", count=" + count +
+                ", mean=" + String.format("%.2f", mean) +
+                ", stdDev=" + String.format("%.2f", standardDeviation) +
+                ", median=" + String.format("%.2f", median) +
+                ", p90=" + String.format("%.2f", percentile90) +
+                ", histogram=" + Arrays.toString(histogram) +
+                '}';
+    }
+}
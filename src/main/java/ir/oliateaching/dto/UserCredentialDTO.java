@@ -0,0 +1,36 @@
+package ir.oliateaching.dto;
+
+import ir.oliateaching.enums.UserRole;
+import ir.oliateaching.enums.UserStatus;
+import lombok.Getter;
+
+
+// What a login needs of a user, read from the users table alone without the subclass joins
+@Getter
+public class UserCredentialDTO {
+
+    private final Long id;
+    private final String password;
+    private final UserStatus status;
+    private final UserRole role;
+
+    public UserCredentialDTO(Long id, String password, UserStatus status, UserRole role) {
+        this.id = id;
+        this.password = password;
+        this.status = status;
+        this.role = role;
+    }
+
+    public boolean isApproved() {
+        return status == UserStatus.APPROVED;
+    }
+
+    @Override
+    public String toString() {
+        return "UserCredentialDTO{" +
+                "id=" + id +
+                ", status=" + status +
+                ", role=" + role +
+                '}';
+    }
+}
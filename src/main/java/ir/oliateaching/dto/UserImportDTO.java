@@ -0,0 +1,15 @@
+package ir.oliateaching.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+
+// One row of a bulk user import file, validated with the same rules as a sign up
+@Getter
+@Setter
+public class UserImportDTO extends UserSignUpDTO {
+
+    private long lineNumber;
+    // Set by the reader when a value could not be converted, the row is then rejected
+    private String parseError;
+}
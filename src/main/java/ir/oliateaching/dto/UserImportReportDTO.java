@@ -0,0 +1,73 @@
+package ir.oliateaching.dto;
+
+import lombok.Getter;
+
+import java.nio.file.Path;
+
+
+// Counts of a bulk user import; the rejected rows themselves go to the reject file, not into the report
+@Getter
+public class UserImportReportDTO {
+
+    private long read;
+    private long students;
+    private long teachers;
+    private long invalid;
+    private long duplicates;
+    private long failed;
+    private long elapsedMillis;
+    private Path rejectFile;
+
+    public void recordRead() {
+        read++;
+    }
+
+    public void recordImported(long students, long teachers) {
+        this.students += students;
+        this.teachers += teachers;
+    }
+
+    public void recordInvalid() {
+        invalid++;
+    }
+
+    public void recordDuplicate() {
+        duplicates++;
+    }
+
+    public void recordFailed() {
+        failed++;
+    }
+
+    public void finish(long elapsedMillis, Path rejectFile) {
+        this.elapsedMillis = elapsedMillis;
+        this.rejectFile = rejectFile;
+    }
+
+    public long getImported() {
+        return students + teachers;
+    }
+
+    public long getRejected() {
+        return invalid + duplicates + failed;
+    }
+
+    public double getRowsPerSecond() {
+        return elapsedMillis == 0 ? read : read * 1000.0 / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "UserImportReportDTO{" +
+                "read=" + read +
+                ", imported=" + getImported() +
+                ", students=" + students +
+                ", teachers=" + teachers +
+                ", invalid=" + invalid +
+                ", duplicates=" + duplicates +
+                ", failed=" + failed +
+                ", elapsedMillis=" + elapsedMillis +
+                ", rowsPerSecond=" + String.format("%.0f", getRowsPerSecond()) +
+                '}';
+    }
+}
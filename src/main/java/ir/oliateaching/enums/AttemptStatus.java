@@ -0,0 +1,7 @@
+package ir.oliateaching.enums;
+
+public enum AttemptStatus {
+    IN_PROGRESS,
+    SUBMITTED,
+    GRADED
+}
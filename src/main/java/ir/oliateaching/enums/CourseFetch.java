@@ -0,0 +1,8 @@
+package ir.oliateaching.enums;
+
+// Fetch plan for course queries, values can be combined
+public enum CourseFetch {
+    WITH_TEACHER,
+    WITH_ROSTER,
+    WITH_ROSTER_COUNT
+}
@@ -0,0 +1,9 @@
+package ir.oliateaching.enums;
+
+public enum EnrollmentOutcome {
+    ENROLLED,
+    ALREADY_ENROLLED,
+    STUDENT_NOT_APPROVED,
+    STUDENT_NOT_FOUND,
+    COURSE_NOT_FOUND
+}
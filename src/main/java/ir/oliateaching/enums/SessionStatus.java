@@ -0,0 +1,7 @@
+package ir.oliateaching.enums;
+
+public enum SessionStatus {
+    ACTIVE,
+    SUBMITTED,
+    EXPIRED
+}
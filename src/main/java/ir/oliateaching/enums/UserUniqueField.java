@@ -0,0 +1,9 @@
+package ir.oliateaching.enums;
+
+public enum UserUniqueField {
+    USERNAME,
+    EMAIL,
+    NATIONAL_ID,
+    STUDENT_CODE,
+    TEACHER_CODE
+}
@@ -0,0 +1,86 @@
+package ir.oliateaching.main;
+
+import ir.oliateaching.services.ExamSessionManager;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+// Opens a burst of concurrent exam sessions, one virtual thread per taker, lets part of them submit early
+// and the rest run out of time. No database is involved, expired batches are only counted.
+// Usage: ExamSessionBenchmark [sessions] [max duration seconds]
+public class ExamSessionBenchmark {
+
+    public static void main(String[] args) throws InterruptedException {
+
+        int sessionCount = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int maxSeconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        AtomicLong expired = new AtomicLong();
+        AtomicLong totalLateness = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(sessionCount);
+        ExamSessionManager manager = new ExamSessionManager(null, 10, batch -> {
+            long now = System.currentTimeMillis();
+            for (ExamSessionManager.ExamSession session : batch) {
+                totalLateness.addAndGet(now - session.getDeadlineMillis());
+                done.countDown();
+            }
+            expired.addAndGet(batch.size());
+        });
+
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+
+        // Every taker opens its session at the same moment, as at the start of an exam
+        long start = System.nanoTime();
+        AtomicLong submittedEarly = new AtomicLong();
+        try (ExecutorService takers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; i < sessionCount; i++) {
+                long attemptId = i;
+                takers.execute(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    long now = System.currentTimeMillis();
+                    long deadline = now + 1_000 + random.nextLong(maxSeconds * 1_000L - 1_000);
+                    manager.open(attemptId, 1L, attemptId, now, deadline);
+                    // One in five hands the exam in before the time is up
+                    if (random.nextInt(5) == 0) {
+                        long handInAfter = random.nextLong(deadline - now);
+                        Thread.startVirtualThread(() -> {
+                            try {
+                                Thread.sleep(handInAfter);
+                            } catch (InterruptedException e) {
+                                return;
+                            }
+                            if (manager.finish(attemptId)) {
+                                submittedEarly.incrementAndGet();
+                                done.countDown();
+                            }
+                        });
+                    }
+                });
+            }
+        }
+        long openedMillis = (System.nanoTime() - start) / 1_000_000;
+        System.out.println("Opened " + sessionCount + " sessions in " + openedMillis + " ms");
+        System.gc();
+        long heapAfter = runtime.totalMemory() - runtime.freeMemory();
+        System.out.println("Active sessions: " + manager.getActiveSessions()
+                + ", heap grew by about " + (heapAfter - heapBefore) / 1024 / 1024 + " MB");
+
+        done.await();
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        manager.shutdown();
+
+        System.out.println("Sessions: " + sessionCount + " (max " + maxSeconds + " s each)");
+        System.out.println("Submitted early: " + submittedEarly.get());
+        System.out.println("Auto-submitted: " + expired.get());
+        System.out.println("Average lateness: "
+                + (expired.get() == 0 ? 0 : totalLateness.get() / expired.get()) + " ms");
+        System.out.println("Elapsed: " + elapsedMillis + " ms");
+        System.out.println(manager);
+    }
+}
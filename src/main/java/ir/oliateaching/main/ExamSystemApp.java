@@ -1,18 +1,30 @@
 package ir.oliateaching.main;
 
+import ir.oliateaching.repositories.base.Slice;
 import ir.oliateaching.utils.ApplicationContext;
+import ir.oliateaching.utils.CompiledExam;
+import ir.oliateaching.utils.StudentExamView;
+import ir.oliateaching.utils.UnitOfWork;
 import ir.oliateaching.dto.*;
 import ir.oliateaching.enums.*;
 import ir.oliateaching.domains.*;
 import ir.oliateaching.services.*;
 import ir.oliateaching.validator.DTOValidator;
 import jakarta.persistence.EntityManager;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
 
 
 public class ExamSystemApp {
@@ -21,15 +33,26 @@ public class ExamSystemApp {
 
     private static final Scanner scanner = new Scanner(System.in);
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final int PAGE_SIZE = 20;
 
     private static UserService userService;
     private static CourseService courseService;
     private static AdminService adminService;
+    private static ExamService examService;
+    private static QuestionImportService questionImportService;
+    private static UserImportService userImportService;
+    private static AttemptService attemptService;
+    private static GradingService gradingService;
+    private static ScoreStatisticsService scoreStatisticsService;
+    private static ExamWarmupService examWarmupService;
+    private static ExamSessionManager examSessionManager;
 
     private static User currentUser;
     private static boolean isAdmin;
     private static boolean isTeacher;
     private static boolean isStudent;
+    // Set by the main menu, the loop in main ends and its finally block shuts the services down
+    private static boolean exitRequested;
 
 
 
@@ -40,42 +63,69 @@ public class ExamSystemApp {
             initializeServices();
 
             // Initialize default application Admin User
-            adminService.initializeAdminAccount();
+            UnitOfWork.execute(() -> adminService.initializeAdminAccount());
+            UnitOfWork.execute(() -> userService.buildExistenceFilters());
 
 
 
             System.out.println("🎓 Welcome to Exam Management System 🎓");
             System.out.println("=======================================");
 
-            while (true) {
-                if (currentUser == null) {
-                    showMainMenu();
-                } else {
-                    if (isAdmin) {
-                        showAdminMenu();
-                    } else if (isTeacher) {
-                        showTeacherMenu();
-                    } else if (isStudent) {
-                        showStudentMenu();
+            // Every menu interaction is one unit of work with its own EntityManager
+            while (!exitRequested) {
+                UnitOfWork.execute(() -> {
+                    if (currentUser == null) {
+                        showMainMenu();
+                    } else {
+                        if (isAdmin) {
+                            showAdminMenu();
+                        } else if (isTeacher) {
+                            showTeacherMenu();
+                        } else if (isStudent) {
+                            showStudentMenu();
+                        }
                     }
-                }
+                });
             }
 
         } catch (Exception e) {
             System.err.println("Fatal error: " + e.getMessage());
         } finally {
-            ApplicationContext.shutdown();
-            scanner.close();
+            shutdown();
+        }
+    }
+
+    // Background services first, they may still write through the EntityManagerFactory
+    private static void shutdown() {
+        if (examWarmupService != null) {
+            examWarmupService.shutdown();
         }
+        if (examSessionManager != null) {
+            examSessionManager.shutdown();
+        }
+        if (attemptService != null) {
+            attemptService.shutdown();
+        }
+        ApplicationContext.shutdown();
+        scanner.close();
     }
 
 
     private static void initializeServices() {
 
-        EntityManager entityManager = ApplicationContext.getEntityManager();
+        EntityManager entityManager = UnitOfWork.sharedEntityManager();
         userService = new UserService(entityManager);
         courseService = new CourseService(entityManager);
         adminService = new AdminService(entityManager);
+        examService = new ExamService(entityManager);
+        questionImportService = new QuestionImportService(entityManager);
+        userImportService = new UserImportService(entityManager);
+        attemptService = new AttemptService(entityManager);
+        examSessionManager = new ExamSessionManager(attemptService);
+        gradingService = new GradingService(entityManager);
+        scoreStatisticsService = new ScoreStatisticsService(entityManager);
+        examWarmupService = new ExamWarmupService(entityManager);
+        examWarmupService.start(ExamWarmupService.DEFAULT_INTERVAL_MINUTES);
     }
 
 
@@ -100,7 +150,8 @@ public class ExamSystemApp {
                     break;
                 case 3:
                     System.out.println("Goodbye!");
-                    System.exit(0);
+                    exitRequested = true;
+                    break;
                 default:
                     System.out.println("Invalid option!");
             }
@@ -119,20 +170,18 @@ public class ExamSystemApp {
         System.out.print("Password: ");
         String password = scanner.nextLine().trim();
 
-        if (userService.authenticate(username, password)) {
-            Optional<User> userOpt = userService.findByUsername(username);
-            if (userOpt.isPresent()) {
-                currentUser = userOpt.get();
-                updateUserRoles();
+        Optional<User> userOpt = userService.login(username, password);
+        if (userOpt.isPresent()) {
+            currentUser = userOpt.get();
+            updateUserRoles();
 
-                System.out.println("\n✅ Login successful!");
-                System.out.println("Welcome, " + currentUser.getFullName() + "!");
+            System.out.println("\n✅ Login successful!");
+            System.out.println("Welcome, " + currentUser.getFullName() + "!");
 
-                if (!currentUser.isApproved()) {
-                    System.out.println("⚠️  Your account is pending approval. Please wait for admin approval.");
-                    currentUser = null;
-                    updateUserRoles();
-                }
+            if (!currentUser.isApproved()) {
+                System.out.println("⚠️  Your account is pending approval. Please wait for admin approval.");
+                currentUser = null;
+                updateUserRoles();
             }
         } else {
             System.out.println("❌ Invalid username, password, or account not approved!");
@@ -254,7 +303,8 @@ public class ExamSystemApp {
         System.out.println("1. Manage Users");
         System.out.println("2. Manage Courses");
         System.out.println("3. View Statistics");
-        System.out.println("4. Logout");
+        System.out.println("4. Exam Readiness");
+        System.out.println("5. Logout");
         System.out.print("Select an option: ");
 
         try {
@@ -271,6 +321,9 @@ public class ExamSystemApp {
                     viewStatistics();
                     break;
                 case 4:
+                    viewExamReadiness();
+                    break;
+                case 5:
                     logout();
                     break;
                 default:
@@ -295,7 +348,8 @@ public class ExamSystemApp {
             System.out.println("4. Edit User");
             System.out.println("5. Search Users");
             System.out.println("6. Delete User");
-            System.out.println("7. Back to Admin Menu");
+            System.out.println("7. Bulk Import Users (CSV)");
+            System.out.println("8. Back to Admin Menu");
             System.out.print("Select an option: ");
 
             try {
@@ -321,6 +375,9 @@ public class ExamSystemApp {
                         deleteUser();
                         break;
                     case 7:
+                        bulkImportUsers();
+                        break;
+                    case 8:
                         back = true;
                         break;
                     default:
@@ -336,7 +393,7 @@ public class ExamSystemApp {
 
     private static void viewAllUsers() {
 
-        List<User> users = adminService.getAllUsersForAdmin();
+        Slice<User> users = adminService.getUsersPageForAdmin(null, PAGE_SIZE);
 
         System.out.println("\n=== ALL USERS ===");
         if (users.isEmpty()) {
@@ -346,17 +403,25 @@ public class ExamSystemApp {
                     "ID", "Username", "Full Name", "Role", "Status", "Registered");
             System.out.println("--------------------------------------------------------------------------------");
 
-            for (User user : users) {
-                System.out.printf("%-5d %-15s %-20s %-15s %-12s %-10s%n",
-                        user.getId(),
-                        user.getUsername(),
-                        user.getFullName(),
-                        user.getRole(),
-                        user.getStatus(),
-                        user.getRegistrationDate().toLocalDate()
-                );
+            long shown = 0;
+            while (true) {
+                for (User user : users.getContent()) {
+                    System.out.printf("%-5d %-15s %-20s %-15s %-12s %-10s%n",
+                            user.getId(),
+                            user.getUsername(),
+                            user.getFullName(),
+                            user.getRole(),
+                            user.getStatus(),
+                            user.getRegistrationDate().toLocalDate()
+                    );
+                }
+                shown += users.size();
+                if (!users.hasNext() || !askForNextPage()) {
+                    break;
+                }
+                users = adminService.getUsersPageForAdmin(users.getLast().getId(), PAGE_SIZE);
             }
-            System.out.println("Total: " + users.size() + " users");
+            System.out.println("Shown: " + shown + " users");
         }
     }
 
@@ -604,6 +669,45 @@ public class ExamSystemApp {
 
 
 
+    private static void bulkImportUsers() {
+
+        System.out.println("Columns: role, username, password, first_name, last_name, email, phone_number, national_id,");
+        System.out.println("         student_code, field_of_study, entry_year, teacher_code, expertise, degree");
+        System.out.print("Users file (.csv): ");
+        Path file = Path.of(scanner.nextLine().trim());
+        if (!Files.isRegularFile(file)) {
+            System.out.println("File not found: " + file);
+            return;
+        }
+        System.out.print("Reject file (leave empty for " + file.getFileName() + ".rejects.csv): ");
+        String rejectPath = scanner.nextLine().trim();
+        Path rejectFile = rejectPath.isEmpty()
+                ? file.resolveSibling(file.getFileName() + ".rejects.csv") : Path.of(rejectPath);
+
+        try {
+            UserImportReportDTO report = userImportService.importUsers(file, rejectFile, currentUser.getId());
+            System.out.println("\n=== IMPORT RESULT ===");
+            System.out.println("Read: " + report.getRead());
+            System.out.println("Imported: " + report.getImported()
+                    + " (" + report.getStudents() + " students, " + report.getTeachers() + " teachers)");
+            System.out.println("Invalid: " + report.getInvalid());
+            System.out.println("Duplicates: " + report.getDuplicates());
+            System.out.println("Failed: " + report.getFailed());
+            System.out.printf("Throughput: %.0f rows/s (%d ms)%n",
+                    report.getRowsPerSecond(), report.getElapsedMillis());
+            if (report.getRejected() > 0) {
+                System.out.println("Rejected rows written to: " + report.getRejectFile());
+            }
+
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+
+
+
+
+
     private static void manageCourses() {
 
         boolean back = false;
@@ -615,10 +719,11 @@ public class ExamSystemApp {
             System.out.println("3. Edit Course");
             System.out.println("4. Assign Teacher to Course");
             System.out.println("5. Add Student to Course");
-            System.out.println("6. View Course Participants");
-            System.out.println("7. Search Courses");
-            System.out.println("8. Delete Course");
-            System.out.println("9. Back to Admin Menu");
+            System.out.println("6. Bulk Enroll Students");
+            System.out.println("7. View Course Participants");
+            System.out.println("8. Search Courses");
+            System.out.println("9. Delete Course");
+            System.out.println("10. Back to Admin Menu");
             System.out.print("Select an option: ");
 
             try {
@@ -641,15 +746,18 @@ public class ExamSystemApp {
                         addStudentToCourse();
                         break;
                     case 6:
-                        viewCourseParticipants();
+                        bulkEnrollStudents();
                         break;
                     case 7:
-                        searchCourses();
+                        viewCourseParticipants();
                         break;
                     case 8:
-                        deleteCourse();
+                        searchCourses();
                         break;
                     case 9:
+                        deleteCourse();
+                        break;
+                    case 10:
                         back = true;
                         break;
                     default:
@@ -665,7 +773,7 @@ public class ExamSystemApp {
 
     private static void viewAllCourses() {
 
-        List<Course> courses = adminService.getAllCourses();
+        Slice<Course> courses = adminService.getCoursesPage(null, PAGE_SIZE);
 
         System.out.println("\n=== ALL COURSES ===");
         if (courses.isEmpty()) {
@@ -675,23 +783,39 @@ public class ExamSystemApp {
                     "ID", "Code", "Title", "Teacher", "Start Date", "End Date", "Status");
             System.out.println("---------------------------------------------------------------------------------------------------");
 
-            for (Course course : courses) {
-                System.out.printf("%-5d %-10s %-30s %-15s %-12s %-12s %-10s%n",
-                        course.getId(),
-                        course.getCourseCode(),
-                        course.getTitle().length() > 30 ? course.getTitle().substring(0, 27) + "..." : course.getTitle(),
-                        course.getTeacher() != null ? course.getTeacher().getLastName() : "Not assigned",
-                        course.getStartDate(),
-                        course.getEndDate(),
-                        course.getStatus()
-                );
+            long shown = 0;
+            while (true) {
+                for (Course course : courses.getContent()) {
+                    System.out.printf("%-5d %-10s %-30s %-15s %-12s %-12s %-10s%n",
+                            course.getId(),
+                            course.getCourseCode(),
+                            course.getTitle().length() > 30 ? course.getTitle().substring(0, 27) + "..." : course.getTitle(),
+                            course.getTeacher() != null ? course.getTeacher().getLastName() : "Not assigned",
+                            course.getStartDate(),
+                            course.getEndDate(),
+                            course.getStatus()
+                    );
+                }
+                shown += courses.size();
+                if (!courses.hasNext() || !askForNextPage()) {
+                    break;
+                }
+                courses = adminService.getCoursesPage(courses.getLast().getId(), PAGE_SIZE);
             }
-            System.out.println("Total: " + courses.size() + " courses");
+            System.out.println("Shown: " + shown + " courses");
         }
     }
 
 
 
+    private static boolean askForNextPage() {
+
+        System.out.print("-- Press Enter for next page, or 'q' to stop: ");
+        return !scanner.nextLine().trim().equalsIgnoreCase("q");
+    }
+
+
+
     private static void createCourse() {
 
         System.out.println("\n=== CREATE NEW COURSE ===");
@@ -890,6 +1014,34 @@ public class ExamSystemApp {
 
 
 
+    private static void bulkEnrollStudents() {
+
+        try {
+            System.out.print("Enter Course ID: ");
+            Long courseId = Long.parseLong(scanner.nextLine());
+
+            System.out.print("Enter Student IDs (comma separated): ");
+            List<Long> studentIds = new ArrayList<>();
+            for (String id : scanner.nextLine().split(",")) {
+                if (!id.isBlank()) {
+                    studentIds.add(Long.parseLong(id.trim()));
+                }
+            }
+
+            EnrollmentReportDTO report = adminService.enrollStudentsInCourse(courseId, studentIds);
+            report.getOutcomes(courseId).forEach((studentId, outcome) ->
+                    System.out.printf("%-8d %s%n", studentId, outcome));
+            System.out.println("Summary: " + report.getSummary());
+
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid ID format!");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+
+
+
     private static void viewCourseParticipants() {
 
         System.out.print("Enter Course ID: ");
@@ -980,7 +1132,8 @@ public class ExamSystemApp {
             }
         }
 
-        List<Course> courses = courseService.searchCourses(title, status, startDate, endDate);
+        List<Course> courses = courseService.searchCourses(title, status, startDate, endDate,
+                CourseFetch.WITH_TEACHER, CourseFetch.WITH_ROSTER_COUNT);
 
         System.out.println("\n=== SEARCH RESULTS ===");
         if (courses.isEmpty()) {
@@ -1042,6 +1195,51 @@ public class ExamSystemApp {
 
         AdminService.AdminStatistics stats = adminService.getStatistics();
         System.out.println("\n" + stats.toString());
+
+        System.out.println("\nSecond-Level Cache:");
+        adminService.getCacheStatistics().forEach(System.out::println);
+        System.out.println(adminService.getCredentialCacheStatistics());
+
+        System.out.println("\nUser Existence Filters:");
+        adminService.getExistenceFilterStatistics().forEach(System.out::println);
+
+        System.out.println("\nLogins:");
+        System.out.println(adminService.getLoginStatistics());
+    }
+
+
+
+    private static void viewExamReadiness() {
+
+        System.out.print("Warm upcoming exams now? (yes/no): ");
+        if (scanner.nextLine().trim().equalsIgnoreCase("yes")) {
+            int warmed = examWarmupService.warmUpcomingExams();
+            System.out.println(warmed + " exams warmed.");
+        }
+
+        List<ExamReadinessDTO> readiness = examWarmupService.getReadiness();
+        System.out.println("\n=== EXAM READINESS ===");
+        if (readiness.isEmpty()) {
+            System.out.println("No exams open or opening within " + ExamWarmupService.DEFAULT_HORIZON_MINUTES + " minutes.");
+            return;
+        }
+        System.out.printf("%-5s %-10s %-30s %-12s %-8s %-10s %-10s%n",
+                "ID", "Code", "Title", "Start Date", "Status", "Students", "Warm-up");
+        System.out.println("----------------------------------------------------------------------------------------------");
+        for (ExamReadinessDTO exam : readiness) {
+            System.out.printf("%-5d %-10s %-30s %-12s %-8s %-10d %-10s%n",
+                    exam.getExamId(),
+                    exam.getExamCode(),
+                    exam.getExamTitle().length() > 30 ? exam.getExamTitle().substring(0, 27) + "..." : exam.getExamTitle(),
+                    exam.getStartDate(),
+                    exam.getStatus(),
+                    exam.getRosterSize(),
+                    exam.getWarmupMillis() + " ms"
+            );
+            if (exam.getError() != null) {
+                System.out.println("      Error: " + exam.getError());
+            }
+        }
     }
 
 
@@ -1054,7 +1252,11 @@ public class ExamSystemApp {
         System.out.println("1. View My Courses");
         System.out.println("2. View Course Details");
         System.out.println("3. View My Profile");
-        System.out.println("4. Logout");
+        System.out.println("4. Import Question Bank");
+        System.out.println("5. Grade Exam");
+        System.out.println("6. Export Exam Paper");
+        System.out.println("7. Exam Statistics");
+        System.out.println("8. Logout");
         System.out.print("Select an option: ");
 
         try {
@@ -1071,6 +1273,18 @@ public class ExamSystemApp {
                     viewProfile();
                     break;
                 case 4:
+                    importQuestionBank();
+                    break;
+                case 5:
+                    gradeExam();
+                    break;
+                case 6:
+                    exportExamPaper();
+                    break;
+                case 7:
+                    viewExamStatistics();
+                    break;
+                case 8:
                     logout();
                     break;
                 default:
@@ -1084,7 +1298,7 @@ public class ExamSystemApp {
 
     private static void viewTeacherCourses() {
 
-        List<Course> courses = courseService.getCoursesByTeacher(currentUser.getId());
+        List<Course> courses = courseService.getCoursesByTeacher(currentUser.getId(), CourseFetch.WITH_ROSTER_COUNT);
 
         System.out.println("\n=== MY COURSES ===");
         if (courses.isEmpty()) {
@@ -1111,6 +1325,161 @@ public class ExamSystemApp {
 
 
 
+    // Checks that the exam exists and belongs to one of the current teacher's courses
+    private static boolean isOwnExam(Long examId) {
+        Optional<Exam> examOpt = examService.findById(examId);
+        if (examOpt.isEmpty()) {
+            System.out.println("Exam not found!");
+            return false;
+        }
+        Course course = examOpt.get().getCourse();
+        if (course == null || course.getTeacher() == null
+                || !course.getTeacher().getId().equals(currentUser.getId())) {
+            System.out.println("You are not assigned to this exam's course!");
+            return false;
+        }
+        return true;
+    }
+
+
+    private static void gradeExam() {
+
+        System.out.print("Enter Exam ID: ");
+        try {
+            Long examId = Long.parseLong(scanner.nextLine());
+            if (!isOwnExam(examId)) {
+                return;
+            }
+
+            GradingReportDTO report = gradingService.gradeExam(examId);
+            System.out.println("\n=== GRADING RESULT ===");
+            System.out.println("Attempts graded: " + report.getAttemptsGraded());
+            System.out.println("Answers read: " + report.getAnswersRead());
+            System.out.printf("Average score: %.2f / %.2f%n", report.getAverageScore(), report.getMaxScore());
+            System.out.println("Time: " + report.getElapsedMillis() + " ms");
+
+            EssayPreGradingReportDTO essays = gradingService.preGradeEssays(examId);
+            if (essays.getEssaysScored() > 0) {
+                System.out.println("\nEssays pre-graded: " + essays.getEssaysScored()
+                        + " (outside word limits: " + essays.getOutOfWordBounds() + ")");
+                System.out.printf("Average keyword coverage: %.0f%%%n", essays.getAverageCoverage() * 100);
+            }
+
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid Exam ID!");
+        } catch (RuntimeException e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+
+
+    private static void viewExamStatistics() {
+
+        System.out.print("Enter Exam ID: ");
+        try {
+            Long examId = Long.parseLong(scanner.nextLine());
+            if (!isOwnExam(examId)) {
+                return;
+            }
+
+            List<ScoreStatisticsDTO> statistics = scoreStatisticsService.getExamStatistics(examId);
+            if (statistics.isEmpty()) {
+                System.out.println("No graded attempts yet.");
+                return;
+            }
+            System.out.println("\n=== SCORE STATISTICS ===");
+            System.out.printf("%-30s %-8s %-8s %-8s %-8s %-8s %-8s %-8s%n",
+                    "", "Max", "Count", "Mean", "StdDev", "Median", "P90", "P99");
+            for (ScoreStatisticsDTO row : statistics) {
+                System.out.printf("%-30s %-8.1f %-8d %-8.2f %-8.2f %-8.2f %-8.2f %-8.2f%n",
+                        row.getLabel().length() > 30 ? row.getLabel().substring(0, 27) + "..." : row.getLabel(),
+                        row.getMaxScore(), row.getCount(), row.getMean(), row.getStandardDeviation(),
+                        row.getMedian(), row.getPercentile90(), row.getPercentile99());
+            }
+
+            ScoreStatisticsDTO exam = statistics.get(0);
+            System.out.println("\nScore distribution (tenths of the maximum score):");
+            long[] histogram = exam.getHistogram();
+            long largest = Math.max(1, Arrays.stream(histogram).max().orElse(1));
+            for (int i = 0; i < histogram.length; i++) {
+                System.out.printf("%3d-%3d%% %-40s %d%n", i * 10, (i + 1) * 10,
+                        "#".repeat((int) (histogram[i] * 40 / largest)), histogram[i]);
+            }
+
+            Optional<Exam> examOpt = examService.findById(examId);
+            if (examOpt.isPresent() && examOpt.get().getCourse() != null) {
+                ScoreStatisticsDTO course = scoreStatisticsService.getCourseStatistics(examOpt.get().getCourse().getId());
+                System.out.printf("%nAll exams of the course: %d attempts, mean %.1f%%, median %.1f%%%n",
+                        course.getCount(), course.getMean(), course.getMedian());
+            }
+
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid Exam ID!");
+        } catch (RuntimeException e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+
+
+    private static void exportExamPaper() {
+
+        System.out.print("Enter Exam ID: ");
+        try {
+            Long examId = Long.parseLong(scanner.nextLine());
+            if (!isOwnExam(examId)) {
+                return;
+            }
+
+            System.out.print("Output file: ");
+            Path file = Path.of(scanner.nextLine().trim());
+            try (OutputStream out = Files.newOutputStream(file)) {
+                examService.writeExamPaper(examId, out);
+            }
+            System.out.println("✅ Exam paper written to " + file);
+
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid Exam ID!");
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+
+
+    private static void importQuestionBank() {
+
+        System.out.print("Enter Exam ID: ");
+        try {
+            Long examId = Long.parseLong(scanner.nextLine());
+            if (!isOwnExam(examId)) {
+                return;
+            }
+
+            System.out.print("Question bank file (.csv or .json): ");
+            Path file = Path.of(scanner.nextLine().trim());
+            if (!Files.isRegularFile(file)) {
+                System.out.println("File not found: " + file);
+                return;
+            }
+
+            QuestionImportReportDTO report = questionImportService.importQuestionBank(examId, file);
+            System.out.println("\n=== IMPORT RESULT ===");
+            System.out.println("Read: " + report.getRead());
+            System.out.println("Imported: " + report.getImported());
+            System.out.println("Rejected: " + report.getRejected());
+            System.out.printf("Throughput: %.0f questions/s (%d ms)%n",
+                    report.getItemsPerSecond(), report.getElapsedMillis());
+            for (String error : report.getErrors()) {
+                System.out.println("  • " + error);
+            }
+
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid Exam ID!");
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+
+
     private static void viewTeacherCourseDetails() {
 
         System.out.print("Enter Course ID: ");
@@ -1138,6 +1507,26 @@ public class ExamSystemApp {
                 System.out.println("Created: " + course.getCreatedAt());
                 System.out.println("Last Updated: " + course.getUpdatedAt());
 
+                List<Exam> exams = examService.getExamsByCourse(courseId);
+                System.out.println("\n=== EXAMS (" + exams.size() + ") ===");
+                if (exams.isEmpty()) {
+                    System.out.println("No exams defined.");
+                } else {
+                    System.out.printf("%-5s %-10s %-30s %-12s %-12s %-10s %-10s%n",
+                            "ID", "Code", "Title", "Start Date", "End Date", "Questions", "Total");
+                    for (Exam exam : exams) {
+                        System.out.printf("%-5d %-10s %-30s %-12s %-12s %-10d %-10.1f%n",
+                                exam.getId(),
+                                exam.getExamCode(),
+                                exam.getExamTitle().length() > 30 ? exam.getExamTitle().substring(0, 27) + "..." : exam.getExamTitle(),
+                                exam.getStartDate(),
+                                exam.getEndDate(),
+                                exam.getQuestionCount(),
+                                exam.getTotalScores()
+                        );
+                    }
+                }
+
                 List<Student> students = courseService.getCourseStudents(courseId);
                 System.out.println("\n=== ENROLLED STUDENTS (" + students.size() + ") ===");
 
@@ -1179,7 +1568,8 @@ public class ExamSystemApp {
         System.out.println("1. View My Courses");
         System.out.println("2. View Available Courses");
         System.out.println("3. View My Profile");
-        System.out.println("4. Logout");
+        System.out.println("4. Take Exam");
+        System.out.println("5. Logout");
         System.out.print("Select an option: ");
 
         try {
@@ -1196,6 +1586,9 @@ public class ExamSystemApp {
                     viewProfile();
                     break;
                 case 4:
+                    takeExam();
+                    break;
+                case 5:
                     logout();
                     break;
                 default:
@@ -1208,9 +1601,101 @@ public class ExamSystemApp {
 
 
 
+    private static void takeExam() {
+
+        System.out.print("Enter Exam ID: ");
+        try {
+            Long examId = Long.parseLong(scanner.nextLine());
+
+            ExamAttempt attempt = attemptService.startAttempt(examId, currentUser.getId());
+            ExamSessionManager.ExamSession session = examSessionManager.open(attempt);
+            CompiledExam exam = examService.getCompiledExam(examId);
+            // Questions and options in this student's own order, answers are translated back to canonical
+            StudentExamView paper = exam.forStudent(currentUser.getId());
+
+            System.out.println("\n=== " + exam.getTitle() + " ===");
+            System.out.println("Time remaining: " + formatRemaining(session.getRemainingMillis()));
+            System.out.println("Leave an answer empty to skip the question.");
+            // Every answer is saved as soon as it is entered, so running out of time loses nothing
+            List<CompletableFuture<Void>> saved = new ArrayList<>();
+            for (int i = 0; i < exam.size(); i++) {
+                if (session.getRemainingMillis() <= 0) {
+                    System.out.println("\n⏰ Time is up, your exam was submitted automatically.");
+                    return;
+                }
+                System.out.println();
+                System.out.print(i + 1);
+                System.out.print(") ");
+                try {
+                    paper.writeQuestion(i, System.out);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                System.out.println();
+                System.out.print("Your answer: ");
+                String input = scanner.nextLine().trim();
+                if (input.isEmpty()) {
+                    continue;
+                }
+                long questionId = paper.getQuestionId(i);
+                AnswerDTO answer;
+                if (exam.getType(paper.questionAt(i)) == QuestionType.MULTIPLE_CHOICES) {
+                    try {
+                        int option = Integer.parseInt(input);
+                        if (!paper.isValidChoice(i, option)) {
+                            System.out.println("Invalid option, question skipped.");
+                            continue;
+                        }
+                        answer = AnswerDTO.choice(questionId, paper.toCanonicalOption(i, option));
+                    } catch (NumberFormatException e) {
+                        System.out.println("Invalid option, question skipped.");
+                        continue;
+                    }
+                } else {
+                    answer = AnswerDTO.essay(questionId, input);
+                }
+                try {
+                    saved.add(examSessionManager.submitAnswers(attempt.getId(), List.of(answer), false));
+                } catch (IllegalArgumentException e) {
+                    System.out.println("\n" + e.getMessage() + ".");
+                    return;
+                }
+            }
+
+            System.out.print("\nSubmit your exam? (yes/no): ");
+            if (!scanner.nextLine().trim().equalsIgnoreCase("yes")) {
+                System.out.println("Your answers are saved, you can continue the exam before your time is up.");
+                return;
+            }
+            try {
+                // Queued behind the answers, so it completes once they are all written
+                examSessionManager.submitAnswersAndWait(attempt.getId(), List.of(), true, 30);
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage() + ".");
+                return;
+            }
+            long lost = saved.stream().filter(CompletableFuture::isCompletedExceptionally).count();
+            if (lost > 0) {
+                System.out.println("⚠️ " + lost + " answers could not be saved.");
+            }
+            System.out.println("✅ Your exam has been submitted (" + (saved.size() - lost) + " answered).");
+
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid Exam ID!");
+        } catch (RuntimeException e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+
+    private static String formatRemaining(long millis) {
+        long minutes = millis / 60_000;
+        return minutes >= 60 ? minutes / 60 + " h " + minutes % 60 + " min" : minutes + " min";
+    }
+
+
     private static void viewStudentCourses() {
 
-        List<Course> courses = courseService.getCoursesByStudent(currentUser.getId());
+        List<Course> courses = courseService.getCoursesByStudent(currentUser.getId(), CourseFetch.WITH_TEACHER);
 
         System.out.println("\n=== MY COURSES ===");
         if (courses.isEmpty()) {
@@ -1239,7 +1724,7 @@ public class ExamSystemApp {
 
     private static void viewAvailableCourses() {
 
-        List<Course> courses = courseService.getActiveCourses();
+        List<CourseCatalogDTO> courses = courseService.getActiveCourseCatalog(currentUser.getId());
 
         System.out.println("\n=== AVAILABLE ACTIVE COURSES ===");
         if (courses.isEmpty()) {
@@ -1249,22 +1734,17 @@ public class ExamSystemApp {
                     "ID", "Code", "Title", "Teacher", "Start Date", "End Date", "Students");
             System.out.println("---------------------------------------------------------------------------------------------------");
 
-            for (Course course : courses) {
-                // Check if student is already enrolled
-                boolean isEnrolled = courseService.getCoursesByStudent(currentUser.getId())
-                        .stream()
-                        .anyMatch(c -> c.getId().equals(course.getId()));
-
-                String enrolledMarker = isEnrolled ? " (Enrolled)" : "";
+            for (CourseCatalogDTO course : courses) {
+                String enrolledMarker = course.isEnrolledByMe() ? " (Enrolled)" : "";
 
                 System.out.printf("%-5d %-10s %-30s %-15s %-12s %-12s %-10d%s%n",
                         course.getId(),
                         course.getCourseCode(),
                         (course.getTitle().length() > 30 ? course.getTitle().substring(0, 27) + "..." : course.getTitle()) + enrolledMarker,
-                        course.getTeacher() != null ? course.getTeacher().getLastName() : "Not assigned",
+                        course.getTeacherLastName() != null ? course.getTeacherLastName() : "Not assigned",
                         course.getStartDate(),
                         course.getEndDate(),
-                        course.getStudentCount(),
+                        course.getEnrolledCount(),
                         ""
                 );
             }
@@ -1277,6 +1757,9 @@ public class ExamSystemApp {
     // ==================== COMMON FUNCTIONS ====================
     private static void viewProfile() {
 
+        // currentUser is detached from earlier units of work, reload it for the lazy collections
+        currentUser = userService.findById(currentUser.getId()).orElse(currentUser);
+
         System.out.println("\n=== MY PROFILE ===");
         System.out.println("ID: " + currentUser.getId());
         System.out.println("Username: " + currentUser.getUsername());
@@ -1298,7 +1781,7 @@ public class ExamSystemApp {
             System.out.println("Student Code: " + student.getStudentCode());
             System.out.println("Field of Study: " + student.getFieldOfStudy());
             System.out.println("Entry Year: " + student.getEntryYear());
-            System.out.println("Enrolled Courses: " + student.getEnrolledCourses().size());
+            System.out.println("Enrolled Courses: " + student.getEnrollments().size());
 
         } else if (currentUser instanceof Teacher teacher) {
             System.out.println("\n=== TEACHER INFORMATION ===");
@@ -0,0 +1,69 @@
+package ir.oliateaching.main;
+
+import ir.oliateaching.utils.PasswordHasher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+// Sustained password verifications per second for a range of work factors. Twice as many clients as
+// hasher threads keep the queue busy, so the pool, not the clients, is the limit. No database is involved.
+// Usage: PasswordHashBenchmark [seconds per work factor] [work factors...]
+public class PasswordHashBenchmark {
+
+    public static void main(String[] args) throws InterruptedException {
+
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        List<Integer> workFactors = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            workFactors.add(Integer.parseInt(args[i]));
+        }
+        if (workFactors.isEmpty()) {
+            workFactors = List.of(12, 14, 16, 18);
+        }
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        // Lets the JIT compile the HMAC code before anything is measured
+        PasswordHasher warmup = new PasswordHasher(PasswordHasher.MIN_WORK_FACTOR, 1, 1);
+        String warmupHash = warmup.hash("warmup");
+        for (long end = System.nanoTime() + 3_000_000_000L; System.nanoTime() < end; ) {
+            warmup.verify("warmup", warmupHash);
+        }
+        warmup.shutdown();
+
+        System.out.println("Cores: " + cores + ", " + seconds + " s per work factor");
+        System.out.println(String.format("%-12s %-14s %-16s %-14s %s",
+                "Work factor", "Iterations", "Logins/s", "Per core/s", "Avg latency"));
+        for (int workFactor : workFactors) {
+            PasswordHasher hasher = new PasswordHasher(workFactor, cores, cores * 4);
+            String stored = hasher.hash("benchmark-password");
+
+            AtomicLong logins = new AtomicLong();
+            AtomicLong totalNanos = new AtomicLong();
+            long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+            List<Thread> clients = new ArrayList<>();
+            for (int i = 0; i < cores * 2; i++) {
+                clients.add(Thread.startVirtualThread(() -> {
+                    while (System.nanoTime() < deadline) {
+                        long start = System.nanoTime();
+                        if (!hasher.verify("benchmark-password", stored)) {
+                            throw new IllegalStateException("Verification failed");
+                        }
+                        totalNanos.addAndGet(System.nanoTime() - start);
+                        logins.incrementAndGet();
+                    }
+                }));
+            }
+            for (Thread client : clients) {
+                client.join();
+            }
+            hasher.shutdown();
+
+            double perSecond = logins.get() / (double) seconds;
+            System.out.println(String.format("%-12d %-14d %-16.1f %-14.1f %.1f ms",
+                    workFactor, 1L << workFactor, perSecond, perSecond / cores,
+                    logins.get() == 0 ? 0.0 : totalNanos.get() / (double) logins.get() / 1_000_000));
+        }
+    }
+}
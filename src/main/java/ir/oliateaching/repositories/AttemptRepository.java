@@ -0,0 +1,48 @@
+package ir.oliateaching.repositories;
+
+import ir.oliateaching.domains.AttemptAnswer;
+import ir.oliateaching.domains.ExamAttempt;
+import ir.oliateaching.dto.AnswerSubmissionDTO;
+import ir.oliateaching.enums.AttemptStatus;
+import ir.oliateaching.repositories.base.CrudRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+
+public interface AttemptRepository extends CrudRepository<ExamAttempt, Long> {
+
+    Optional<ExamAttempt> findByExamAndStudent(Long examId, Long studentId);
+
+    // Answer log of an attempt in the order it was written
+    List<AttemptAnswer> findAnswers(Long attemptId);
+
+    // Writes the answers of many submissions with JDBC batches and closes the final ones, in one transaction.
+    // Fails when an attempt is no longer in progress, nothing of the batch is written then.
+    void appendAnswers(List<AnswerSubmissionDTO> submissions);
+
+    // Multiple choice selections of the submitted attempts of an exam, ordered by attempt then write order
+    void forEachSubmittedSelection(Long examId, int fetchSize, SelectionHandler handler);
+
+    // attemptIds[0 .. count) get the matching scores and status, with JDBC batches
+    void updateScores(long[] attemptIds, double[] scores, int count, AttemptStatus status);
+
+    // Submitted attempts that never selected an option get a zero score
+    int scoreUnanswered(Long examId, AttemptStatus status);
+
+    // Latest essay answer per attempt and question of the submitted attempts of an exam
+    void forEachSubmittedEssay(Long examId, int fetchSize, EssayHandler handler);
+
+    // Suggested scores for answerIds[0 .. count), with JDBC batches
+    void updateAwardedScores(long[] answerIds, double[] scores, int count);
+
+    // Receives answer rows as primitives so a scan does not box per row. scored is true when the attempt
+    // already has a score from an earlier grading run.
+    interface SelectionHandler {
+        void accept(long attemptId, long questionId, int selectedOption, boolean scored);
+    }
+
+    interface EssayHandler {
+        void accept(long answerId, long attemptId, long questionId, String answerText);
+    }
+}
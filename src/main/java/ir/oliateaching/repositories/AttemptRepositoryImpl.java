@@ -0,0 +1,293 @@
+package ir.oliateaching.repositories;
+
+import ir.oliateaching.domains.AttemptAnswer;
+import ir.oliateaching.domains.AttemptAnswer_;
+import ir.oliateaching.domains.EssayQuestion;
+import ir.oliateaching.domains.Exam;
+import ir.oliateaching.domains.ExamAttempt;
+import ir.oliateaching.domains.ExamAttempt_;
+import ir.oliateaching.domains.Student;
+import ir.oliateaching.dto.AnswerDTO;
+import ir.oliateaching.dto.AnswerSubmissionDTO;
+import ir.oliateaching.enums.AttemptStatus;
+import ir.oliateaching.repositories.base.AbstractCrudRepository;
+import ir.oliateaching.utils.JpaUtil;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.Session;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+
+public class AttemptRepositoryImpl extends AbstractCrudRepository<ExamAttempt, Long>
+        implements AttemptRepository {
+
+    private static final int ANSWER_BATCH_SIZE = 1000;
+
+    private static final String INSERT_ANSWER_SQL =
+            "INSERT INTO " + AttemptAnswer.TABLE_NAME +
+                    " (" + AttemptAnswer.ATTEMPT_ID_COLUMN + ", " + AttemptAnswer.QUESTION_ID_COLUMN + ", " +
+                    AttemptAnswer.SELECTED_OPTION_COLUMN + ", " + AttemptAnswer.ANSWER_TEXT_COLUMN + ", " +
+                    AttemptAnswer.ANSWERED_AT_COLUMN + ") VALUES (?, ?, ?, ?, ?)";
+
+    private static final String SUBMITTED_SELECTIONS_SQL =
+            "SELECT a." + AttemptAnswer.ATTEMPT_ID_COLUMN + ", a." + AttemptAnswer.QUESTION_ID_COLUMN +
+                    ", a." + AttemptAnswer.SELECTED_OPTION_COLUMN + ", t." + ExamAttempt.SCORE_COLUMN +
+                    " FROM " + AttemptAnswer.TABLE_NAME + " a JOIN " + ExamAttempt.TABLE_NAME + " t ON t." +
+                    ExamAttempt.ID_COLUMN + " = a." + AttemptAnswer.ATTEMPT_ID_COLUMN +
+                    " WHERE t." + ExamAttempt.EXAM_ID_COLUMN + " = ? AND t." + ExamAttempt.STATUS_COLUMN + " = ?" +
+                    " AND a." + AttemptAnswer.SELECTED_OPTION_COLUMN + " IS NOT NULL" +
+                    " ORDER BY a." + AttemptAnswer.ATTEMPT_ID_COLUMN + ", a." + AttemptAnswer.ID_COLUMN;
+
+    private static final String SUBMITTED_ESSAYS_SQL =
+            "SELECT a." + AttemptAnswer.ID_COLUMN + ", a." + AttemptAnswer.ATTEMPT_ID_COLUMN +
+                    ", a." + AttemptAnswer.QUESTION_ID_COLUMN + ", a." + AttemptAnswer.ANSWER_TEXT_COLUMN +
+                    " FROM " + AttemptAnswer.TABLE_NAME + " a JOIN " + ExamAttempt.TABLE_NAME + " t ON t." +
+                    ExamAttempt.ID_COLUMN + " = a." + AttemptAnswer.ATTEMPT_ID_COLUMN +
+                    " JOIN " + EssayQuestion.TABLE_NAME + " e ON e." + EssayQuestion.PRIMARY_KEY_JOIN_COLUMN +
+                    " = a." + AttemptAnswer.QUESTION_ID_COLUMN +
+                    " WHERE t." + ExamAttempt.EXAM_ID_COLUMN + " = ? AND t." + ExamAttempt.STATUS_COLUMN + " = ?" +
+                    " AND a." + AttemptAnswer.ANSWER_TEXT_COLUMN + " IS NOT NULL" +
+                    " ORDER BY a." + AttemptAnswer.ATTEMPT_ID_COLUMN + ", a." + AttemptAnswer.QUESTION_ID_COLUMN +
+                    ", a." + AttemptAnswer.ID_COLUMN + " DESC";
+
+    private static final String UPDATE_AWARDED_SCORE_SQL =
+            "UPDATE " + AttemptAnswer.TABLE_NAME + " SET " + AttemptAnswer.AWARDED_SCORE_COLUMN + " = ? WHERE " +
+                    AttemptAnswer.ID_COLUMN + " = ?";
+
+    private static final String UPDATE_SCORE_SQL =
+            "UPDATE " + ExamAttempt.TABLE_NAME + " SET " + ExamAttempt.SCORE_COLUMN + " = ?, " +
+                    ExamAttempt.STATUS_COLUMN + " = ? WHERE " + ExamAttempt.ID_COLUMN + " = ?";
+
+    public AttemptRepositoryImpl(EntityManager entityManager) {super(entityManager);}
+
+
+    @Override
+    public Optional<ExamAttempt> findByExamAndStudent(Long examId, Long studentId) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ExamAttempt> query = cb.createQuery(ExamAttempt.class);
+        Root<ExamAttempt> attemptRoot = query.from(ExamAttempt.class);
+        query.where(cb.equal(attemptRoot.get(ExamAttempt_.exam).get(Exam.ID_COLUMN), examId),
+                cb.equal(attemptRoot.get(ExamAttempt_.student).get(Student.ID_COLUMN), studentId));
+        return Optional.ofNullable(entityManager.createQuery(query).getSingleResultOrNull());
+    }
+
+    @Override
+    public List<AttemptAnswer> findAnswers(Long attemptId) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<AttemptAnswer> query = cb.createQuery(AttemptAnswer.class);
+        Root<AttemptAnswer> answerRoot = query.from(AttemptAnswer.class);
+        query.where(cb.equal(answerRoot.get(AttemptAnswer_.attempt).get(ExamAttempt.ID_COLUMN), attemptId))
+                .orderBy(cb.asc(answerRoot.get(AttemptAnswer_.id)));
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    @Override
+    public void appendAnswers(List<AnswerSubmissionDTO> submissions) {
+        if (submissions.isEmpty()) {
+            return;
+        }
+        JpaUtil.executeInTransaction(entityManager, () -> {
+            // Locked, so no attempt can be closed between this check and the inserts
+            Set<Long> open = lockOpenAttempts(submissions);
+            Set<Long> finished = new HashSet<>();
+            for (AnswerSubmissionDTO submission : submissions) {
+                // Also answers queued behind a final submission of the same batch, the status is only
+                // updated after the inserts. The whole batch fails, the caller retries it one by one.
+                if (!open.contains(submission.getAttemptId()) || finished.contains(submission.getAttemptId())) {
+                    throw new IllegalStateException("Attempt " + submission.getAttemptId() + " is no longer in progress");
+                }
+                if (submission.isFinalSubmission()) {
+                    finished.add(submission.getAttemptId());
+                }
+            }
+            entityManager.unwrap(Session.class).doWork(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(INSERT_ANSWER_SQL)) {
+                    int pending = 0;
+                    for (AnswerSubmissionDTO submission : submissions) {
+                        for (AnswerDTO answer : submission.getAnswers()) {
+                            statement.setLong(1, submission.getAttemptId());
+                            statement.setLong(2, answer.getQuestionId());
+                            if (answer.getSelectedOption() == null) {
+                                statement.setNull(3, Types.INTEGER);
+                            } else {
+                                statement.setInt(3, answer.getSelectedOption());
+                            }
+                            statement.setString(4, answer.getAnswerText());
+                            statement.setObject(5, submission.getSubmittedAt());
+                            statement.addBatch();
+                            if (++pending == ANSWER_BATCH_SIZE) {
+                                statement.executeBatch();
+                                pending = 0;
+                            }
+                        }
+                    }
+                    if (pending > 0) {
+                        statement.executeBatch();
+                    }
+                }
+            });
+
+            if (!finished.isEmpty()) {
+                CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+                CriteriaUpdate<ExamAttempt> close = cb.createCriteriaUpdate(ExamAttempt.class);
+                Root<ExamAttempt> attemptRoot = close.from(ExamAttempt.class);
+                close.set(attemptRoot.get(ExamAttempt_.status), AttemptStatus.SUBMITTED)
+                        .set(attemptRoot.get(ExamAttempt_.submittedAt), LocalDateTime.now())
+                        .where(attemptRoot.get(ExamAttempt.ID_COLUMN).in(finished),
+                                cb.equal(attemptRoot.get(ExamAttempt_.status), AttemptStatus.IN_PROGRESS));
+                entityManager.createQuery(close).executeUpdate();
+            }
+            return null;
+        });
+    }
+
+    private Set<Long> lockOpenAttempts(List<AnswerSubmissionDTO> submissions) {
+        Set<Long> attemptIds = new HashSet<>();
+        for (AnswerSubmissionDTO submission : submissions) {
+            attemptIds.add(submission.getAttemptId());
+        }
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<ExamAttempt> attemptRoot = query.from(ExamAttempt.class);
+        query.select(attemptRoot.<Long>get(ExamAttempt.ID_COLUMN))
+                .where(attemptRoot.get(ExamAttempt.ID_COLUMN).in(attemptIds),
+                        cb.equal(attemptRoot.get(ExamAttempt_.status), AttemptStatus.IN_PROGRESS));
+        return new HashSet<>(entityManager.createQuery(query)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList());
+    }
+
+    @Override
+    public void forEachSubmittedSelection(Long examId, int fetchSize, SelectionHandler handler) {
+        JpaUtil.executeInTransaction(entityManager, () -> {
+            // Inside a transaction so the PostgreSQL driver streams with a cursor instead of buffering all rows
+            entityManager.unwrap(Session.class).doWork(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(SUBMITTED_SELECTIONS_SQL)) {
+                    statement.setFetchSize(fetchSize);
+                    statement.setLong(1, examId);
+                    statement.setString(2, AttemptStatus.SUBMITTED.name());
+                    try (ResultSet rows = statement.executeQuery()) {
+                        while (rows.next()) {
+                            rows.getDouble(4);
+                            boolean scored = !rows.wasNull();
+                            handler.accept(rows.getLong(1), rows.getLong(2), rows.getInt(3), scored);
+                        }
+                    }
+                }
+            });
+            return null;
+        });
+    }
+
+    @Override
+    public void updateScores(long[] attemptIds, double[] scores, int count, AttemptStatus status) {
+        if (count == 0) {
+            return;
+        }
+        JpaUtil.executeInTransaction(entityManager, () -> {
+            entityManager.unwrap(Session.class).doWork(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(UPDATE_SCORE_SQL)) {
+                    for (int i = 0; i < count; i++) {
+                        statement.setDouble(1, scores[i]);
+                        statement.setString(2, status.name());
+                        statement.setLong(3, attemptIds[i]);
+                        statement.addBatch();
+                        if ((i + 1) % ANSWER_BATCH_SIZE == 0) {
+                            statement.executeBatch();
+                        }
+                    }
+                    if (count % ANSWER_BATCH_SIZE != 0) {
+                        statement.executeBatch();
+                    }
+                }
+            });
+            return null;
+        });
+    }
+
+    @Override
+    public void forEachSubmittedEssay(Long examId, int fetchSize, EssayHandler handler) {
+        JpaUtil.executeInTransaction(entityManager, () -> {
+            entityManager.unwrap(Session.class).doWork(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(SUBMITTED_ESSAYS_SQL)) {
+                    statement.setFetchSize(fetchSize);
+                    statement.setLong(1, examId);
+                    statement.setString(2, AttemptStatus.SUBMITTED.name());
+                    try (ResultSet rows = statement.executeQuery()) {
+                        long lastAttempt = -1;
+                        long lastQuestion = -1;
+                        while (rows.next()) {
+                            long attemptId = rows.getLong(2);
+                            long questionId = rows.getLong(3);
+                            // Newest row first, older versions of the same answer are skipped
+                            if (attemptId == lastAttempt && questionId == lastQuestion) {
+                                continue;
+                            }
+                            lastAttempt = attemptId;
+                            lastQuestion = questionId;
+                            handler.accept(rows.getLong(1), attemptId, questionId, rows.getString(4));
+                        }
+                    }
+                }
+            });
+            return null;
+        });
+    }
+
+    @Override
+    public void updateAwardedScores(long[] answerIds, double[] scores, int count) {
+        if (count == 0) {
+            return;
+        }
+        JpaUtil.executeInTransaction(entityManager, () -> {
+            entityManager.unwrap(Session.class).doWork(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(UPDATE_AWARDED_SCORE_SQL)) {
+                    for (int i = 0; i < count; i++) {
+                        statement.setDouble(1, scores[i]);
+                        statement.setLong(2, answerIds[i]);
+                        statement.addBatch();
+                        if ((i + 1) % ANSWER_BATCH_SIZE == 0) {
+                            statement.executeBatch();
+                        }
+                    }
+                    if (count % ANSWER_BATCH_SIZE != 0) {
+                        statement.executeBatch();
+                    }
+                }
+            });
+            return null;
+        });
+    }
+
+    @Override
+    public int scoreUnanswered(Long examId, AttemptStatus status) {
+        return JpaUtil.executeInTransaction(entityManager, () -> {
+            CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+            CriteriaUpdate<ExamAttempt> update = cb.createCriteriaUpdate(ExamAttempt.class);
+            Root<ExamAttempt> attemptRoot = update.from(ExamAttempt.class);
+            update.set(attemptRoot.get(ExamAttempt_.score), 0.0)
+                    .set(attemptRoot.get(ExamAttempt_.status), status)
+                    .where(cb.equal(attemptRoot.get(ExamAttempt_.exam).get(Exam.ID_COLUMN), examId),
+                            cb.equal(attemptRoot.get(ExamAttempt_.status), AttemptStatus.SUBMITTED),
+                            cb.isNull(attemptRoot.get(ExamAttempt_.score)));
+            return entityManager.createQuery(update).executeUpdate();
+        });
+    }
+
+    @Override
+    protected Class<ExamAttempt> getEntityClass() {
+        return ExamAttempt.class;
+    }
+}
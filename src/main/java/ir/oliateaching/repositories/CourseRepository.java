@@ -1,34 +1,51 @@
 package ir.oliateaching.repositories;
 
 import ir.oliateaching.domains.Course;
+import ir.oliateaching.domains.Enrollment;
 import ir.oliateaching.domains.Student;
 import ir.oliateaching.domains.Teacher;
+import ir.oliateaching.dto.CourseCatalogDTO;
+import ir.oliateaching.enums.CourseFetch;
 import ir.oliateaching.enums.CourseStatus;
 import ir.oliateaching.repositories.base.CrudRepository;
+import ir.oliateaching.repositories.base.Slice;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 public interface CourseRepository extends CrudRepository<Course, Long> {
 
     Optional<Course> findByCourseCode(String courseCode);
     List<Course> findByTitle(String title);
     List<Course> findByStatus(CourseStatus status);
-    List<Course> findByTeacher(Long teacherId);
-    List<Course> findByStudent(Long studentId);
-    List<Course> findActiveCourses();
+    List<Course> findByTeacher(Long teacherId, CourseFetch... fetch);
+    List<Course> findByStudent(Long studentId, CourseFetch... fetch);
+    List<Course> findActiveCourses(CourseFetch... fetch);
+    Slice<Course> findSlice(Long afterId, int size, CourseFetch... fetch);
     List<Course> findUpcomingCourses();
+    List<CourseCatalogDTO> findActiveCatalog(Long studentId);
+    long countByStatus(CourseStatus status);
 
     // Filter and search
-    List<Course> searchCourses(String title, CourseStatus status, LocalDate startDate, LocalDate endDate);
+    List<Course> searchCourses(String title, CourseStatus status, LocalDate startDate, LocalDate endDate,
+                               CourseFetch... fetch);
 
     // Enrollment management
     void addStudentToCourse(Long courseId, Long studentId);
     void removeStudentFromCourse(Long courseId, Long studentId);
     List<Student> getCourseStudents(Long courseId);
+    // Enrollment rows of the course with their students, both land in the second-level cache
+    List<Enrollment> getCourseEnrollments(Long courseId);
     boolean isStudentEnrolled(Long courseId, Long studentId);
 
+    // Bulk enrollment
+    Map<Long, Set<Long>> findEnrolledStudentIds(Collection<Long> courseIds, Collection<Long> studentIds);
+    void addStudentsToCourses(Map<Long, ? extends Collection<Long>> studentIdsByCourse);
+
     // Teacher management
     void assignTeacherToCourse(Long courseId, Long teacherId);
     void removeTeacherFromCourse(Long courseId);
@@ -1,21 +1,44 @@
 package ir.oliateaching.repositories;
 
 import ir.oliateaching.domains.*;
+import ir.oliateaching.dto.CourseCatalogDTO;
+import ir.oliateaching.enums.CourseFetch;
 import ir.oliateaching.enums.CourseStatus;
 import ir.oliateaching.repositories.base.AbstractCrudRepository;
+import ir.oliateaching.repositories.base.Slice;
 import ir.oliateaching.utils.JpaUtil;
+import jakarta.persistence.EntityGraph;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.*;
+import org.hibernate.Session;
+import org.hibernate.jpa.SpecHints;
 
+import java.sql.PreparedStatement;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 public class CourseRepositoryImpl extends AbstractCrudRepository<Course, Long>
         implements CourseRepository{
 
+    private static final int ENROLLMENT_BATCH_SIZE = 500;
+
+    private static final String INSERT_ENROLLMENT_SQL =
+            "INSERT INTO " + Enrollment.TABLE_NAME +
+                    " (" + Course.COURSE_ID_COLUMN + ", " + Course.STUDENT_ID_COLUMN + ", " +
+                    Enrollment.ENROLLED_AT_COLUMN + ") VALUES (?, ?, ?)";
+
     public CourseRepositoryImpl(EntityManager entityManager) {
         super(entityManager);
     }
@@ -48,42 +71,179 @@ public class CourseRepositoryImpl extends AbstractCrudRepository<Course, Long>
     }
 
     @Override
-    public List<Course> findByTeacher(Long teacherId) {
+    public List<Course> findByTeacher(Long teacherId, CourseFetch... fetch) {
         CriteriaBuilder cb = entityManager.getCriteriaBuilder();
         CriteriaQuery<Course> query = cb.createQuery(getEntityClass());
         Root<Course> tRoot = query.from(getEntityClass());
         query.where(cb.equal(tRoot.get(Course_.teacher).get(Teacher.ID_COLUMN), teacherId));
-        return entityManager.createQuery(query).getResultList();
+        return getResultList(query, -1, fetch);
     }
 
     @Override
-    public List<Course> findByStudent(Long studentId) {
+    public List<Course> findByStudent(Long studentId, CourseFetch... fetch) {
         CriteriaBuilder cb = entityManager.getCriteriaBuilder();
         CriteriaQuery<Course> query = cb.createQuery(getEntityClass());
         Root<Course> tRoot = query.from(getEntityClass());
-        Join<Course, Student> studentJoin = tRoot.join(Course_.students);
-        query.where(cb.equal(studentJoin.get(Student_.id), studentId));
-        return entityManager.createQuery(query).getResultList();
+        Subquery<Long> enrolledCourses = query.subquery(Long.class);
+        Root<Enrollment> enrollmentRoot = enrolledCourses.from(Enrollment.class);
+        enrolledCourses.select(enrollmentRoot.get(Enrollment_.id).get(EnrollmentId_.courseId))
+                .where(cb.equal(enrollmentRoot.get(Enrollment_.id).get(EnrollmentId_.studentId), studentId));
+        query.where(tRoot.get(Course.ID_COLUMN).in(enrolledCourses));
+        return getResultList(query, -1, fetch);
     }
 
     @Override
-    public List<Course> findActiveCourses() {
+    public List<Course> findActiveCourses(CourseFetch... fetch) {
         CriteriaBuilder cb = entityManager.getCriteriaBuilder();
         CriteriaQuery<Course> query = cb.createQuery(Course.class);
         Root<Course> courseRoot = query.from(Course.class);
-        LocalDate today = LocalDate.now();
 
-        Predicate statusActive = cb.equal(courseRoot.get(Course_.status), CourseStatus.ACTIVE);
-        Predicate startDateCondition = cb.lessThanOrEqualTo(courseRoot.get(Course_.startDate), today);
-        Predicate endDateCondition = cb.greaterThanOrEqualTo(courseRoot.get(Course_.endDate), today);
-        Predicate finalCondition = cb.and(statusActive, startDateCondition, endDateCondition);
+        query.where(activeCondition(cb, courseRoot));
+        query.orderBy(cb.asc(courseRoot.get(Course_.startDate)));
+
+        return getResultList(query, -1, fetch);
+    }
+
+    @Override
+    public Slice<Course> findSlice(Long afterId, int size, CourseFetch... fetch) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Course> query = cb.createQuery(Course.class);
+        Root<Course> courseRoot = query.from(Course.class);
+        Path<Long> idPath = courseRoot.get(Course.ID_COLUMN);
+        if (afterId != null) {
+            query.where(cb.gt(idPath, afterId));
+        }
+        query.orderBy(cb.asc(idPath));
+        return Slice.of(getResultList(query, size + 1, fetch), size);
+    }
+
+    // Teacher name, roster size and the student's own enrollment in one statement
+    @Override
+    public List<CourseCatalogDTO> findActiveCatalog(Long studentId) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<CourseCatalogDTO> query = cb.createQuery(CourseCatalogDTO.class);
+        Root<Course> courseRoot = query.from(Course.class);
+        Join<Course, Teacher> teacherJoin = courseRoot.join(Course_.teacher, JoinType.LEFT);
+
+        Subquery<Long> enrolledCount = query.subquery(Long.class);
+        Root<Enrollment> counted = enrolledCount.from(Enrollment.class);
+        enrolledCount.select(cb.count(counted))
+                .where(cb.equal(counted.get(Enrollment_.course), courseRoot));
+
+        Subquery<Integer> ownEnrollment = query.subquery(Integer.class);
+        Root<Enrollment> own = ownEnrollment.from(Enrollment.class);
+        ownEnrollment.select(cb.literal(1))
+                .where(cb.and(
+                        cb.equal(own.get(Enrollment_.course), courseRoot),
+                        cb.equal(own.get(Enrollment_.id).get(EnrollmentId_.studentId), studentId)
+                ));
+        Expression<Boolean> enrolledByMe = cb.<Boolean>selectCase()
+                .when(cb.exists(ownEnrollment), true)
+                .otherwise(false);
 
-        query.where(finalCondition);
+        query.select(cb.construct(CourseCatalogDTO.class,
+                courseRoot.get(Course.ID_COLUMN),
+                courseRoot.get(Course_.courseCode),
+                courseRoot.get(Course_.title),
+                teacherJoin.get(Teacher_.lastName),
+                courseRoot.get(Course_.startDate),
+                courseRoot.get(Course_.endDate),
+                enrolledCount,
+                enrolledByMe
+        ));
+        query.where(activeCondition(cb, courseRoot));
         query.orderBy(cb.asc(courseRoot.get(Course_.startDate)));
 
         return entityManager.createQuery(query).getResultList();
     }
 
+    // Applies the fetch plan: teacher/roster through a load graph, roster sizes through one grouped count
+    private List<Course> getResultList(CriteriaQuery<Course> query, int maxResults, CourseFetch... fetch) {
+        Set<CourseFetch> plan = EnumSet.noneOf(CourseFetch.class);
+        plan.addAll(Arrays.asList(fetch));
+        // A collection fetch cannot be limited in SQL, so paged rosters are loaded by id afterwards
+        boolean rosterAfterwards = plan.contains(CourseFetch.WITH_ROSTER) && maxResults > 0;
+
+        TypedQuery<Course> typedQuery = entityManager.createQuery(query);
+        if (maxResults > 0) {
+            typedQuery.setMaxResults(maxResults);
+        }
+        EntityGraph<Course> graph = fetchGraph(plan.contains(CourseFetch.WITH_TEACHER),
+                plan.contains(CourseFetch.WITH_ROSTER) && !rosterAfterwards);
+        if (graph != null) {
+            typedQuery.setHint(SpecHints.HINT_SPEC_LOAD_GRAPH, graph);
+        }
+        List<Course> courses = typedQuery.getResultList();
+
+        if (rosterAfterwards && !courses.isEmpty()) {
+            loadRosters(courses);
+        }
+        if (plan.contains(CourseFetch.WITH_ROSTER_COUNT) && !courses.isEmpty()) {
+            loadRosterCounts(courses);
+        }
+        return courses;
+    }
+
+    private EntityGraph<Course> fetchGraph(boolean teacher, boolean roster) {
+        if (!teacher && !roster) {
+            return null;
+        }
+        EntityGraph<Course> graph = entityManager.createEntityGraph(Course.class);
+        if (teacher) {
+            graph.addAttributeNodes(Course_.TEACHER);
+        }
+        if (roster) {
+            graph.addElementSubgraph(Course_.enrollments).addAttributeNodes(Enrollment_.STUDENT);
+        }
+        return graph;
+    }
+
+    private void loadRosters(List<Course> courses) {
+        List<Long> ids = new ArrayList<>(courses.size());
+        for (Course course : courses) {
+            ids.add(course.getId());
+        }
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Course> query = cb.createQuery(Course.class);
+        Root<Course> courseRoot = query.from(Course.class);
+        query.where(courseRoot.get(Course.ID_COLUMN).in(ids));
+        // Same persistence context, so the instances already returned get their rosters initialized
+        entityManager.createQuery(query)
+                .setHint(SpecHints.HINT_SPEC_LOAD_GRAPH, fetchGraph(false, true))
+                .getResultList();
+    }
+
+    private void loadRosterCounts(List<Course> courses) {
+        Map<Long, Course> byId = new HashMap<>();
+        for (Course course : courses) {
+            byId.put(course.getId(), course);
+            course.setRosterCount(0L);
+        }
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Enrollment> enrollmentRoot = query.from(Enrollment.class);
+        Path<Long> courseId = enrollmentRoot.get(Enrollment_.id).get(EnrollmentId_.courseId);
+        Expression<Long> count = cb.count(enrollmentRoot);
+        query.select(cb.tuple(courseId, count))
+                .where(courseId.in(byId.keySet()))
+                .groupBy(courseId);
+
+        for (Tuple row : entityManager.createQuery(query).getResultList()) {
+            byId.get(row.get(courseId)).setRosterCount(row.get(count));
+        }
+    }
+
+    private Predicate activeCondition(CriteriaBuilder cb, Root<Course> courseRoot) {
+        LocalDate today = LocalDate.now();
+
+        Predicate statusActive = cb.equal(courseRoot.get(Course_.status), CourseStatus.ACTIVE);
+        Predicate startDateCondition = cb.lessThanOrEqualTo(courseRoot.get(Course_.startDate), today);
+        Predicate endDateCondition = cb.greaterThanOrEqualTo(courseRoot.get(Course_.endDate), today);
+        return cb.and(statusActive, startDateCondition, endDateCondition);
+    }
+
     @Override
     public List<Course> findUpcomingCourses() {
         CriteriaBuilder cb = entityManager.getCriteriaBuilder();
@@ -101,7 +261,18 @@ public class CourseRepositoryImpl extends AbstractCrudRepository<Course, Long>
     }
 
     @Override
-    public List<Course> searchCourses(String title, CourseStatus status, LocalDate startDate, LocalDate endDate) {
+    public long countByStatus(CourseStatus status) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Course> courseRoot = query.from(Course.class);
+        query.where(cb.equal(courseRoot.get(Course_.status), status))
+                .select(cb.count(courseRoot));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    @Override
+    public List<Course> searchCourses(String title, CourseStatus status, LocalDate startDate, LocalDate endDate,
+                                      CourseFetch... fetch) {
         CriteriaBuilder cb = entityManager.getCriteriaBuilder();
         CriteriaQuery<Course> query = cb.createQuery(Course.class);
         Root<Course> courseRoot = query.from(Course.class);
@@ -136,25 +307,14 @@ public class CourseRepositoryImpl extends AbstractCrudRepository<Course, Long>
             query.where(cb.and(predicates.toArray(new Predicate[0])));
         }
         query.orderBy(cb.desc(courseRoot.get(Course_.startDate)));
-        return entityManager.createQuery(query).getResultList();
+        return getResultList(query, -1, fetch);
     }
 
     @Override
     public void addStudentToCourse(Long courseId, Long studentId) {
         //EntityManager entityManager = ApplicationContext.getEntityManager();
         JpaUtil.executeInTransaction(entityManager, () -> {
-            CriteriaBuilder cb = entityManager.getCriteriaBuilder();
-            CriteriaQuery<Long> checkQuery = cb.createQuery(Long.class);
-            Root<Course> courseRoot = checkQuery.from(Course.class);
-            Join<Course, Student> studentJoin = courseRoot.join(Course_.students);
-            checkQuery.select(cb.count(courseRoot))
-                    .where(cb.and(
-                            cb.equal(courseRoot.get(Course_.id), courseId),
-                            cb.equal(studentJoin.get(Student_.id), studentId)
-                    ));
-            Long existingRelationCount = entityManager.createQuery(checkQuery).getSingleResult();
-
-            if (existingRelationCount > 0) {
+            if (entityManager.find(Enrollment.class, new EnrollmentId(courseId, studentId)) != null) {
                 System.out.println("Student " + studentId + " is already enrolled in course " + courseId);
                 return null;
             }
@@ -166,8 +326,7 @@ public class CourseRepositoryImpl extends AbstractCrudRepository<Course, Long>
             if (student == null) {
                 throw new EntityNotFoundException("Student not found with id: " + studentId);
             }
-            course.addStudent(student);
-            entityManager.merge(course);
+            entityManager.persist(course.addStudent(student));
             return null;
         });
     }
@@ -184,9 +343,10 @@ public class CourseRepositoryImpl extends AbstractCrudRepository<Course, Long>
             if (student == null) {
                 throw new EntityNotFoundException("Student not found with id: " + studentId);
             }
-            if (course.getStudents().contains(student)) {
-                course.removeStudent(student);
-                entityManager.merge(course);
+            Enrollment enrollment = entityManager.find(Enrollment.class, new EnrollmentId(courseId, studentId));
+            if (enrollment != null) {
+                course.removeStudent(enrollment);
+                entityManager.remove(enrollment);
             }
             return null;
         });
@@ -197,9 +357,9 @@ public class CourseRepositoryImpl extends AbstractCrudRepository<Course, Long>
         try {
             CriteriaBuilder cb = entityManager.getCriteriaBuilder();
             CriteriaQuery<Student> query = cb.createQuery(Student.class);
-            Root<Course> courseRoot = query.from(Course.class);
-            Join<Course, Student> studentJoin = courseRoot.join(Course_.students);
-            query.where(cb.equal(courseRoot.get(Course_.id), courseId));
+            Root<Enrollment> enrollmentRoot = query.from(Enrollment.class);
+            Join<Enrollment, Student> studentJoin = enrollmentRoot.join(Enrollment_.student);
+            query.where(cb.equal(enrollmentRoot.get(Enrollment_.id).get(EnrollmentId_.courseId), courseId));
             query.orderBy(
                     cb.asc(studentJoin.get(Student_.lastName)),
                     cb.asc(studentJoin.get(Student_.firstName))
@@ -212,20 +372,21 @@ public class CourseRepositoryImpl extends AbstractCrudRepository<Course, Long>
         }
     }
 
+    @Override
+    public List<Enrollment> getCourseEnrollments(Long courseId) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Enrollment> query = cb.createQuery(Enrollment.class);
+        Root<Enrollment> enrollmentRoot = query.from(Enrollment.class);
+        enrollmentRoot.fetch(Enrollment_.student);
+        query.where(cb.equal(enrollmentRoot.get(Enrollment_.id).get(EnrollmentId_.courseId), courseId));
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    // Served from the enrollments cache region once the roster is warm
     @Override
     public boolean isStudentEnrolled(Long courseId, Long studentId) {
         try {
-            CriteriaBuilder cb = entityManager.getCriteriaBuilder();
-            CriteriaQuery<Long> query = cb.createQuery(Long.class);
-            Root<Course> courseRoot = query.from(Course.class);
-            Join<Course, Student> studentJoin = courseRoot.join(Course_.students);
-            query.where(cb.and(
-                    cb.equal(courseRoot.get(Course_.id), courseId),
-                    cb.equal(studentJoin.get(Student_.id), studentId)
-            ));
-            query.select(cb.count(courseRoot));
-            Long count = entityManager.createQuery(query).getSingleResult();
-            return count > 0;
+            return entityManager.find(Enrollment.class, new EnrollmentId(courseId, studentId)) != null;
         } catch (Exception e) {
             System.err.println("Error checking enrollment for student " + studentId +
                     " in course " + courseId + ": " + e.getMessage());
@@ -233,6 +394,66 @@ public class CourseRepositoryImpl extends AbstractCrudRepository<Course, Long>
         }
     }
 
+    @Override
+    public Map<Long, Set<Long>> findEnrolledStudentIds(Collection<Long> courseIds, Collection<Long> studentIds) {
+        Map<Long, Set<Long>> result = new HashMap<>();
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        for (List<Long> courseChunk : chunks(courseIds)) {
+            for (List<Long> studentChunk : chunks(studentIds)) {
+                CriteriaQuery<Tuple> query = cb.createTupleQuery();
+                Root<Enrollment> enrollmentRoot = query.from(Enrollment.class);
+                Path<Long> courseId = enrollmentRoot.get(Enrollment_.id).get(EnrollmentId_.courseId);
+                Path<Long> studentId = enrollmentRoot.get(Enrollment_.id).get(EnrollmentId_.studentId);
+                query.select(cb.tuple(courseId, studentId))
+                        .where(cb.and(courseId.in(courseChunk), studentId.in(studentChunk)));
+
+                for (Tuple row : entityManager.createQuery(query).getResultList()) {
+                    result.computeIfAbsent(row.get(courseId), id -> new HashSet<>()).add(row.get(studentId));
+                }
+            }
+        }
+        return result;
+    }
+
+    // Writes the join rows directly in JDBC batches, the caller has already validated every pair
+    @Override
+    public void addStudentsToCourses(Map<Long, ? extends Collection<Long>> studentIdsByCourse) {
+        if (studentIdsByCourse.isEmpty()) {
+            return;
+        }
+        JpaUtil.executeInTransaction(entityManager, () -> {
+            LocalDate today = LocalDate.now();
+            entityManager.unwrap(Session.class).doWork(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(INSERT_ENROLLMENT_SQL)) {
+                    int pending = 0;
+                    for (Map.Entry<Long, ? extends Collection<Long>> entry : studentIdsByCourse.entrySet()) {
+                        for (Long studentId : entry.getValue()) {
+                            statement.setLong(1, entry.getKey());
+                            statement.setLong(2, studentId);
+                            statement.setObject(3, today);
+                            statement.addBatch();
+                            if (++pending == ENROLLMENT_BATCH_SIZE) {
+                                statement.executeBatch();
+                                pending = 0;
+                            }
+                        }
+                    }
+                    if (pending > 0) {
+                        statement.executeBatch();
+                    }
+                }
+            });
+
+            CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+            CriteriaUpdate<Course> touch = cb.createCriteriaUpdate(Course.class);
+            Root<Course> courseRoot = touch.from(Course.class);
+            touch.set(courseRoot.get(Course_.updatedAt), today)
+                    .where(courseRoot.get(Course.ID_COLUMN).in(studentIdsByCourse.keySet()));
+            entityManager.createQuery(touch).executeUpdate();
+            return null;
+        });
+    }
+
     @Override
     public void assignTeacherToCourse(Long courseId, Long teacherId) {
         JpaUtil.executeInTransaction(entityManager, () -> {
@@ -286,6 +507,13 @@ public class CourseRepositoryImpl extends AbstractCrudRepository<Course, Long>
         }
     }
 
+    // The enrollment rows go with ON DELETE CASCADE, which the second-level cache never sees
+    @Override
+    public void deleteById(Long id) {
+        super.deleteById(id);
+        entityManager.getEntityManagerFactory().getCache().evict(Enrollment.class);
+    }
+
     @Override
     protected Class<Course> getEntityClass() {
         return  Course.class;
@@ -3,11 +3,22 @@ package ir.oliateaching.repositories;
 import ir.oliateaching.domains.Exam;
 import ir.oliateaching.repositories.base.CrudRepository;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 
 
 public interface ExamRepository extends CrudRepository<Exam, Long> {
 
     List<Exam> findByTitleContaining(String title);
     List<Exam> findByCourseId(long courseId);
+
+    // Exams whose window overlaps [from, to], i.e. open now or opening by the end of the range
+    List<Exam> findOpenBetween(LocalDate from, LocalDate to);
+
+    // Exam with its questions, options and keywords fully loaded
+    Optional<Exam> findExamPaper(Long examId);
+
+    // Exam row locked until the transaction ends, serializes grading runs of the same exam
+    Optional<Exam> findByIdForUpdate(Long examId);
 }
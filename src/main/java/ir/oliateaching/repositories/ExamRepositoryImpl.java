@@ -0,0 +1,110 @@
+package ir.oliateaching.repositories;
+
+import ir.oliateaching.domains.Course;
+import ir.oliateaching.domains.EssayQuestion;
+import ir.oliateaching.domains.EssayQuestion_;
+import ir.oliateaching.domains.Exam;
+import ir.oliateaching.domains.Exam_;
+import ir.oliateaching.domains.MultipleChoiceQuestion;
+import ir.oliateaching.domains.MultipleChoiceQuestion_;
+import ir.oliateaching.domains.Question;
+import ir.oliateaching.domains.Question_;
+import ir.oliateaching.repositories.base.AbstractCrudRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Root;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+
+public class ExamRepositoryImpl extends AbstractCrudRepository<Exam, Long>
+        implements ExamRepository {
+
+    public ExamRepositoryImpl(EntityManager entityManager) {super(entityManager);}
+
+
+    @Override
+    public List<Exam> findByTitleContaining(String title) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Exam> query = cb.createQuery(Exam.class);
+        Root<Exam> examRoot = query.from(Exam.class);
+        query.where(cb.like(cb.lower(examRoot.get(Exam_.examTitle)), "%" + title.toLowerCase() + "%"))
+                .orderBy(cb.asc(examRoot.get(Exam_.startDate)));
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    @Override
+    public List<Exam> findByCourseId(long courseId) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Exam> query = cb.createQuery(Exam.class);
+        Root<Exam> examRoot = query.from(Exam.class);
+        query.where(cb.equal(examRoot.get(Exam_.course).get(Course.ID_COLUMN), courseId))
+                .orderBy(cb.asc(examRoot.get(Exam_.startDate)));
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    @Override
+    public List<Exam> findOpenBetween(LocalDate from, LocalDate to) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Exam> query = cb.createQuery(Exam.class);
+        Root<Exam> examRoot = query.from(Exam.class);
+        query.where(cb.lessThanOrEqualTo(examRoot.get(Exam_.startDate), to),
+                        cb.greaterThanOrEqualTo(examRoot.get(Exam_.endDate), from))
+                .orderBy(cb.asc(examRoot.get(Exam_.startDate)));
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    // Three queries whatever the paper size: exam with its questions (all subtype tables joined),
+    // then options of its multiple choice questions, then keywords of its essay questions.
+    // The last two return the same managed instances and only initialize their collections.
+    @Override
+    @SuppressWarnings("unchecked")
+    public Optional<Exam> findExamPaper(Long examId) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<Exam> examQuery = cb.createQuery(Exam.class);
+        Root<Exam> examRoot = examQuery.from(Exam.class);
+        Join<Exam, Question> questions = (Join<Exam, Question>) examRoot.fetch(Exam_.questions, JoinType.LEFT);
+        examQuery.where(cb.equal(examRoot.get(Exam.ID_COLUMN), examId))
+                .orderBy(cb.asc(questions.get(Question.ID_COLUMN)));
+        List<Exam> exams = entityManager.createQuery(examQuery).getResultList();
+        if (exams.isEmpty()) {
+            return Optional.empty();
+        }
+        Exam exam = exams.get(0);
+        if (exam.getQuestions().isEmpty()) {
+            return Optional.of(exam);
+        }
+
+        CriteriaQuery<MultipleChoiceQuestion> optionsQuery = cb.createQuery(MultipleChoiceQuestion.class);
+        Root<MultipleChoiceQuestion> mcqRoot = optionsQuery.from(MultipleChoiceQuestion.class);
+        mcqRoot.fetch(MultipleChoiceQuestion_.options, JoinType.LEFT);
+        optionsQuery.where(cb.equal(mcqRoot.get(Question_.exam).get(Exam.ID_COLUMN), examId));
+        entityManager.createQuery(optionsQuery).getResultList();
+
+        CriteriaQuery<EssayQuestion> keywordsQuery = cb.createQuery(EssayQuestion.class);
+        Root<EssayQuestion> essayRoot = keywordsQuery.from(EssayQuestion.class);
+        essayRoot.fetch(EssayQuestion_.expectedKeywords, JoinType.LEFT);
+        keywordsQuery.where(cb.equal(essayRoot.get(Question_.exam).get(Exam.ID_COLUMN), examId));
+        entityManager.createQuery(keywordsQuery).getResultList();
+
+        return Optional.of(exam);
+    }
+
+    // SELECT ... FOR UPDATE, holds off other writers of the exam row until the transaction ends
+    @Override
+    public Optional<Exam> findByIdForUpdate(Long examId) {
+        return Optional.ofNullable(entityManager.find(Exam.class, examId, LockModeType.PESSIMISTIC_WRITE));
+    }
+
+    @Override
+    protected Class<Exam> getEntityClass() {
+        return Exam.class;
+    }
+}
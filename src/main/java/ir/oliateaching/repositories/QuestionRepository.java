@@ -10,5 +10,10 @@ public interface QuestionRepository extends CrudRepository<Question, Long> {
 
     List<Question> findByExamId(long examId);
 
+    List<Long> findIdsByExamId(Long examId);
+
     List<Question> findByQuestionType(QuestionType questionType);
+
+    // Inserts new questions of one exam with plain JDBC batches and sets their generated ids
+    void insertBatch(Long examId, List<? extends Question> questions);
 }
@@ -0,0 +1,188 @@
+package ir.oliateaching.repositories;
+
+import ir.oliateaching.domains.EssayQuestion;
+import ir.oliateaching.domains.Exam;
+import ir.oliateaching.domains.Exam_;
+import ir.oliateaching.domains.MultipleChoiceQuestion;
+import ir.oliateaching.domains.Question;
+import ir.oliateaching.domains.Question_;
+import ir.oliateaching.domains.base.BaseDomain;
+import ir.oliateaching.enums.QuestionType;
+import ir.oliateaching.repositories.base.AbstractCrudRepository;
+import ir.oliateaching.utils.CompiledExamCache;
+import ir.oliateaching.utils.JpaUtil;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.Session;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+
+public class QuestionRepositoryImpl extends AbstractCrudRepository<Question, Long>
+        implements QuestionRepository {
+
+    private static final String INSERT_QUESTION_SQL =
+            "INSERT INTO " + Question.TABLE_NAME +
+                    " (" + BaseDomain.CREATE_DATE_COLUMN + ", " + BaseDomain.LAST_UPDATE_DATE_COLUMN + ", " +
+                    Question.QUESTION_TEXT_COLUMN + ", " + Question.QUESTION_SCORE_COLUMN + ", " +
+                    Question.QUESTION_TYPE_COLUMN + ", " + Question.EXAM_ID_COLUMN + ") VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_MULTIPLE_CHOICE_SQL =
+            "INSERT INTO " + MultipleChoiceQuestion.TABLE_NAME +
+                    " (" + MultipleChoiceQuestion.PRIMARY_KEY__JOIN_COLUMN + ", " +
+                    MultipleChoiceQuestion.CORRECT_ANSWER_COLUMN + ") VALUES (?, ?)";
+
+    private static final String INSERT_OPTION_SQL =
+            "INSERT INTO " + MultipleChoiceQuestion.QUESTION_OPTION +
+                    " (" + MultipleChoiceQuestion.PRIMARY_KEY__JOIN_COLUMN + ", " +
+                    MultipleChoiceQuestion.OPTION_ORDER_COLUMN + ", " +
+                    MultipleChoiceQuestion.OPTION_TEXT_COLUMN + ") VALUES (?, ?, ?)";
+
+    private static final String INSERT_ESSAY_SQL =
+            "INSERT INTO " + EssayQuestion.TABLE_NAME +
+                    " (" + EssayQuestion.PRIMARY_KEY_JOIN_COLUMN + ", " + EssayQuestion.MIN_WORDS_COLUMN + ", " +
+                    EssayQuestion.MAX_WORDS_COLUMN + ") VALUES (?, ?, ?)";
+
+    private static final String INSERT_KEYWORD_SQL =
+            "INSERT INTO " + EssayQuestion.QUESTION_KEYWORDS +
+                    " (" + EssayQuestion.PRIMARY_KEY_JOIN_COLUMN + ", " + EssayQuestion.KEYWORD + ") VALUES (?, ?)";
+
+    public QuestionRepositoryImpl(EntityManager entityManager) {super(entityManager);}
+
+
+    @Override
+    public List<Question> findByExamId(long examId) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Question> query = cb.createQuery(Question.class);
+        Root<Question> questionRoot = query.from(Question.class);
+        query.where(cb.equal(questionRoot.get(Question_.exam).get(Exam.ID_COLUMN), examId))
+                .orderBy(cb.asc(questionRoot.get(Question.ID_COLUMN)));
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    @Override
+    public List<Long> findIdsByExamId(Long examId) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Question> questionRoot = query.from(Question.class);
+        query.select(questionRoot.get(Question.ID_COLUMN))
+                .where(cb.equal(questionRoot.get(Question_.exam).get(Exam.ID_COLUMN), examId))
+                .orderBy(cb.asc(questionRoot.get(Question.ID_COLUMN)));
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    @Override
+    public List<Question> findByQuestionType(QuestionType questionType) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Question> query = cb.createQuery(Question.class);
+        Root<Question> questionRoot = query.from(Question.class);
+        query.where(cb.equal(questionRoot.get(Question_.type), questionType))
+                .orderBy(cb.asc(questionRoot.get(Question.ID_COLUMN)));
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    @Override
+    public void insertBatch(Long examId, List<? extends Question> questions) {
+        if (questions.isEmpty()) {
+            return;
+        }
+        JpaUtil.executeInTransaction(entityManager, () -> {
+            // Ids are IDENTITY columns, so the base rows go first and their keys drive the subtype rows
+            entityManager.unwrap(Session.class).doWork(connection -> {
+                OffsetDateTime now = OffsetDateTime.now();
+                try (PreparedStatement statement =
+                             connection.prepareStatement(INSERT_QUESTION_SQL, new String[]{BaseDomain.ID_COLUMN})) {
+                    for (Question question : questions) {
+                        statement.setObject(1, now);
+                        statement.setObject(2, now);
+                        statement.setString(3, question.getText());
+                        statement.setDouble(4, question.getScore());
+                        statement.setString(5, question.getType().name());
+                        statement.setLong(6, examId);
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                    try (ResultSet keys = statement.getGeneratedKeys()) {
+                        for (Question question : questions) {
+                            if (!keys.next()) {
+                                throw new SQLException("Missing generated key for imported question");
+                            }
+                            question.setId(keys.getLong(1));
+                        }
+                    }
+                }
+
+                try (PreparedStatement mcq = connection.prepareStatement(INSERT_MULTIPLE_CHOICE_SQL);
+                     PreparedStatement option = connection.prepareStatement(INSERT_OPTION_SQL);
+                     PreparedStatement essay = connection.prepareStatement(INSERT_ESSAY_SQL);
+                     PreparedStatement keyword = connection.prepareStatement(INSERT_KEYWORD_SQL)) {
+                    for (Question question : questions) {
+                        if (question instanceof MultipleChoiceQuestion multipleChoice) {
+                            mcq.setLong(1, multipleChoice.getId());
+                            mcq.setInt(2, multipleChoice.getCorrectAnswerIndex());
+                            mcq.addBatch();
+                            List<String> options = multipleChoice.getOptions();
+                            for (int i = 0; i < options.size(); i++) {
+                                option.setLong(1, multipleChoice.getId());
+                                option.setInt(2, i);
+                                option.setString(3, options.get(i));
+                                option.addBatch();
+                            }
+                        } else if (question instanceof EssayQuestion essayQuestion) {
+                            essay.setLong(1, essayQuestion.getId());
+                            setNullableInt(essay, 2, essayQuestion.getMinWords());
+                            setNullableInt(essay, 3, essayQuestion.getMaxWords());
+                            essay.addBatch();
+                            for (String expected : essayQuestion.getExpectedKeywords()) {
+                                keyword.setLong(1, essayQuestion.getId());
+                                keyword.setString(2, expected);
+                                keyword.addBatch();
+                            }
+                        }
+                    }
+                    mcq.executeBatch();
+                    option.executeBatch();
+                    essay.executeBatch();
+                    keyword.executeBatch();
+                }
+            });
+
+            CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+            double addedScore = questions.stream().mapToDouble(Question::getScore).sum();
+            CriteriaUpdate<Exam> touch = cb.createCriteriaUpdate(Exam.class);
+            Root<Exam> examRoot = touch.from(Exam.class);
+            touch.set(examRoot.get(Exam_.updatedAt), LocalDate.now())
+                    .set(examRoot.get(Exam_.paperVersion), cb.sum(examRoot.get(Exam_.paperVersion), 1L))
+                    .set(examRoot.get(Exam_.questionCount), cb.sum(examRoot.get(Exam_.questionCount), questions.size()))
+                    .set(examRoot.get(Exam_.totalScores), cb.sum(examRoot.get(Exam_.totalScores), addedScore))
+                    .set(examRoot.get(Exam_.version), cb.sum(examRoot.get(Exam_.version), 1L))
+                    .where(cb.equal(examRoot.get(Exam.ID_COLUMN), examId));
+            entityManager.createQuery(touch).executeUpdate();
+            // Plain JDBC and bulk updates bypass the entity listeners
+            CompiledExamCache.invalidateOnCompletion(examId);
+            return null;
+        });
+    }
+
+    private static void setNullableInt(PreparedStatement statement, int index, Integer value) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, Types.INTEGER);
+        } else {
+            statement.setInt(index, value);
+        }
+    }
+
+    @Override
+    protected Class<Question> getEntityClass() {
+        return Question.class;
+    }
+}
@@ -0,0 +1,19 @@
+package ir.oliateaching.repositories;
+
+import ir.oliateaching.domains.ScoreStatistics;
+import ir.oliateaching.repositories.base.CrudRepository;
+
+import java.util.List;
+
+
+public interface ScoreStatisticsRepository extends CrudRepository<ScoreStatistics, Long> {
+
+    // Exam row first, then one row per question
+    List<ScoreStatistics> findByExamId(Long examId);
+
+    // Same rows, locked until the transaction ends so concurrent graders merge one after the other
+    List<ScoreStatistics> findByExamIdForUpdate(Long examId);
+
+    // Exam level rows of every exam of the course
+    List<ScoreStatistics> findExamSummariesByCourseId(Long courseId);
+}
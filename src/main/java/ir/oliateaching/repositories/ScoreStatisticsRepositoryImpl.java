@@ -0,0 +1,65 @@
+package ir.oliateaching.repositories;
+
+import ir.oliateaching.domains.Course;
+import ir.oliateaching.domains.Exam;
+import ir.oliateaching.domains.Exam_;
+import ir.oliateaching.domains.Question;
+import ir.oliateaching.domains.ScoreStatistics;
+import ir.oliateaching.domains.ScoreStatistics_;
+import ir.oliateaching.repositories.base.AbstractCrudRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Root;
+
+import java.util.List;
+
+
+public class ScoreStatisticsRepositoryImpl extends AbstractCrudRepository<ScoreStatistics, Long>
+        implements ScoreStatisticsRepository {
+
+    public ScoreStatisticsRepositoryImpl(EntityManager entityManager) {super(entityManager);}
+
+
+    @Override
+    public List<ScoreStatistics> findByExamId(Long examId) {
+        return entityManager.createQuery(byExamQuery(examId)).getResultList();
+    }
+
+    @Override
+    public List<ScoreStatistics> findByExamIdForUpdate(Long examId) {
+        return entityManager.createQuery(byExamQuery(examId))
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+    }
+
+    private CriteriaQuery<ScoreStatistics> byExamQuery(Long examId) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ScoreStatistics> query = cb.createQuery(ScoreStatistics.class);
+        Root<ScoreStatistics> statisticsRoot = query.from(ScoreStatistics.class);
+        Join<ScoreStatistics, Question> questionJoin = statisticsRoot.join(ScoreStatistics_.question, JoinType.LEFT);
+        query.where(cb.equal(statisticsRoot.get(ScoreStatistics_.exam).get(Exam.ID_COLUMN), examId))
+                .orderBy(cb.asc(cb.coalesce(questionJoin.<Long>get(Question.ID_COLUMN), 0L)));
+        return query;
+    }
+
+    @Override
+    public List<ScoreStatistics> findExamSummariesByCourseId(Long courseId) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ScoreStatistics> query = cb.createQuery(ScoreStatistics.class);
+        Root<ScoreStatistics> statisticsRoot = query.from(ScoreStatistics.class);
+        Join<ScoreStatistics, Exam> examJoin = statisticsRoot.join(ScoreStatistics_.exam);
+        query.where(cb.equal(examJoin.get(Exam_.course).get(Course.ID_COLUMN), courseId),
+                        cb.isNull(statisticsRoot.get(ScoreStatistics_.question)))
+                .orderBy(cb.asc(examJoin.get(Exam_.startDate)));
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    @Override
+    protected Class<ScoreStatistics> getEntityClass() {
+        return ScoreStatistics.class;
+    }
+}
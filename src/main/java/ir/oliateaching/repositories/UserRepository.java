@@ -1,13 +1,19 @@
 package ir.oliateaching.repositories;
 
 import ir.oliateaching.domains.User;
+import ir.oliateaching.dto.UserCredentialDTO;
 import ir.oliateaching.enums.UserRole;
 import ir.oliateaching.enums.UserStatus;
+import ir.oliateaching.enums.UserUniqueField;
 import ir.oliateaching.repositories.base.CrudRepository;
 import jakarta.persistence.EntityManager;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiConsumer;
 
 
 public interface UserRepository <T extends User> extends CrudRepository<T,Long>{
@@ -15,10 +21,21 @@ public interface UserRepository <T extends User> extends CrudRepository<T,Long>{
     boolean existsByUsername(String username);
     boolean existsByEmail(String email);
     boolean existsByNationalId(String nationalId);
+    // Unique fields already taken by other users, checked in one query; null arguments are not checked
+    Set<UserUniqueField> findConflicts(String username, String email, String nationalId,
+                                       String studentCode, String teacherCode);
+    // Streams every non-null unique field value of every user, e.g. to build UserExistenceFilters
+    void forEachUniqueValue(int fetchSize, BiConsumer<UserUniqueField, String> consumer);
+    // Which of the given values are already taken, per field, in one query
+    Map<UserUniqueField, Set<String>> findExistingValues(Map<UserUniqueField, Set<String>> values);
+
+    // Inserts new students and teachers with JDBC batches in one transaction, bypassing the persistence context
+    void insertBatch(List<? extends User> users);
 
     // Specific queries
     Optional<T> findByUsername(String username);
     Optional<T> findByEmail(String email);
+    Optional<UserCredentialDTO> findCredentialsByUsername(String username);
     List<T> findByRole(UserRole role);
     List<T> findByStatus(UserStatus status);
     List<T> findByRoleAndStatus(UserRole role, UserStatus status);
@@ -29,6 +46,14 @@ public interface UserRepository <T extends User> extends CrudRepository<T,Long>{
     List<T> findApprovedUsers();
     List<T> findUsersByRole(UserRole role);
 
+    // Counts
+    long countByRole(UserRole role);
+    long countByStatus(UserStatus status);
+    Map<UserRole, Map<UserStatus, Long>> countGroupedByRoleAndStatus();
+
+    // Set-wise lookups
+    Map<Long, UserStatus> findStudentStatuses(Collection<Long> studentIds);
+
     // Specific role queries
     Optional<T> findByStudentCode(String studentCode);
     Optional<T> findByTeacherCode(String teacherCode);
@@ -1,57 +1,336 @@
 package ir.oliateaching.repositories;
 
+import ir.oliateaching.domains.Enrollment;
+import ir.oliateaching.domains.Student;
+import ir.oliateaching.domains.Student_;
+import ir.oliateaching.domains.Teacher;
+import ir.oliateaching.domains.Teacher_;
 import ir.oliateaching.domains.User;
 import ir.oliateaching.domains.User_;
+import ir.oliateaching.domains.base.BaseDomain;
+import ir.oliateaching.dto.UserCredentialDTO;
 import ir.oliateaching.enums.UserRole;
 import ir.oliateaching.enums.UserStatus;
+import ir.oliateaching.enums.UserUniqueField;
 import ir.oliateaching.repositories.base.AbstractCrudRepository;
+import ir.oliateaching.utils.JpaUtil;
+import ir.oliateaching.utils.UserExistenceFilters;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
 import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
 import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.hibernate.Session;
+import org.hibernate.jpa.HibernateHints;
 
 import java.lang.reflect.ParameterizedType;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
 
 
 public class UserRepositoryImpl extends AbstractCrudRepository<User, Long>
         implements UserRepository<User>{
 
+    private static final String INSERT_USER_SQL =
+            "INSERT INTO " + User.TABLE_NAME +
+                    " (" + BaseDomain.CREATE_DATE_COLUMN + ", " + BaseDomain.LAST_UPDATE_DATE_COLUMN + ", " +
+                    User.USERNAME_COLUMN + ", " + User.PASSWORD_COLUMN + ", " + User.FIRST_NAME_COLUMN + ", " +
+                    User.LAST_NAME_COLUMN + ", " + User.EMAIL_COLUMN + ", " + User.PHONE_NUMBER_COLUMN + ", " +
+                    User.NATIONAL_ID_COLUMN + ", " + User.ROLE_COLUMN + ", " + User.STATUS_COLUMN + ", " +
+                    User.REGISTRATION_DATE_COLUMN + ", " + User.APPROVED_DATE_COLUMN + ", " +
+                    User.APPROVED_BY_COLUMN + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_STUDENT_SQL =
+            "INSERT INTO " + Student.TABLE_NAME +
+                    " (" + Student.PRIMARY_KEY_JOIN_COLUMN + ", " + Student.STUDENT_CODE_COLUMN + ", " +
+                    Student.FIELD_OF_STUDY_COLUMN + ", " + Student.ENTRY_YEAR_COLUMN + ") VALUES (?, ?, ?, ?)";
+
+    private static final String INSERT_TEACHER_SQL =
+            "INSERT INTO " + Teacher.TABLE_NAME +
+                    " (" + Teacher.PRIMARY_KEY_JOIN_COLUMN + ", " + Teacher.TEACHER_CODE_COLUMN + ", " +
+                    Teacher.EXPERTISE_COLUMN + ", " + Teacher.DEGREE_COLUMN + ") VALUES (?, ?, ?, ?)";
+
     public UserRepositoryImpl(EntityManager entityManager) {super(entityManager);}
 
 
     @Override
     public boolean existsByUsername(String username) {
+        if (!UserExistenceFilters.mightExist(UserUniqueField.USERNAME, username)) {
+            return false;
+        }
         CriteriaBuilder cb = entityManager.getCriteriaBuilder();
         CriteriaQuery<Long> query = cb.createQuery(Long.class);
         Root<User> root = query.from(User.class);
         query.where(cb.equal(root.get(User_.USERNAME), username))
                 .select(cb.count(root));
-        return entityManager.createQuery(query).getSingleResult() > 0;
+        return checked(UserUniqueField.USERNAME, entityManager.createQuery(query).getSingleResult() > 0);
     }
 
     @Override
     public boolean existsByEmail(String email) {
+        if (!UserExistenceFilters.mightExist(UserUniqueField.EMAIL, email)) {
+            return false;
+        }
         CriteriaBuilder cb = entityManager.getCriteriaBuilder();
         CriteriaQuery<Long> query = cb.createQuery(Long.class);
         Root<User> root = query.from(User.class);
         query.where(cb.equal(root.get(User_.EMAIL), email))
                 .select(cb.count(root));
-        return entityManager.createQuery(query).getSingleResult() > 0;
+        return checked(UserUniqueField.EMAIL, entityManager.createQuery(query).getSingleResult() > 0);
     }
 
     @Override
     public boolean existsByNationalId(String nationalId) {
+        if (!UserExistenceFilters.mightExist(UserUniqueField.NATIONAL_ID, nationalId)) {
+            return false;
+        }
         CriteriaBuilder cb = entityManager.getCriteriaBuilder();
         CriteriaQuery<Long> query = cb.createQuery(Long.class);
         Root<User> root = query.from(User.class);
         query.where(cb.equal(root.get(User_.NATIONAL_ID), nationalId))
                 .select(cb.count(root));
-        return entityManager.createQuery(query).getSingleResult() > 0;
+        return checked(UserUniqueField.NATIONAL_ID, entityManager.createQuery(query).getSingleResult() > 0);
+    }
+
+    // Counts a "maybe" of the existence filter that the database answered with no
+    private static boolean checked(UserUniqueField field, boolean exists) {
+        if (!exists) {
+            UserExistenceFilters.recordFalsePositive(field);
+        }
+        return exists;
+    }
+
+    // Values the existence filter rules out are left out of the query, or passed on as null
+    private static String maybeExisting(UserUniqueField field, String value) {
+        return value != null && UserExistenceFilters.mightExist(field, value) ? value : null;
+    }
+
+    // Each field is unique, so at most one row matches per field
+    @Override
+    public Set<UserUniqueField> findConflicts(String username, String email, String nationalId,
+                                              String studentCode, String teacherCode) {
+        username = maybeExisting(UserUniqueField.USERNAME, username);
+        email = maybeExisting(UserUniqueField.EMAIL, email);
+        nationalId = maybeExisting(UserUniqueField.NATIONAL_ID, nationalId);
+        studentCode = maybeExisting(UserUniqueField.STUDENT_CODE, studentCode);
+        teacherCode = maybeExisting(UserUniqueField.TEACHER_CODE, teacherCode);
+        Set<UserUniqueField> conflicts = EnumSet.noneOf(UserUniqueField.class);
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<User> root = query.from(User.class);
+        Path<String> usernamePath = root.get(User_.username);
+        Path<String> emailPath = root.get(User_.email);
+        Path<String> nationalIdPath = root.get(User_.nationalId);
+        Path<String> studentCodePath = cb.treat(root, Student.class).get(Student_.studentCode);
+        Path<String> teacherCodePath = cb.treat(root, Teacher.class).get(Teacher_.teacherCode);
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (username != null) {
+            predicates.add(cb.equal(usernamePath, username));
+        }
+        if (email != null) {
+            predicates.add(cb.equal(emailPath, email));
+        }
+        if (nationalId != null) {
+            predicates.add(cb.equal(nationalIdPath, nationalId));
+        }
+        if (studentCode != null) {
+            predicates.add(cb.equal(studentCodePath, studentCode));
+        }
+        if (teacherCode != null) {
+            predicates.add(cb.equal(teacherCodePath, teacherCode));
+        }
+        if (predicates.isEmpty()) {
+            return conflicts;
+        }
+        query.select(cb.tuple(usernamePath, emailPath, nationalIdPath, studentCodePath, teacherCodePath))
+                .where(cb.or(predicates.toArray(new Predicate[0])));
+
+        for (Tuple row : entityManager.createQuery(query).setMaxResults(UserUniqueField.values().length).getResultList()) {
+            if (username != null && username.equals(row.get(usernamePath))) {
+                conflicts.add(UserUniqueField.USERNAME);
+            }
+            if (email != null && email.equals(row.get(emailPath))) {
+                conflicts.add(UserUniqueField.EMAIL);
+            }
+            if (nationalId != null && nationalId.equals(row.get(nationalIdPath))) {
+                conflicts.add(UserUniqueField.NATIONAL_ID);
+            }
+            if (studentCode != null && studentCode.equals(row.get(studentCodePath))) {
+                conflicts.add(UserUniqueField.STUDENT_CODE);
+            }
+            if (teacherCode != null && teacherCode.equals(row.get(teacherCodePath))) {
+                conflicts.add(UserUniqueField.TEACHER_CODE);
+            }
+        }
+        recordFalsePositives(conflicts, username, email, nationalId, studentCode, teacherCode);
+        return conflicts;
+    }
+
+    private static void recordFalsePositives(Set<UserUniqueField> conflicts, String username, String email,
+                                             String nationalId, String studentCode, String teacherCode) {
+        String[] values = {username, email, nationalId, studentCode, teacherCode};
+        UserUniqueField[] fields = {UserUniqueField.USERNAME, UserUniqueField.EMAIL, UserUniqueField.NATIONAL_ID,
+                UserUniqueField.STUDENT_CODE, UserUniqueField.TEACHER_CODE};
+        for (int i = 0; i < fields.length; i++) {
+            if (values[i] != null && !conflicts.contains(fields[i])) {
+                UserExistenceFilters.recordFalsePositive(fields[i]);
+            }
+        }
+    }
+
+    @Override
+    public Map<UserUniqueField, Set<String>> findExistingValues(Map<UserUniqueField, Set<String>> values) {
+        Map<UserUniqueField, Set<String>> existing = new EnumMap<>(UserUniqueField.class);
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<User> root = query.from(User.class);
+        Map<UserUniqueField, Path<String>> paths = new EnumMap<>(UserUniqueField.class);
+        paths.put(UserUniqueField.USERNAME, root.get(User_.username));
+        paths.put(UserUniqueField.EMAIL, root.get(User_.email));
+        paths.put(UserUniqueField.NATIONAL_ID, root.get(User_.nationalId));
+        paths.put(UserUniqueField.STUDENT_CODE, cb.treat(root, Student.class).get(Student_.studentCode));
+        paths.put(UserUniqueField.TEACHER_CODE, cb.treat(root, Teacher.class).get(Teacher_.teacherCode));
+
+        List<Predicate> predicates = new ArrayList<>();
+        for (Map.Entry<UserUniqueField, Set<String>> entry : values.entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                predicates.add(paths.get(entry.getKey()).in(entry.getValue()));
+            }
+        }
+        if (predicates.isEmpty()) {
+            return existing;
+        }
+        query.select(cb.tuple(new ArrayList<Selection<?>>(paths.values()))).where(cb.or(predicates.toArray(new Predicate[0])));
+
+        for (Tuple row : entityManager.createQuery(query).getResultList()) {
+            for (Map.Entry<UserUniqueField, Set<String>> entry : values.entrySet()) {
+                String value = row.get(paths.get(entry.getKey()));
+                if (value != null && entry.getValue().contains(value)) {
+                    existing.computeIfAbsent(entry.getKey(), field -> new HashSet<>()).add(value);
+                }
+            }
+        }
+        return existing;
+    }
+
+    @Override
+    public void insertBatch(List<? extends User> users) {
+        if (users.isEmpty()) {
+            return;
+        }
+        JpaUtil.executeInTransaction(entityManager, () -> {
+            // Ids are IDENTITY columns, so the users rows go first and their keys drive the subtype rows
+            entityManager.unwrap(Session.class).doWork(connection -> {
+                OffsetDateTime now = OffsetDateTime.now();
+                try (PreparedStatement statement =
+                             connection.prepareStatement(INSERT_USER_SQL, new String[]{BaseDomain.ID_COLUMN})) {
+                    for (User user : users) {
+                        statement.setObject(1, now);
+                        statement.setObject(2, now);
+                        statement.setString(3, user.getUsername());
+                        statement.setString(4, user.getPassword());
+                        statement.setString(5, user.getFirstName());
+                        statement.setString(6, user.getLastName());
+                        statement.setString(7, user.getEmail());
+                        statement.setString(8, user.getPhoneNumber());
+                        statement.setString(9, user.getNationalId());
+                        statement.setString(10, user.getRole().name());
+                        statement.setString(11, user.getStatus().name());
+                        statement.setObject(12, user.getRegistrationDate());
+                        statement.setObject(13, user.getApprovedDate());
+                        statement.setObject(14, user.getApprovedBy(), Types.BIGINT);
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                    try (ResultSet keys = statement.getGeneratedKeys()) {
+                        for (User user : users) {
+                            if (!keys.next()) {
+                                throw new SQLException("Missing generated key for imported user");
+                            }
+                            user.setId(keys.getLong(1));
+                        }
+                    }
+                }
+
+                try (PreparedStatement student = connection.prepareStatement(INSERT_STUDENT_SQL);
+                     PreparedStatement teacher = connection.prepareStatement(INSERT_TEACHER_SQL)) {
+                    for (User user : users) {
+                        if (user instanceof Student s) {
+                            student.setLong(1, s.getId());
+                            student.setString(2, s.getStudentCode());
+                            student.setString(3, s.getFieldOfStudy());
+                            student.setObject(4, s.getEntryYear(), Types.INTEGER);
+                            student.addBatch();
+                        } else if (user instanceof Teacher t) {
+                            teacher.setLong(1, t.getId());
+                            teacher.setString(2, t.getTeacherCode());
+                            teacher.setString(3, t.getExpertise());
+                            teacher.setString(4, t.getDegree());
+                            teacher.addBatch();
+                        } else {
+                            throw new IllegalArgumentException("Only students and teachers can be imported");
+                        }
+                    }
+                    student.executeBatch();
+                    teacher.executeBatch();
+                }
+            });
+            return null;
+        });
+    }
+
+    @Override
+    public void forEachUniqueValue(int fetchSize, BiConsumer<UserUniqueField, String> consumer) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<User> root = query.from(User.class);
+        Path<String> username = root.get(User_.username);
+        Path<String> email = root.get(User_.email);
+        Path<String> nationalId = root.get(User_.nationalId);
+        Path<String> studentCode = cb.treat(root, Student.class).get(Student_.studentCode);
+        Path<String> teacherCode = cb.treat(root, Teacher.class).get(Teacher_.teacherCode);
+        query.select(cb.tuple(username, email, nationalId, studentCode, teacherCode));
+
+        // Only a window of rows is held at a time, on PostgreSQL when run inside a transaction
+        try (Stream<Tuple> rows = entityManager.createQuery(query)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream()) {
+            rows.forEach(row -> {
+                consumer.accept(UserUniqueField.USERNAME, row.get(username));
+                consumer.accept(UserUniqueField.EMAIL, row.get(email));
+                if (row.get(nationalId) != null) {
+                    consumer.accept(UserUniqueField.NATIONAL_ID, row.get(nationalId));
+                }
+                if (row.get(studentCode) != null) {
+                    consumer.accept(UserUniqueField.STUDENT_CODE, row.get(studentCode));
+                }
+                if (row.get(teacherCode) != null) {
+                    consumer.accept(UserUniqueField.TEACHER_CODE, row.get(teacherCode));
+                }
+            });
+        }
     }
 
     @Override
@@ -69,6 +348,23 @@ public class UserRepositoryImpl extends AbstractCrudRepository<User, Long>
         }
     }
 
+    // Selects only columns of the users table, so none of the subclass tables is joined
+    @Override
+    public Optional<UserCredentialDTO> findCredentialsByUsername(String username) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<UserCredentialDTO> query = cb.createQuery(UserCredentialDTO.class);
+        Root<User> root = query.from(User.class);
+        query.select(cb.construct(UserCredentialDTO.class,
+                        root.get(User.ID_COLUMN),
+                        root.get(User_.password),
+                        root.get(User_.status),
+                        root.get(User_.role)))
+                .where(cb.equal(root.get(User_.username), username));
+
+        List<UserCredentialDTO> result = entityManager.createQuery(query).getResultList();
+        return result.isEmpty() ? Optional.empty() : Optional.of(result.get(0));
+    }
+
     @Override
     public Optional<User> findByEmail(String email) {
         CriteriaBuilder cb = entityManager.getCriteriaBuilder();
@@ -173,8 +469,67 @@ public class UserRepositoryImpl extends AbstractCrudRepository<User, Long>
         return findByRole(role);
     }
 
+    @Override
+    public long countByRole(UserRole role) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<User> root = query.from(User.class);
+        query.where(cb.equal(root.get(User_.ROLE), role))
+                .select(cb.count(root));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    @Override
+    public long countByStatus(UserStatus status) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<User> root = query.from(User.class);
+        query.where(cb.equal(root.get(User_.STATUS), status))
+                .select(cb.count(root));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    @Override
+    public Map<UserRole, Map<UserStatus, Long>> countGroupedByRoleAndStatus() {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<User> root = query.from(User.class);
+        Path<UserRole> role = root.get(User_.role);
+        Path<UserStatus> status = root.get(User_.status);
+        Expression<Long> count = cb.count(root);
+        query.select(cb.tuple(role, status, count)).groupBy(role, status);
+
+        Map<UserRole, Map<UserStatus, Long>> result = new EnumMap<>(UserRole.class);
+        for (Tuple row : entityManager.createQuery(query).getResultList()) {
+            result.computeIfAbsent(row.get(role), r -> new EnumMap<>(UserStatus.class))
+                    .put(row.get(status), row.get(count));
+        }
+        return result;
+    }
+
+    @Override
+    public Map<Long, UserStatus> findStudentStatuses(Collection<Long> studentIds) {
+        Map<Long, UserStatus> result = new HashMap<>();
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        for (List<Long> chunk : chunks(studentIds)) {
+            CriteriaQuery<Tuple> query = cb.createTupleQuery();
+            Root<Student> root = query.from(Student.class);
+            Path<Long> id = root.get(Student.ID_COLUMN);
+            Path<UserStatus> status = root.get(Student_.status);
+            query.select(cb.tuple(id, status)).where(id.in(chunk));
+
+            for (Tuple row : entityManager.createQuery(query).getResultList()) {
+                result.put(row.get(id), row.get(status));
+            }
+        }
+        return result;
+    }
+
     @Override
     public Optional<User> findByStudentCode(String studentCode) {
+        if (!UserExistenceFilters.mightExist(UserUniqueField.STUDENT_CODE, studentCode)) {
+            return Optional.empty();
+        }
         TypedQuery<User> query = entityManager.createQuery(
                 "SELECT u FROM User u WHERE TYPE(u) = Student " +
                         "AND u.studentCode = :studentCode",
@@ -192,6 +547,9 @@ public class UserRepositoryImpl extends AbstractCrudRepository<User, Long>
 
     @Override
     public Optional<User> findByTeacherCode(String teacherCode) {
+        if (!UserExistenceFilters.mightExist(UserUniqueField.TEACHER_CODE, teacherCode)) {
+            return Optional.empty();
+        }
         TypedQuery<User> query = entityManager.createQuery(
                 "SELECT u FROM User u WHERE TYPE(u) = Teacher " +
                         "AND u.teacherCode = :teacherCode",
@@ -207,6 +565,13 @@ public class UserRepositoryImpl extends AbstractCrudRepository<User, Long>
         }
     }
 
+    // The enrollment rows go with ON DELETE CASCADE, which the second-level cache never sees
+    @Override
+    public void deleteById(Long id) {
+        super.deleteById(id);
+        entityManager.getEntityManagerFactory().getCache().evict(Enrollment.class);
+    }
+
     @Override
     //@SuppressWarnings("unchecked")
     protected Class<User> getEntityClass() {
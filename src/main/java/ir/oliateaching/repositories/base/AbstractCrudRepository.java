@@ -7,22 +7,37 @@ import ir.oliateaching.utils.JpaUtil;
 import jakarta.persistence.EntityManager;
 import ir.oliateaching.domains.base.BaseDomain_;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.Tuple;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaDelete;
 import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
 import jakarta.persistence.criteria.Root;
+import jakarta.persistence.metamodel.SingularAttribute;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.HibernateHints;
 
 
 import java.lang.reflect.ParameterizedType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 
 public abstract class AbstractCrudRepository<T extends BaseDomain<ID>, ID extends Number>
         implements CrudRepository<T, ID>{
 
+    // Keeps IN lists far below PostgreSQL's limit of 32767 bind parameters per statement
+    protected static final int IN_LIST_CHUNK_SIZE = 1000;
+
     protected final EntityManager entityManager;
 
     protected AbstractCrudRepository(EntityManager entityManager) {
@@ -60,6 +75,8 @@ public abstract class AbstractCrudRepository<T extends BaseDomain<ID>, ID extend
                     return null;
                 }
         );
+        // Hibernate already drops the entry on remove, this also covers a cache filled by another session
+        entityManager.getEntityManagerFactory().getCache().evict(getEntityClass(), id);
     }
 
     @Override
@@ -74,6 +91,7 @@ public abstract class AbstractCrudRepository<T extends BaseDomain<ID>, ID extend
                     return null;
                 }
         );
+        entityManager.getEntityManagerFactory().getCache().evict(getEntityClass());
     }
 
     @Override
@@ -92,6 +110,109 @@ public abstract class AbstractCrudRepository<T extends BaseDomain<ID>, ID extend
         return entityManager.createQuery(query).getResultList();
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public Set<ID> findExistingIds(Collection<ID> ids) {
+        Set<ID> result = new HashSet<>();
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        for (List<ID> chunk : chunks(ids)) {
+            CriteriaQuery<Object> query = cb.createQuery();
+            Root<T> tRoot = query.from(getEntityClass());
+            Path<Object> idPath = tRoot.get(BaseDomain_.ID);
+            query.select(idPath).where(idPath.in(chunk));
+            for (Object id : entityManager.createQuery(query).getResultList()) {
+                result.add((ID) id);
+            }
+        }
+        return result;
+    }
+
+    // Consecutive slices of at most IN_LIST_CHUNK_SIZE values, none for an empty collection
+    protected static <E> List<List<E>> chunks(Collection<E> values) {
+        List<E> list = new ArrayList<>(values);
+        List<List<E>> chunks = new ArrayList<>();
+        for (int from = 0; from < list.size(); from += IN_LIST_CHUNK_SIZE) {
+            chunks.add(list.subList(from, Math.min(list.size(), from + IN_LIST_CHUNK_SIZE)));
+        }
+        return chunks;
+    }
+
+    @Override
+    public long count() {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<T> tRoot = query.from(getEntityClass());
+        query.select(cb.count(tRoot));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    // Groups without rows are missing from the result, callers use getOrDefault
+    @Override
+    public <G extends Enum<G>> Map<G, Long> countGroupedBy(SingularAttribute<? super T, G> attribute, Class<G> type) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<T> tRoot = query.from(getEntityClass());
+        Path<G> group = tRoot.get(attribute);
+        Expression<Long> count = cb.count(tRoot);
+        query.select(cb.tuple(group, count)).groupBy(group);
+
+        Map<G, Long> result = new EnumMap<>(type);
+        for (Tuple row : entityManager.createQuery(query).getResultList()) {
+            result.put(row.get(group), row.get(count));
+        }
+        return result;
+    }
+
+    @Override
+    public Slice<T> findSlice(ID afterId, int size) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = cb.createQuery(getEntityClass());
+        Root<T> tRoot = query.from(getEntityClass());
+        Path<Number> idPath = tRoot.get(BaseDomain_.ID);
+        if (afterId != null) {
+            query.where(cb.gt(idPath, afterId));
+        }
+        query.orderBy(cb.asc(idPath));
+        return Slice.of(entityManager.createQuery(query).setMaxResults(size + 1).getResultList(), size);
+    }
+
+    // The key column must be non-null, id breaks ties between equal keys
+    @Override
+    public <K extends Comparable<? super K>> Slice<T> findSlice(SingularAttribute<? super T, K> key,
+                                                                K afterKey, ID afterId, int size) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = cb.createQuery(getEntityClass());
+        Root<T> tRoot = query.from(getEntityClass());
+        Path<K> keyPath = tRoot.get(key);
+        Path<Number> idPath = tRoot.get(BaseDomain_.ID);
+        if (afterKey != null && afterId != null) {
+            query.where(cb.or(
+                    cb.greaterThan(keyPath, afterKey),
+                    cb.and(cb.equal(keyPath, afterKey), cb.gt(idPath, afterId))
+            ));
+        }
+        query.orderBy(cb.asc(keyPath), cb.asc(idPath));
+        return Slice.of(entityManager.createQuery(query).setMaxResults(size + 1).getResultList(), size);
+    }
+
+    // Must be closed by the caller (try-with-resources). PostgreSQL only uses a
+    // server side cursor inside a transaction, otherwise the driver buffers all rows.
+    @Override
+    public Stream<T> streamAll(int fetchSize) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = cb.createQuery(getEntityClass());
+        Root<T> tRoot = query.from(getEntityClass());
+        query.orderBy(cb.asc(tRoot.get(BaseDomain_.ID)));
+        return entityManager.createQuery(query)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream()
+                .map(entity -> {
+                    entityManager.detach(entity);
+                    return entity;
+                });
+    }
+
     @Override
     public EntityManager getEntityManager() {
         return entityManager;
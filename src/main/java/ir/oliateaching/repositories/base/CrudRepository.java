@@ -1,9 +1,14 @@
 package ir.oliateaching.repositories.base;
 
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.metamodel.SingularAttribute;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 public interface CrudRepository<T, ID> {
 
@@ -13,5 +18,19 @@ public interface CrudRepository<T, ID> {
     void deleteAll();
     Optional<T> findById(ID id);
     List<T> findAll();
+    Set<ID> findExistingIds(Collection<ID> ids);
+
+    // Aggregates, computed in the database
+    long count();
+    <G extends Enum<G>> Map<G, Long> countGroupedBy(SingularAttribute<? super T, G> attribute, Class<G> type);
+
+    // Keyset pagination: rows after the given cursor (null for the first slice)
+    Slice<T> findSlice(ID afterId, int size);
+    <K extends Comparable<? super K>> Slice<T> findSlice(SingularAttribute<? super T, K> key,
+                                                         K afterKey, ID afterId, int size);
+
+    // Scroll over the whole table, rows are detached as they are read
+    Stream<T> streamAll(int fetchSize);
+
     EntityManager getEntityManager();
 }
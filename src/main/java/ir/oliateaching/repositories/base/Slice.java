@@ -0,0 +1,44 @@
+package ir.oliateaching.repositories.base;
+
+import java.util.List;
+
+
+public class Slice<T> {
+
+    private final List<T> content;
+    private final boolean hasNext;
+
+    public Slice(List<T> content, boolean hasNext) {
+        this.content = content;
+        this.hasNext = hasNext;
+    }
+
+    // Builds a slice from a query that was asked for size + 1 rows
+    public static <T> Slice<T> of(List<T> rows, int size) {
+        if (rows.size() > size) {
+            return new Slice<>(List.copyOf(rows.subList(0, size)), true);
+        }
+        return new Slice<>(rows, false);
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public boolean hasNext() {
+        return hasNext;
+    }
+
+    public boolean isEmpty() {
+        return content.isEmpty();
+    }
+
+    public int size() {
+        return content.size();
+    }
+
+    // Last row of this slice, used as the keyset cursor for the next one
+    public T getLast() {
+        return content.isEmpty() ? null : content.get(content.size() - 1);
+    }
+}
@@ -2,13 +2,23 @@ package ir.oliateaching.services;
 
 
 import ir.oliateaching.domains.*;
+import ir.oliateaching.enums.CourseFetch;
+import ir.oliateaching.enums.CourseStatus;
 import ir.oliateaching.enums.UserRole;
 import ir.oliateaching.enums.UserStatus;
 import ir.oliateaching.repositories.UserRepository;
 import ir.oliateaching.repositories.UserRepositoryImpl;
+import ir.oliateaching.repositories.base.Slice;
+import ir.oliateaching.utils.ApplicationContext;
+import ir.oliateaching.utils.CacheMetrics;
+import ir.oliateaching.utils.CredentialCache;
+import ir.oliateaching.utils.LoginMetrics;
+import ir.oliateaching.utils.UserExistenceFilters;
 import jakarta.persistence.EntityManager;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 
 public class AdminService {
@@ -29,7 +39,7 @@ public class AdminService {
         if (admins.isEmpty()) {
             Admin admin = new Admin(
                     "admin",
-                    "admin123",
+                    ApplicationContext.getPasswordHasher().hash("admin123"),
                     "System",
                     "Administrator",
                     "admin@university.edu"
@@ -50,6 +60,10 @@ public class AdminService {
         return userService.getAllUsers();
     }
 
+    public Slice<User> getUsersPageForAdmin(Long afterId, int size) {
+        return userService.getUsersPage(afterId, size);
+    }
+
     public List<ir.oliateaching.domains.User> getPendingRegistrations() {
         return userService.getPendingUsers();
     }
@@ -77,6 +91,10 @@ public class AdminService {
         return courseService.getAllCourses();
     }
 
+    public Slice<Course> getCoursesPage(Long afterId, int size) {
+        return courseService.getCoursesPage(afterId, size, CourseFetch.WITH_TEACHER);
+    }
+
     public void assignTeacherToCourse(Long courseId, Long teacherId) {
         courseService.assignTeacherToCourse(courseId, teacherId);
     }
@@ -88,6 +106,10 @@ public class AdminService {
         courseService.enrollStudentInCourse(enrollmentDTO);
     }
 
+    public ir.oliateaching.dto.EnrollmentReportDTO enrollStudentsInCourse(Long courseId, Collection<Long> studentIds) {
+        return courseService.enrollStudents(courseId, studentIds);
+    }
+
     public List<Student> getCourseStudents(Long courseId) {
         return courseService.getCourseStudents(courseId);
     }
@@ -97,21 +119,59 @@ public class AdminService {
         return teacherOpt.orElse(null);
     }
 
+    // Two grouped count queries: users by (role, status) and courses by status
     public AdminStatistics getStatistics() {
         AdminStatistics stats = new AdminStatistics();
 
-        stats.totalUsers = userService.getTotalUsers();
-        stats.totalStudents = userService.getTotalUsersByRole(UserRole.STUDENT);
-        stats.totalTeachers = userService.getTotalUsersByRole(UserRole.TEACHER);
-        stats.totalAdmins = userService.getTotalUsersByRole(UserRole.ADMIN);
-        stats.pendingApprovals = userService.getPendingCount();
-        stats.totalCourses = courseService.getTotalCourses();
-        stats.activeCourses = courseService.getTotalCoursesByStatus(ir.oliateaching.enums.CourseStatus.ACTIVE);
-        stats.plannedCourses = courseService.getTotalCoursesByStatus(ir.oliateaching.enums.CourseStatus.PLANNED);
+        Map<UserRole, Map<UserStatus, Long>> userCounts = userService.getUserCountsByRoleAndStatus();
+        for (Map.Entry<UserRole, Map<UserStatus, Long>> byRole : userCounts.entrySet()) {
+            long roleTotal = 0;
+            for (Map.Entry<UserStatus, Long> byStatus : byRole.getValue().entrySet()) {
+                roleTotal += byStatus.getValue();
+                if (byStatus.getKey() == UserStatus.PENDING) {
+                    stats.pendingApprovals += byStatus.getValue();
+                }
+            }
+            stats.totalUsers += roleTotal;
+            switch (byRole.getKey()) {
+                case STUDENT:
+                    stats.totalStudents = roleTotal;
+                    break;
+                case TEACHER:
+                    stats.totalTeachers = roleTotal;
+                    break;
+                case ADMIN:
+                    stats.totalAdmins = roleTotal;
+                    break;
+            }
+        }
+
+        Map<CourseStatus, Long> courseCounts = courseService.getCourseCountsByStatus();
+        for (long count : courseCounts.values()) {
+            stats.totalCourses += count;
+        }
+        stats.activeCourses = courseCounts.getOrDefault(CourseStatus.ACTIVE, 0L);
+        stats.plannedCourses = courseCounts.getOrDefault(CourseStatus.PLANNED, 0L);
 
         return stats;
     }
 
+    public List<CacheMetrics.RegionStatistics> getCacheStatistics() {
+        return CacheMetrics.snapshot();
+    }
+
+    public String getCredentialCacheStatistics() {
+        return CredentialCache.statistics();
+    }
+
+    public List<String> getExistenceFilterStatistics() {
+        return UserExistenceFilters.statistics();
+    }
+
+    public String getLoginStatistics() {
+        return LoginMetrics.statistics() + "\n" + ApplicationContext.getPasswordHasher();
+    }
+
     public static class AdminStatistics {
         public long totalUsers;
         public long totalStudents;
@@ -0,0 +1,236 @@
+package ir.oliateaching.services;
+
+import ir.oliateaching.domains.AttemptAnswer;
+import ir.oliateaching.domains.Exam;
+import ir.oliateaching.domains.ExamAttempt;
+import ir.oliateaching.domains.Student;
+import ir.oliateaching.domains.User;
+import ir.oliateaching.dto.AnswerDTO;
+import ir.oliateaching.dto.AnswerSubmissionDTO;
+import ir.oliateaching.enums.AttemptStatus;
+import ir.oliateaching.repositories.AttemptRepository;
+import ir.oliateaching.repositories.AttemptRepositoryImpl;
+import ir.oliateaching.repositories.CourseRepository;
+import ir.oliateaching.repositories.CourseRepositoryImpl;
+import ir.oliateaching.repositories.ExamRepository;
+import ir.oliateaching.repositories.ExamRepositoryImpl;
+import ir.oliateaching.repositories.UserRepository;
+import ir.oliateaching.repositories.UserRepositoryImpl;
+import ir.oliateaching.utils.CompiledExam;
+import ir.oliateaching.utils.UnitOfWork;
+import ir.oliateaching.utils.WriteBehindBuffer;
+import jakarta.persistence.EntityManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+
+// Answers are checked against the exam's CompiledExam snapshot, queued in a write-behind buffer and written in batches by one
+// writer thread. The future returned for each submission completes once its batch is committed.
+public class AttemptService {
+
+    public static final int BUFFER_CAPACITY = 100_000;
+    public static final int MAX_SUBMISSIONS_PER_BATCH = 2_000;
+    private static final long LINGER_MILLIS = 5;
+    private static final long OFFER_TIMEOUT_MILLIS = 2_000;
+
+    private final AttemptRepository attemptRepository;
+    private final ExamRepository examRepository;
+    private final ExamService examService;
+    private final CourseRepository courseRepository;
+    private final UserRepository<User> userRepository;
+    private final WriteBehindBuffer<AnswerSubmissionDTO> answerBuffer;
+
+    // Attempts still accepting answers, so a submission needs no database round trip
+    private final Map<Long, OpenAttempt> openAttempts = new ConcurrentHashMap<>();
+    // Attempts with a final submission queued or written, kept until the exam window closes so a stale
+    // IN_PROGRESS row read before the commit cannot put them back into openAttempts
+    private final Map<Long, LocalDate> closingAttempts = new ConcurrentHashMap<>();
+
+    public AttemptService(EntityManager entityManager) {
+        this.attemptRepository = new AttemptRepositoryImpl(entityManager);
+        this.examRepository = new ExamRepositoryImpl(entityManager);
+        this.examService = new ExamService(entityManager);
+        this.courseRepository = new CourseRepositoryImpl(entityManager);
+        this.userRepository = new UserRepositoryImpl(entityManager);
+
+        // The writer thread opens its own unit of work per batch through the shared EntityManager
+        AttemptRepository writerRepository = new AttemptRepositoryImpl(UnitOfWork.sharedEntityManager());
+        this.answerBuffer = new WriteBehindBuffer<>("answer-writer", BUFFER_CAPACITY, MAX_SUBMISSIONS_PER_BATCH,
+                LINGER_MILLIS, OFFER_TIMEOUT_MILLIS,
+                submissions -> UnitOfWork.execute(() -> writerRepository.appendAnswers(submissions)));
+    }
+
+    public ExamAttempt startAttempt(Long examId, Long studentId) {
+        Exam exam = examRepository.findById(examId)
+                .orElseThrow(() -> new IllegalArgumentException("Exam not found with id: " + examId));
+        LocalDate today = LocalDate.now();
+        if (today.isBefore(exam.getStartDate()) || today.isAfter(exam.getEndDate())) {
+            throw new IllegalArgumentException("Exam is not open: " + exam.getExamTitle());
+        }
+        if (exam.getCourse() == null || !courseRepository.isStudentEnrolled(exam.getCourse().getId(), studentId)) {
+            throw new IllegalArgumentException("Student is not enrolled in the exam's course");
+        }
+
+        Optional<ExamAttempt> existing = attemptRepository.findByExamAndStudent(examId, studentId);
+        if (existing.isPresent()) {
+            ExamAttempt attempt = existing.get();
+            if (attempt.getStatus() != AttemptStatus.IN_PROGRESS) {
+                throw new IllegalArgumentException("Exam already submitted");
+            }
+            admit(attempt.getId(), new OpenAttempt(examId, exam.getEndDate()));
+            return attempt;
+        }
+
+        User user = userRepository.findById(studentId)
+                .orElseThrow(() -> new IllegalArgumentException("Student not found with id: " + studentId));
+        if (!(user instanceof Student student)) {
+            throw new IllegalArgumentException("User is not a student: " + studentId);
+        }
+        ExamAttempt attempt = attemptRepository.save(new ExamAttempt(exam, student));
+        openAttempts.put(attempt.getId(), new OpenAttempt(examId, exam.getEndDate()));
+        return attempt;
+    }
+
+    // Queues the answers, the future completes when they are committed.
+    // After a final submission the attempt accepts no more answers.
+    public CompletableFuture<Void> submitAnswers(Long attemptId, List<AnswerDTO> answers, boolean finalSubmission) {
+        OpenAttempt open = findOpenAttempt(attemptId);
+        if (LocalDate.now().isAfter(open.endDate)) {
+            throw new IllegalArgumentException("Exam window has closed");
+        }
+        CompiledExam exam = examService.getCompiledExam(open.examId);
+        for (AnswerDTO answer : answers) {
+            int index = exam.indexOf(answer.getQuestionId());
+            if (index < 0) {
+                throw new IllegalArgumentException("Question " + answer.getQuestionId() + " is not part of this exam");
+            }
+            if (answer.getSelectedOption() != null && !exam.isValidChoice(index, answer.getSelectedOption())) {
+                throw new IllegalArgumentException("Invalid option for question " + answer.getQuestionId());
+            }
+        }
+        if (finalSubmission) {
+            // Marked before it leaves openAttempts, so no concurrent lookup can admit it again
+            if (closingAttempts.putIfAbsent(attemptId, open.endDate) != null) {
+                throw new IllegalArgumentException("Exam already submitted");
+            }
+            openAttempts.remove(attemptId, open);
+        }
+
+        CompletableFuture<Void> durable = answerBuffer.submit(new AnswerSubmissionDTO(attemptId, answers, finalSubmission));
+        if (finalSubmission) {
+            // A lost final submission must not lock the student out
+            durable.whenComplete((ignored, error) -> {
+                if (error != null) {
+                    closingAttempts.remove(attemptId);
+                    openAttempts.putIfAbsent(attemptId, open);
+                }
+            });
+        }
+        return durable;
+    }
+
+    // Final submission of attempts whose time is up, queued behind the answers already waiting
+    public CompletableFuture<Void> autoSubmit(List<Long> attemptIds) {
+        LocalDate today = LocalDate.now();
+        closingAttempts.values().removeIf(endDate -> today.isAfter(endDate));
+
+        List<CompletableFuture<Void>> submitted = new ArrayList<>(attemptIds.size());
+        for (Long attemptId : attemptIds) {
+            OpenAttempt open = openAttempts.get(attemptId);
+            if (open != null && closingAttempts.putIfAbsent(attemptId, open.endDate) == null) {
+                openAttempts.remove(attemptId, open);
+                CompletableFuture<Void> durable = answerBuffer.submit(new AnswerSubmissionDTO(attemptId, List.of(), true));
+                durable.whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        closingAttempts.remove(attemptId);
+                    }
+                });
+                submitted.add(durable);
+            }
+        }
+        return CompletableFuture.allOf(submitted.toArray(new CompletableFuture<?>[0]));
+    }
+
+    public void submitAnswersAndWait(Long attemptId, List<AnswerDTO> answers, boolean finalSubmission,
+                                     long timeoutSeconds) {
+        await(submitAnswers(attemptId, answers, finalSubmission), timeoutSeconds);
+    }
+
+    // Waits for a submission to be committed
+    public static void await(CompletableFuture<Void> durable, long timeoutSeconds) {
+        try {
+            durable.get(timeoutSeconds, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Answers could not be saved: " + e.getCause().getMessage(), e.getCause());
+        } catch (TimeoutException e) {
+            throw new RuntimeException("Answers were not confirmed within " + timeoutSeconds + " seconds", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while saving answers", e);
+        }
+    }
+
+    public Optional<ExamAttempt> findAttempt(Long examId, Long studentId) {
+        return attemptRepository.findByExamAndStudent(examId, studentId);
+    }
+
+    public List<AttemptAnswer> getAnswers(Long attemptId) {
+        return attemptRepository.findAnswers(attemptId);
+    }
+
+    public String getBufferStatistics() {
+        return answerBuffer.toString();
+    }
+
+    // Writes everything still queued, call before the EntityManagerFactory is closed
+    public void shutdown() {
+        answerBuffer.close();
+    }
+
+    private OpenAttempt findOpenAttempt(Long attemptId) {
+        OpenAttempt open = openAttempts.get(attemptId);
+        if (open != null) {
+            return open;
+        }
+        ExamAttempt attempt = attemptRepository.findById(attemptId)
+                .orElseThrow(() -> new IllegalArgumentException("Attempt not found with id: " + attemptId));
+        if (attempt.getStatus() != AttemptStatus.IN_PROGRESS) {
+            throw new IllegalArgumentException("Exam already submitted");
+        }
+        Exam exam = attempt.getExam();
+        return admit(attemptId, new OpenAttempt(exam.getId(), exam.getEndDate()));
+    }
+
+    // The row may still read IN_PROGRESS while a final submission is waiting to be written
+    private OpenAttempt admit(Long attemptId, OpenAttempt candidate) {
+        if (closingAttempts.containsKey(attemptId)) {
+            throw new IllegalArgumentException("Exam already submitted");
+        }
+        OpenAttempt open = openAttempts.computeIfAbsent(attemptId, id -> candidate);
+        // Checked again after the put, a final submission may have started in between
+        if (closingAttempts.containsKey(attemptId)) {
+            openAttempts.remove(attemptId, open);
+            throw new IllegalArgumentException("Exam already submitted");
+        }
+        return open;
+    }
+
+    private static final class OpenAttempt {
+        private final Long examId;
+        private final LocalDate endDate;
+
+        private OpenAttempt(Long examId, LocalDate endDate) {
+            this.examId = examId;
+            this.endDate = endDate;
+        }
+    }
+}
@@ -1,21 +1,35 @@
 package ir.oliateaching.services;
 
 import ir.oliateaching.domains.User;
+import ir.oliateaching.dto.CourseCatalogDTO;
 import ir.oliateaching.dto.CourseDTO;
 import ir.oliateaching.dto.CourseEnrollmentDTO;
+import ir.oliateaching.dto.EnrollmentReportDTO;
+import ir.oliateaching.enums.EnrollmentOutcome;
+import ir.oliateaching.enums.CourseFetch;
 import ir.oliateaching.enums.CourseStatus;
+import ir.oliateaching.enums.UserStatus;
 import ir.oliateaching.domains.Course;
+import ir.oliateaching.domains.Course_;
 import ir.oliateaching.domains.Student;
 import ir.oliateaching.domains.Teacher;
 import ir.oliateaching.repositories.CourseRepository;
 import ir.oliateaching.repositories.CourseRepositoryImpl;
 import ir.oliateaching.repositories.UserRepository;
 import ir.oliateaching.repositories.UserRepositoryImpl;
+import ir.oliateaching.repositories.base.Slice;
+import ir.oliateaching.utils.JpaUtil;
 import ir.oliateaching.validator.DTOValidator;
 import jakarta.persistence.EntityManager;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 
 public class CourseService {
@@ -134,6 +148,50 @@ public class CourseService {
         }
     }
 
+    public EnrollmentReportDTO enrollStudents(Long courseId, Collection<Long> studentIds) {
+        return enrollStudents(Map.of(courseId, studentIds));
+    }
+
+    // Validates courses, approval status and existing enrollments with one query each,
+    // then writes all new join rows in JDBC batches
+    public EnrollmentReportDTO enrollStudents(Map<Long, ? extends Collection<Long>> studentIdsByCourse) {
+        return JpaUtil.executeInTransaction(courseRepository.getEntityManager(), () -> {
+            Set<Long> allStudentIds = new LinkedHashSet<>();
+            studentIdsByCourse.values().forEach(allStudentIds::addAll);
+
+            Set<Long> existingCourses = courseRepository.findExistingIds(studentIdsByCourse.keySet());
+            Map<Long, UserStatus> studentStatuses = userRepository.findStudentStatuses(allStudentIds);
+            Map<Long, Set<Long>> enrolled = courseRepository.findEnrolledStudentIds(existingCourses, allStudentIds);
+
+            EnrollmentReportDTO report = new EnrollmentReportDTO();
+            Map<Long, List<Long>> toInsert = new LinkedHashMap<>();
+            for (Map.Entry<Long, ? extends Collection<Long>> entry : studentIdsByCourse.entrySet()) {
+                Long courseId = entry.getKey();
+                Set<Long> courseEnrolled = enrolled.getOrDefault(courseId, Set.of());
+                for (Long studentId : new LinkedHashSet<>(entry.getValue())) {
+                    EnrollmentOutcome outcome;
+                    UserStatus status = studentStatuses.get(studentId);
+                    if (!existingCourses.contains(courseId)) {
+                        outcome = EnrollmentOutcome.COURSE_NOT_FOUND;
+                    } else if (status == null) {
+                        outcome = EnrollmentOutcome.STUDENT_NOT_FOUND;
+                    } else if (status != UserStatus.APPROVED) {
+                        outcome = EnrollmentOutcome.STUDENT_NOT_APPROVED;
+                    } else if (courseEnrolled.contains(studentId)) {
+                        outcome = EnrollmentOutcome.ALREADY_ENROLLED;
+                    } else {
+                        outcome = EnrollmentOutcome.ENROLLED;
+                        toInsert.computeIfAbsent(courseId, id -> new ArrayList<>()).add(studentId);
+                    }
+                    report.record(courseId, studentId, outcome);
+                }
+            }
+
+            courseRepository.addStudentsToCourses(toInsert);
+            return report;
+        });
+    }
+
     public void removeStudentFromCourse(Long courseId, Long studentId) {
         courseRepository.removeStudentFromCourse(courseId, studentId);
     }
@@ -150,29 +208,37 @@ public class CourseService {
         return courseRepository.findAll();
     }
 
+    public Slice<Course> getCoursesPage(Long afterId, int size, CourseFetch... fetch) {
+        return courseRepository.findSlice(afterId, size, fetch);
+    }
+
     public List<Course> getCoursesByStatus(CourseStatus status) {
         return courseRepository.findByStatus(status);
     }
 
-    public List<Course> getActiveCourses() {
-        return courseRepository.findActiveCourses();
+    public List<Course> getActiveCourses(CourseFetch... fetch) {
+        return courseRepository.findActiveCourses(fetch);
+    }
+
+    public List<CourseCatalogDTO> getActiveCourseCatalog(Long studentId) {
+        return courseRepository.findActiveCatalog(studentId);
     }
 
     public List<Course> getUpcomingCourses() {
         return courseRepository.findUpcomingCourses();
     }
 
-    public List<Course> getCoursesByTeacher(Long teacherId) {
-        return courseRepository.findByTeacher(teacherId);
+    public List<Course> getCoursesByTeacher(Long teacherId, CourseFetch... fetch) {
+        return courseRepository.findByTeacher(teacherId, fetch);
     }
 
-    public List<Course> getCoursesByStudent(Long studentId) {
-        return courseRepository.findByStudent(studentId);
+    public List<Course> getCoursesByStudent(Long studentId, CourseFetch... fetch) {
+        return courseRepository.findByStudent(studentId, fetch);
     }
 
     public List<Course> searchCourses(String title, CourseStatus status,
-                                      LocalDate startDate, LocalDate endDate) {
-        return courseRepository.searchCourses(title, status, startDate, endDate);
+                                      LocalDate startDate, LocalDate endDate, CourseFetch... fetch) {
+        return courseRepository.searchCourses(title, status, startDate, endDate, fetch);
     }
 
     public List<Student> getCourseStudents(Long courseId) {
@@ -188,11 +254,15 @@ public class CourseService {
     }
 
     public long getTotalCourses() {
-        return courseRepository.findAll().size();
+        return courseRepository.count();
     }
 
     public long getTotalCoursesByStatus(CourseStatus status) {
-        return courseRepository.findByStatus(status).size();
+        return courseRepository.countByStatus(status);
+    }
+
+    public Map<CourseStatus, Long> getCourseCountsByStatus() {
+        return courseRepository.countGroupedBy(Course_.status, CourseStatus.class);
     }
 
     private Optional<Teacher> findTeacherById(Long teacherId) {
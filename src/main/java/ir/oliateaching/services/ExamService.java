@@ -0,0 +1,64 @@
+package ir.oliateaching.services;
+
+import ir.oliateaching.domains.Exam;
+import ir.oliateaching.domains.Question;
+import ir.oliateaching.repositories.ExamRepository;
+import ir.oliateaching.repositories.ExamRepositoryImpl;
+import ir.oliateaching.repositories.QuestionRepository;
+import ir.oliateaching.repositories.QuestionRepositoryImpl;
+import ir.oliateaching.utils.CompiledExam;
+import ir.oliateaching.utils.CompiledExamCache;
+import jakarta.persistence.EntityManager;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Optional;
+
+
+public class ExamService {
+
+    private final ExamRepository examRepository;
+    private final QuestionRepository questionRepository;
+
+    public ExamService(EntityManager entityManager) {
+        this.examRepository = new ExamRepositoryImpl(entityManager);
+        this.questionRepository = new QuestionRepositoryImpl(entityManager);
+    }
+
+    public Exam saveExam(Exam exam) {
+        return examRepository.save(exam);
+    }
+
+    public Optional<Exam> findById(Long examId) {
+        return examRepository.findById(examId);
+    }
+
+    // Everything needed to show or grade the exam, loaded with a fixed number of queries
+    public Exam getExamPaper(Long examId) {
+        return examRepository.findExamPaper(examId)
+                .orElseThrow(() -> new IllegalArgumentException("Exam not found with id: " + examId));
+    }
+
+    // Immutable validation and grading view of the exam, compiled once and cached until it changes
+    public CompiledExam getCompiledExam(Long examId) {
+        return CompiledExamCache.get(examId, id -> CompiledExam.compile(getExamPaper(id)));
+    }
+
+    // Streams the cached, pre-rendered paper of the current exam version
+    public void writeExamPaper(Long examId, OutputStream out) throws IOException {
+        getCompiledExam(examId).writePaper(out);
+    }
+
+    public List<Exam> getExamsByCourse(Long courseId) {
+        return examRepository.findByCourseId(courseId);
+    }
+
+    public List<Exam> searchExams(String title) {
+        return examRepository.findByTitleContaining(title);
+    }
+
+    public List<Question> getQuestions(Long examId) {
+        return questionRepository.findByExamId(examId);
+    }
+}
@@ -0,0 +1,245 @@
+package ir.oliateaching.services;
+
+import ir.oliateaching.domains.Exam;
+import ir.oliateaching.domains.ExamAttempt;
+import ir.oliateaching.dto.AnswerDTO;
+import ir.oliateaching.enums.SessionStatus;
+import ir.oliateaching.utils.TimingWheel;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+
+// Live exam sessions: one timing wheel entry per session instead of a thread or scheduled task.
+// A single clock thread advances the wheel every tick and hands the expired sessions, in batches,
+// to virtual threads that submit them.
+public class ExamSessionManager {
+
+    public static final long TICK_MILLIS = 100;
+    public static final int MAX_EXPIRED_PER_BATCH = 1_000;
+    // How long an expired attempt is remembered, its auto-submit has long been written by then
+    private static final long EXPIRED_RETENTION_MILLIS = 60 * 60_000L;
+
+    private final TimingWheel<ExamSession> wheel;
+    private final Map<Long, ExamSession> sessions = new ConcurrentHashMap<>();
+    // Deadlines of the sessions that ran out of time, they are no longer in sessions
+    private final Map<Long, Long> expiredDeadlines = new ConcurrentHashMap<>();
+    private final Consumer<List<ExamSession>> expiryHandler;
+    private final AttemptService attemptService;
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+    private final Thread clock;
+    private volatile boolean running = true;
+
+    private final AtomicLong opened = new AtomicLong();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong maxLatenessMillis = new AtomicLong();
+
+    public ExamSessionManager(AttemptService attemptService) {
+        this(attemptService, TICK_MILLIS, null);
+    }
+
+    // Sessions that run out of time are passed to expiryHandler, or auto-submitted through the attempt service
+    public ExamSessionManager(AttemptService attemptService, long tickMillis,
+                              Consumer<List<ExamSession>> expiryHandler) {
+        if (attemptService == null && expiryHandler == null) {
+            throw new IllegalArgumentException("An attempt service or an expiry handler is required");
+        }
+        this.attemptService = attemptService;
+        this.expiryHandler = expiryHandler != null ? expiryHandler : this::autoSubmit;
+        this.wheel = new TimingWheel<>(tickMillis, System.currentTimeMillis());
+        this.clock = Thread.ofPlatform().name("exam-session-clock").daemon().start(this::tick);
+    }
+
+    // Starts, or resumes, the session of an attempt. The deadline counts from the attempt's start and
+    // never passes the end of the exam window.
+    public ExamSession open(ExamAttempt attempt) {
+        Exam exam = attempt.getExam();
+        ZoneId zone = ZoneId.systemDefault();
+        long startMillis = attempt.getStartedAt().atZone(zone).toInstant().toEpochMilli();
+        long deadlineMillis = exam.getEndDate().plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+        if (exam.getDurationMinutes() != null) {
+            deadlineMillis = Math.min(deadlineMillis, startMillis + exam.getDurationMinutes() * 60_000L);
+        }
+        return open(attempt.getId(), exam.getId(), attempt.getStudent().getId(), startMillis, deadlineMillis);
+    }
+
+    public ExamSession open(Long attemptId, Long examId, Long studentId, long startMillis, long deadlineMillis) {
+        if (!running) {
+            throw new IllegalStateException("Session manager is shut down");
+        }
+        ExamSession session = sessions.computeIfAbsent(attemptId, id -> {
+            ExamSession created = new ExamSession(id, examId, studentId, startMillis, deadlineMillis);
+            created.timeout = wheel.schedule(created, deadlineMillis);
+            opened.incrementAndGet();
+            return created;
+        });
+        if (session.status != SessionStatus.ACTIVE) {
+            // Expired before it was registered
+            sessions.remove(attemptId, session);
+        }
+        return session;
+    }
+
+    public ExamSession getSession(Long attemptId) {
+        return sessions.get(attemptId);
+    }
+
+    // Rejects answers once the student's time is up, a final submission closes the session
+    public CompletableFuture<Void> submitAnswers(Long attemptId, List<AnswerDTO> answers, boolean finalSubmission) {
+        ExamSession session = sessions.get(attemptId);
+        if (expiredDeadlines.containsKey(attemptId) || (session != null && session.getRemainingMillis() <= 0)) {
+            throw new IllegalArgumentException("Time is up, the exam was submitted automatically");
+        }
+        CompletableFuture<Void> durable = attemptService.submitAnswers(attemptId, answers, finalSubmission);
+        if (finalSubmission) {
+            finish(attemptId);
+        }
+        return durable;
+    }
+
+    public void submitAnswersAndWait(Long attemptId, List<AnswerDTO> answers, boolean finalSubmission,
+                                     long timeoutSeconds) {
+        AttemptService.await(submitAnswers(attemptId, answers, finalSubmission), timeoutSeconds);
+    }
+
+    // Closes a session submitted by the student, returns false when it had already expired
+    public boolean finish(Long attemptId) {
+        ExamSession session = sessions.remove(attemptId);
+        if (session == null || !session.timeout.cancel()) {
+            return false;
+        }
+        session.status = SessionStatus.SUBMITTED;
+        submitted.incrementAndGet();
+        return true;
+    }
+
+    public int getActiveSessions() {
+        return wheel.size();
+    }
+
+    private void tick() {
+        List<ExamSession> due = new ArrayList<>();
+        while (running) {
+            try {
+                Thread.sleep(wheel.getTickMillis());
+            } catch (InterruptedException e) {
+                break;
+            }
+            long now = System.currentTimeMillis();
+            expiredDeadlines.values().removeIf(deadline -> now - deadline > EXPIRED_RETENTION_MILLIS);
+            wheel.advance(now, due);
+            if (due.isEmpty()) {
+                continue;
+            }
+            for (int from = 0; from < due.size(); from += MAX_EXPIRED_PER_BATCH) {
+                List<ExamSession> batch = List.copyOf(due.subList(from, Math.min(due.size(), from + MAX_EXPIRED_PER_BATCH)));
+                for (ExamSession session : batch) {
+                    session.status = SessionStatus.EXPIRED;
+                    expiredDeadlines.put(session.attemptId, session.deadlineMillis);
+                    sessions.remove(session.attemptId, session);
+                    maxLatenessMillis.accumulateAndGet(now - session.deadlineMillis, Math::max);
+                }
+                expired.addAndGet(batch.size());
+                batches.incrementAndGet();
+                workers.execute(() -> expiryHandler.accept(batch));
+            }
+            due.clear();
+        }
+    }
+
+    private void autoSubmit(List<ExamSession> batch) {
+        List<Long> attemptIds = new ArrayList<>(batch.size());
+        for (ExamSession session : batch) {
+            attemptIds.add(session.attemptId);
+        }
+        try {
+            attemptService.autoSubmit(attemptIds).join();
+        } catch (CompletionException e) {
+            System.out.println("Auto-submit of " + attemptIds.size() + " attempts failed: " + e.getCause().getMessage());
+        }
+    }
+
+    // Stops the clock and waits for the expiry batches already handed out
+    public void shutdown() {
+        running = false;
+        clock.interrupt();
+        try {
+            clock.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        workers.close();
+    }
+
+    @Override
+    public String toString() {
+        return "ExamSessionManager{" +
+                "active=" + wheel.size() +
+                ", opened=" + opened.get() +
+                ", submitted=" + submitted.get() +
+                ", expired=" + expired.get() +
+                ", batches=" + batches.get() +
+                ", maxLatenessMillis=" + maxLatenessMillis.get() +
+                '}';
+    }
+
+    public static final class ExamSession {
+        private final Long attemptId;
+        private final Long examId;
+        private final Long studentId;
+        private final long startMillis;
+        private final long deadlineMillis;
+        private volatile SessionStatus status = SessionStatus.ACTIVE;
+        private TimingWheel.Timeout<ExamSession> timeout;
+
+        private ExamSession(Long attemptId, Long examId, Long studentId, long startMillis, long deadlineMillis) {
+            this.attemptId = attemptId;
+            this.examId = examId;
+            this.studentId = studentId;
+            this.startMillis = startMillis;
+            this.deadlineMillis = deadlineMillis;
+        }
+
+        public Long getAttemptId() {
+            return attemptId;
+        }
+
+        public Long getExamId() {
+            return examId;
+        }
+
+        public Long getStudentId() {
+            return studentId;
+        }
+
+        public long getStartMillis() {
+            return startMillis;
+        }
+
+        public long getDeadlineMillis() {
+            return deadlineMillis;
+        }
+
+        public SessionStatus getStatus() {
+            return status;
+        }
+
+        public long getRemainingMillis() {
+            if (status != SessionStatus.ACTIVE) {
+                return 0;
+            }
+            return Math.max(0, deadlineMillis - System.currentTimeMillis());
+        }
+    }
+}
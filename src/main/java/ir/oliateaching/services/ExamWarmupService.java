@@ -0,0 +1,169 @@
+package ir.oliateaching.services;
+
+import ir.oliateaching.domains.Exam;
+import ir.oliateaching.dto.ExamReadinessDTO;
+import ir.oliateaching.enums.WarmupStatus;
+import ir.oliateaching.repositories.CourseRepository;
+import ir.oliateaching.repositories.CourseRepositoryImpl;
+import ir.oliateaching.repositories.ExamRepository;
+import ir.oliateaching.repositories.ExamRepositoryImpl;
+import ir.oliateaching.utils.CompiledExamCache;
+import ir.oliateaching.utils.UnitOfWork;
+import jakarta.persistence.EntityManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+
+// Loads the paper, compiled snapshot and roster of exams about to open, so the students arriving at the
+// same moment hit warm caches. Exam windows are dates, so an exam opens at the start of its startDate;
+// exams that are already open are kept warm as well, e.g. after their snapshot was invalidated.
+public class ExamWarmupService {
+
+    public static final int DEFAULT_HORIZON_MINUTES = 60;
+    public static final int DEFAULT_INTERVAL_MINUTES = 5;
+
+    private final ExamRepository examRepository;
+    private final CourseRepository courseRepository;
+    private final ExamService examService;
+    private final int horizonMinutes;
+    private final Map<Long, Warmup> warmups = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    public ExamWarmupService(EntityManager entityManager) {
+        this(entityManager, DEFAULT_HORIZON_MINUTES);
+    }
+
+    public ExamWarmupService(EntityManager entityManager, int horizonMinutes) {
+        if (horizonMinutes < 0) {
+            throw new IllegalArgumentException("Horizon must not be negative");
+        }
+        this.examRepository = new ExamRepositoryImpl(entityManager);
+        this.courseRepository = new CourseRepositoryImpl(entityManager);
+        this.examService = new ExamService(entityManager);
+        this.horizonMinutes = horizonMinutes;
+    }
+
+    // Scans right away and then every intervalMinutes on a background thread
+    public synchronized void start(int intervalMinutes) {
+        if (intervalMinutes <= 0) {
+            throw new IllegalArgumentException("Interval must be positive");
+        }
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+                runnable -> Thread.ofPlatform().name("exam-warmup").daemon().unstarted(runnable));
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                UnitOfWork.execute(this::warmUpcomingExams);
+            } catch (RuntimeException e) {
+                System.out.println("Exam warm-up failed: " + e.getMessage());
+            }
+        }, 0, intervalMinutes, TimeUnit.MINUTES);
+    }
+
+    // Warms every cold exam open now or opening within the horizon, returns how many were warmed
+    public int warmUpcomingExams() {
+        LocalDate today = LocalDate.now();
+        LocalDate until = LocalDateTime.now().plusMinutes(horizonMinutes).toLocalDate();
+        List<Exam> exams = examRepository.findOpenBetween(today, until);
+
+        int warmed = 0;
+        for (Exam exam : exams) {
+            if (statusOf(exam.getId()) != WarmupStatus.WARM) {
+                warmExam(exam);
+                warmed++;
+            }
+        }
+        // Exams that have closed no longer need to be tracked
+        warmups.values().removeIf(warmup -> warmup.endDate.isBefore(today));
+        if (warmed > 0) {
+            System.out.println("Exam warm-up: " + warmed + " of " + exams.size() + " upcoming exams warmed");
+        }
+        return warmed;
+    }
+
+    public void warmExam(Long examId) {
+        Exam exam = examRepository.findById(examId)
+                .orElseThrow(() -> new IllegalArgumentException("Exam not found with id: " + examId));
+        warmExam(exam);
+    }
+
+    private void warmExam(Exam exam) {
+        Warmup warmup = new Warmup(exam);
+        long start = System.nanoTime();
+        try {
+            // The exam row, options, keywords, enrollments and students land in the second-level cache,
+            // the snapshot and rendered paper in CompiledExamCache. The enrollment rows are what
+            // AttemptService.startAttempt looks up for every student at the start of the exam.
+            examService.getCompiledExam(exam.getId());
+            if (exam.getCourse() != null) {
+                warmup.rosterSize = courseRepository.getCourseEnrollments(exam.getCourse().getId()).size();
+            }
+        } catch (RuntimeException e) {
+            warmup.error = e.getMessage();
+        }
+        warmup.warmupMillis = (System.nanoTime() - start) / 1_000_000;
+        warmup.warmedAt = LocalDateTime.now();
+        warmups.put(exam.getId(), warmup);
+    }
+
+    public List<ExamReadinessDTO> getReadiness() {
+        List<ExamReadinessDTO> readiness = new ArrayList<>();
+        for (Warmup warmup : warmups.values()) {
+            readiness.add(new ExamReadinessDTO(warmup.examId, warmup.examCode, warmup.examTitle,
+                    warmup.startDate, warmup.endDate, statusOf(warmup.examId), warmup.warmedAt,
+                    warmup.rosterSize, warmup.warmupMillis, warmup.error));
+        }
+        readiness.sort((a, b) -> a.getStartDate().compareTo(b.getStartDate()));
+        return readiness;
+    }
+
+    // Warm while the compiled snapshot is still cached, it is dropped whenever the exam changes
+    public WarmupStatus statusOf(Long examId) {
+        Warmup warmup = warmups.get(examId);
+        if (warmup == null) {
+            return WarmupStatus.COLD;
+        }
+        if (warmup.error != null) {
+            return WarmupStatus.FAILED;
+        }
+        return CompiledExamCache.isCached(examId) ? WarmupStatus.WARM : WarmupStatus.COLD;
+    }
+
+    public synchronized void shutdown() {
+        if (scheduler != null) {
+            // Lets a running scan finish, interrupting it could break its JDBC connection
+            scheduler.shutdown();
+            scheduler = null;
+        }
+    }
+
+    private static class Warmup {
+        private final Long examId;
+        private final String examCode;
+        private final String examTitle;
+        private final LocalDate startDate;
+        private final LocalDate endDate;
+        private int rosterSize;
+        private long warmupMillis;
+        private LocalDateTime warmedAt;
+        private String error;
+
+        private Warmup(Exam exam) {
+            this.examId = exam.getId();
+            this.examCode = exam.getExamCode();
+            this.examTitle = exam.getExamTitle();
+            this.startDate = exam.getStartDate();
+            this.endDate = exam.getEndDate();
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package ir.oliateaching.services;
+
+import ir.oliateaching.dto.EssayPreGradingReportDTO;
+import ir.oliateaching.dto.GradingReportDTO;
+import ir.oliateaching.enums.AttemptStatus;
+import ir.oliateaching.enums.QuestionType;
+import ir.oliateaching.repositories.AttemptRepository;
+import ir.oliateaching.repositories.AttemptRepositoryImpl;
+import ir.oliateaching.repositories.ExamRepository;
+import ir.oliateaching.repositories.ExamRepositoryImpl;
+import ir.oliateaching.utils.CompiledExam;
+import ir.oliateaching.utils.EssayAnalyzer;
+import ir.oliateaching.utils.JpaUtil;
+import ir.oliateaching.utils.ScoreSummary;
+import jakarta.persistence.EntityManager;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+
+// Grades the multiple choice part of an exam: answers are streamed ordered by attempt into a flat
+// int matrix (one row per attempt, one column per question), each chunk of rows is scored in
+// parallel against the exam's CompiledExam snapshot and written back with batched updates.
+// Attempts scored for the first time are folded into the exam's persisted score statistics: the
+// multiple choice questions always, the exam as a whole once no essay is left to score.
+public class GradingService {
+
+    private static final int MAX_ATTEMPTS_PER_CHUNK = 10_000;
+    private static final int MAX_SELECTIONS_PER_CHUNK = 1_000_000;
+    private static final int FETCH_SIZE = 10_000;
+    private static final int ESSAYS_PER_CHUNK = 2_000;
+
+    private final ExamService examService;
+    private final AttemptRepository attemptRepository;
+    private final ExamRepository examRepository;
+    private final ScoreStatisticsService statisticsService;
+
+    public GradingService(EntityManager entityManager) {
+        this.examService = new ExamService(entityManager);
+        this.attemptRepository = new AttemptRepositoryImpl(entityManager);
+        this.examRepository = new ExamRepositoryImpl(entityManager);
+        this.statisticsService = new ScoreStatisticsService(entityManager);
+    }
+
+    public GradingReportDTO gradeExam(Long examId) {
+        long start = System.nanoTime();
+        CompiledExam key = examService.getCompiledExam(examId);
+        // Attempts with essays keep SUBMITTED until a teacher scores the essays
+        AttemptStatus status = key.hasEssays() ? AttemptStatus.SUBMITTED : AttemptStatus.GRADED;
+
+        return JpaUtil.executeInTransaction(() -> {
+            // A second run on the same exam waits here, otherwise both would count the same attempts
+            examRepository.findByIdForUpdate(examId)
+                    .orElseThrow(() -> new IllegalArgumentException("Exam not found with id: " + examId));
+            ChunkGrader grader = new ChunkGrader(key, status);
+            attemptRepository.forEachSubmittedSelection(examId, FETCH_SIZE, grader);
+            grader.flush();
+            long unanswered = attemptRepository.scoreUnanswered(examId, status);
+            grader.recordStatistics(examId, unanswered);
+
+            GradingReportDTO report = new GradingReportDTO(examId, grader.graded + unanswered, grader.answersRead,
+                    key.getMaxScore(), grader.totalScore, (System.nanoTime() - start) / 1_000_000);
+            System.out.println("Grading finished: " + report);
+            return report;
+        });
+    }
+
+    // Suggests a score for every latest essay answer: the question score times the share of expected
+    // keywords found, or 0 when the word count is outside the question's bounds. Teachers review it later.
+    public EssayPreGradingReportDTO preGradeEssays(Long examId) {
+        long start = System.nanoTime();
+        CompiledExam key = examService.getCompiledExam(examId);
+
+        return JpaUtil.executeInTransaction(() -> {
+            EssayChunkScorer scorer = new EssayChunkScorer(key);
+            attemptRepository.forEachSubmittedEssay(examId, FETCH_SIZE, scorer);
+            scorer.flush();
+
+            EssayPreGradingReportDTO report = new EssayPreGradingReportDTO(examId, scorer.scored,
+                    scorer.outOfBounds, scorer.totalCoverage, (System.nanoTime() - start) / 1_000_000);
+            System.out.println("Essay pre-grading finished: " + report);
+            return report;
+        });
+    }
+
+    private class ChunkGrader implements AttemptRepository.SelectionHandler {
+
+        private final CompiledExam key;
+        private final AttemptStatus status;
+        private final int questions;
+        private final long[] attemptIds;
+        private final double[] scores;
+        private final boolean[] scored;
+        private final int[] selections;
+        private int count;
+
+        private final ScoreSummary examScores = new ScoreSummary();
+        private final long[] correctAnswers;
+
+        private long graded;
+        private long newlyScored;
+        private long answersRead;
+        private double totalScore;
+
+        private ChunkGrader(CompiledExam key, AttemptStatus status) {
+            this.key = key;
+            this.status = status;
+            this.questions = key.size();
+            int capacity = Math.max(1, Math.min(MAX_ATTEMPTS_PER_CHUNK, MAX_SELECTIONS_PER_CHUNK / Math.max(1, questions)));
+            this.attemptIds = new long[capacity];
+            this.scores = new double[capacity];
+            this.scored = new boolean[capacity];
+            this.selections = new int[capacity * questions];
+            this.correctAnswers = new long[questions];
+        }
+
+        @Override
+        public void accept(long attemptId, long questionId, int selectedOption, boolean alreadyScored) {
+            answersRead++;
+            if (count == 0 || attemptIds[count - 1] != attemptId) {
+                if (count == attemptIds.length) {
+                    flush();
+                }
+                scored[count] = alreadyScored;
+                attemptIds[count++] = attemptId;
+            }
+            int index = key.indexOf(questionId);
+            if (index >= 0) {
+                // Rows come in write order, so a changed answer overwrites the earlier one
+                selections[(count - 1) * questions + index] = selectedOption;
+            }
+        }
+
+        private void flush() {
+            if (count == 0) {
+                return;
+            }
+            IntStream.range(0, count).parallel()
+                    .forEach(i -> scores[i] = key.grade(selections, i * questions));
+            for (int i = 0; i < count; i++) {
+                totalScore += scores[i];
+                // Regrading an attempt of an exam with essays must not count it in the statistics again
+                if (scored[i]) {
+                    continue;
+                }
+                newlyScored++;
+                examScores.add(ScoreSummary.toPercent(scores[i], key.getMaxScore()));
+                int row = i * questions;
+                for (int question = 0; question < questions; question++) {
+                    if (key.isCorrect(question, selections[row + question])) {
+                        correctAnswers[question]++;
+                    }
+                }
+            }
+            attemptRepository.updateScores(attemptIds, scores, count, status);
+            graded += count;
+            Arrays.fill(selections, 0, count * questions, 0);
+            count = 0;
+        }
+
+        // Multiple choice questions score all or nothing, so their summaries only need the correct counts.
+        // The exam summary waits for the essays, while they are unscored it would only hold partial scores.
+        private void recordStatistics(Long examId, long unanswered) {
+            long attempts = newlyScored + unanswered;
+            if (attempts == 0) {
+                return;
+            }
+            ScoreSummary finalScores = new ScoreSummary();
+            if (status == AttemptStatus.GRADED) {
+                examScores.addRepeated(0, unanswered);
+                finalScores = examScores;
+            }
+            long[] questionIds = new long[questions];
+            ScoreSummary[] questionScores = new ScoreSummary[questions];
+            int multipleChoice = 0;
+            for (int question = 0; question < questions; question++) {
+                if (key.getType(question) != QuestionType.MULTIPLE_CHOICES) {
+                    continue;
+                }
+                questionIds[multipleChoice] = key.getQuestionId(question);
+                questionScores[multipleChoice] = new ScoreSummary();
+                questionScores[multipleChoice].addRepeated(100, correctAnswers[question]);
+                questionScores[multipleChoice].addRepeated(0, attempts - correctAnswers[question]);
+                multipleChoice++;
+            }
+            statisticsService.record(examId, finalScores, Arrays.copyOf(questionIds, multipleChoice),
+                    Arrays.copyOf(questionScores, multipleChoice));
+        }
+    }
+
+    private class EssayChunkScorer implements AttemptRepository.EssayHandler {
+
+        private final CompiledExam key;
+        private final long[] answerIds = new long[ESSAYS_PER_CHUNK];
+        private final int[] questionIndexes = new int[ESSAYS_PER_CHUNK];
+        private final String[] texts = new String[ESSAYS_PER_CHUNK];
+        private final double[] scores = new double[ESSAYS_PER_CHUNK];
+        private final double[] coverages = new double[ESSAYS_PER_CHUNK];
+        private int count;
+
+        private long scored;
+        private long outOfBounds;
+        private double totalCoverage;
+
+        private EssayChunkScorer(CompiledExam key) {
+            this.key = key;
+        }
+
+        @Override
+        public void accept(long answerId, long attemptId, long questionId, String answerText) {
+            int index = key.indexOf(questionId);
+            if (index < 0 || key.getType(index) != QuestionType.ESSAY) {
+                return;
+            }
+            answerIds[count] = answerId;
+            questionIndexes[count] = index;
+            texts[count] = answerText;
+            if (++count == ESSAYS_PER_CHUNK) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (count == 0) {
+                return;
+            }
+            IntStream.range(0, count).parallel().forEach(i -> {
+                int question = questionIndexes[i];
+                int words = EssayAnalyzer.countWords(texts[i]);
+                coverages[i] = key.getAnalyzer(question).coverage(texts[i]);
+                scores[i] = key.isWithinWordLimits(question, words) ? coverages[i] * key.getScore(question) : -1;
+            });
+            for (int i = 0; i < count; i++) {
+                totalCoverage += coverages[i];
+                if (scores[i] < 0) {
+                    outOfBounds++;
+                    scores[i] = 0;
+                }
+                texts[i] = null;
+            }
+            attemptRepository.updateAwardedScores(answerIds, scores, count);
+            scored += count;
+            count = 0;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package ir.oliateaching.services;
+
+import ir.oliateaching.domains.EssayQuestion;
+import ir.oliateaching.domains.MultipleChoiceQuestion;
+import ir.oliateaching.domains.Question;
+import ir.oliateaching.dto.QuestionImportDTO;
+import ir.oliateaching.dto.QuestionImportReportDTO;
+import ir.oliateaching.repositories.ExamRepository;
+import ir.oliateaching.repositories.ExamRepositoryImpl;
+import ir.oliateaching.repositories.QuestionRepository;
+import ir.oliateaching.repositories.QuestionRepositoryImpl;
+import ir.oliateaching.utils.QuestionBankReader;
+import ir.oliateaching.validator.DTOValidator;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+
+// Streams a question-bank file into an exam: items are read in chunks, validated on a worker pool
+// while the previous chunk is written, and persisted with JDBC batches, one transaction per chunk.
+// At most two chunks are held in memory whatever the file size.
+public class QuestionImportService {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+    private static final int PROGRESS_EVERY_CHUNKS = 10;
+
+    private final ExamRepository examRepository;
+    private final QuestionRepository questionRepository;
+    private final int chunkSize;
+    private final int workers;
+
+    public QuestionImportService(EntityManager entityManager) {
+        this(entityManager, DEFAULT_CHUNK_SIZE, Runtime.getRuntime().availableProcessors());
+    }
+
+    public QuestionImportService(EntityManager entityManager, int chunkSize, int workers) {
+        if (chunkSize < 1 || workers < 1) {
+            throw new IllegalArgumentException("Chunk size and worker count must be positive");
+        }
+        this.examRepository = new ExamRepositoryImpl(entityManager);
+        this.questionRepository = new QuestionRepositoryImpl(entityManager);
+        this.chunkSize = chunkSize;
+        this.workers = workers;
+    }
+
+    public QuestionImportReportDTO importQuestionBank(Long examId, Path file) throws IOException {
+        if (examRepository.findById(examId).isEmpty()) {
+            throw new IllegalArgumentException("Exam not found with id: " + examId);
+        }
+
+        QuestionImportReportDTO report = new QuestionImportReportDTO();
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        try (QuestionBankReader reader = QuestionBankReader.open(file)) {
+            List<QuestionImportDTO> chunk = readChunk(reader, report);
+            CompletableFuture<List<Object>> validating = validate(chunk, pool);
+            int chunks = 0;
+            while (!chunk.isEmpty()) {
+                List<QuestionImportDTO> nextChunk = readChunk(reader, report);
+                CompletableFuture<List<Object>> nextValidating = validate(nextChunk, pool);
+
+                write(examId, chunk, validating.join(), report);
+                if (++chunks % PROGRESS_EVERY_CHUNKS == 0) {
+                    printProgress(report, start);
+                }
+                chunk = nextChunk;
+                validating = nextValidating;
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        report.finish((System.nanoTime() - start) / 1_000_000);
+        System.out.println("Question bank import finished: " + report);
+        return report;
+    }
+
+    private List<QuestionImportDTO> readChunk(QuestionBankReader reader, QuestionImportReportDTO report)
+            throws IOException {
+        List<QuestionImportDTO> chunk = new ArrayList<>(chunkSize);
+        QuestionImportDTO item;
+        while (chunk.size() < chunkSize && (item = reader.next()) != null) {
+            report.recordRead();
+            chunk.add(item);
+        }
+        return chunk;
+    }
+
+    // Each result slot holds either the question to insert or the rejection reason
+    private CompletableFuture<List<Object>> validate(List<QuestionImportDTO> chunk, ExecutorService pool) {
+        Object[] results = new Object[chunk.size()];
+        int slice = Math.max(1, (chunk.size() + workers - 1) / workers);
+        List<CompletableFuture<Void>> parts = new ArrayList<>();
+        for (int from = 0; from < chunk.size(); from += slice) {
+            int start = from;
+            int end = Math.min(chunk.size(), from + slice);
+            parts.add(CompletableFuture.runAsync(() -> {
+                for (int i = start; i < end; i++) {
+                    results[i] = toQuestion(chunk.get(i));
+                }
+            }, pool));
+        }
+        return CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0]))
+                .thenApply(done -> List.of(results));
+    }
+
+    private void write(Long examId, List<QuestionImportDTO> chunk, List<Object> results,
+                       QuestionImportReportDTO report) {
+        List<Question> questions = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            Object result = results.get(i);
+            if (result instanceof Question question) {
+                questions.add(question);
+            } else {
+                report.recordRejected(chunk.get(i).getLineNumber(), (String) result);
+            }
+        }
+        questionRepository.insertBatch(examId, questions);
+        report.recordImported(questions.size());
+    }
+
+    // Question built from a valid item, or the reason the item was rejected
+    private static Object toQuestion(QuestionImportDTO item) {
+        if (item.getParseError() != null) {
+            return item.getParseError();
+        }
+        Set<ConstraintViolation<QuestionImportDTO>> violations = DTOValidator.validate(item);
+        if (!violations.isEmpty()) {
+            return violations.iterator().next().getMessage();
+        }
+
+        switch (item.getType()) {
+            case MULTIPLE_CHOICES:
+                if (item.getItems().size() < 2) {
+                    return "Multiple choice question needs at least 2 options";
+                }
+                if (item.getCorrectAnswerIndex() == null
+                        || item.getCorrectAnswerIndex() < 0
+                        || item.getCorrectAnswerIndex() >= item.getItems().size()) {
+                    return "Correct answer must be the index of one of the options";
+                }
+                MultipleChoiceQuestion multipleChoice = new MultipleChoiceQuestion();
+                multipleChoice.setOptions(new ArrayList<>(item.getItems()));
+                multipleChoice.setCorrectAnswerIndex(item.getCorrectAnswerIndex());
+                return fill(multipleChoice, item);
+            case ESSAY:
+                // validateAnswer compares against both bounds, so both are required
+                if (item.getMinWords() == null || item.getMaxWords() == null) {
+                    return "Essay question needs min and max words";
+                }
+                if (item.getMinWords() > item.getMaxWords()) {
+                    return "Minimum words cannot exceed maximum words";
+                }
+                EssayQuestion essay = new EssayQuestion();
+                essay.setExpectedKeywords(new ArrayList<>(item.getItems()));
+                essay.setMinWords(item.getMinWords());
+                essay.setMaxWords(item.getMaxWords());
+                return fill(essay, item);
+            default:
+                return "Unsupported question type: " + item.getType();
+        }
+    }
+
+    private static Question fill(Question question, QuestionImportDTO item) {
+        question.setText(item.getText());
+        question.setScore(item.getScore());
+        question.setType(item.getType());
+        return question;
+    }
+
+    private static void printProgress(QuestionImportReportDTO report, long start) {
+        long elapsed = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        System.out.printf("Imported %d / read %d questions (%.0f items/s)%n",
+                report.getImported(), report.getRead(), report.getRead() * 1000.0 / elapsed);
+    }
+}
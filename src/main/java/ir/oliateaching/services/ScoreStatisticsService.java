@@ -0,0 +1,102 @@
+package ir.oliateaching.services;
+
+import ir.oliateaching.domains.Exam;
+import ir.oliateaching.domains.Question;
+import ir.oliateaching.domains.ScoreStatistics;
+import ir.oliateaching.dto.ScoreStatisticsDTO;
+import ir.oliateaching.repositories.ExamRepository;
+import ir.oliateaching.repositories.ExamRepositoryImpl;
+import ir.oliateaching.repositories.ScoreStatisticsRepository;
+import ir.oliateaching.repositories.ScoreStatisticsRepositoryImpl;
+import ir.oliateaching.utils.CompiledExam;
+import ir.oliateaching.utils.JpaUtil;
+import ir.oliateaching.utils.ScoreSummary;
+import jakarta.persistence.EntityManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+// Keeps one persisted ScoreSummary per exam and per question. Grading merges the summary of each newly
+// graded batch into them, so reading statistics never goes back over the attempts.
+public class ScoreStatisticsService {
+
+    private final ScoreStatisticsRepository statisticsRepository;
+    private final ExamRepository examRepository;
+    private final ExamService examService;
+
+    public ScoreStatisticsService(EntityManager entityManager) {
+        this.statisticsRepository = new ScoreStatisticsRepositoryImpl(entityManager);
+        this.examRepository = new ExamRepositoryImpl(entityManager);
+        this.examService = new ExamService(entityManager);
+    }
+
+    // questionScores[i] holds the new scores of questionIds[i], either may be empty; an empty examScores
+    // leaves the exam row untouched
+    public void record(Long examId, ScoreSummary examScores, long[] questionIds, ScoreSummary[] questionScores) {
+        if (examScores.getCount() == 0 && questionIds.length == 0) {
+            return;
+        }
+        JpaUtil.executeInTransaction(() -> {
+            EntityManager entityManager = statisticsRepository.getEntityManager();
+            // Locking the exam row also covers the statistics rows that do not exist yet
+            Exam exam = examRepository.findByIdForUpdate(examId)
+                    .orElseThrow(() -> new IllegalArgumentException("Exam not found with id: " + examId));
+            Map<Long, ScoreStatistics> byQuestion = new HashMap<>();
+            ScoreStatistics examStatistics = null;
+            for (ScoreStatistics statistics : statisticsRepository.findByExamIdForUpdate(examId)) {
+                if (statistics.getQuestion() == null) {
+                    examStatistics = statistics;
+                } else {
+                    byQuestion.put(statistics.getQuestion().getId(), statistics);
+                }
+            }
+
+            if (examScores.getCount() > 0) {
+                if (examStatistics == null) {
+                    examStatistics = statisticsRepository.save(new ScoreStatistics(exam, null));
+                }
+                examStatistics.merge(examScores);
+            }
+
+            for (int i = 0; i < questionIds.length; i++) {
+                ScoreStatistics statistics = byQuestion.get(questionIds[i]);
+                if (statistics == null) {
+                    statistics = statisticsRepository.save(
+                            new ScoreStatistics(exam, entityManager.getReference(Question.class, questionIds[i])));
+                }
+                statistics.merge(questionScores[i]);
+            }
+            return null;
+        });
+    }
+
+    // Exam statistics first, then one entry per question, in points
+    public List<ScoreStatisticsDTO> getExamStatistics(Long examId) {
+        CompiledExam exam = examService.getCompiledExam(examId);
+        List<ScoreStatisticsDTO> statistics = new ArrayList<>();
+        for (ScoreStatistics row : statisticsRepository.findByExamId(examId)) {
+            if (row.getQuestion() == null) {
+                statistics.add(new ScoreStatisticsDTO(exam.getTitle(), exam.getMaxScore(), row.getScoreSummary()));
+                continue;
+            }
+            int index = exam.indexOf(row.getQuestion().getId());
+            if (index >= 0) {
+                statistics.add(new ScoreStatisticsDTO("Question " + (index + 1), exam.getScore(index),
+                        row.getScoreSummary()));
+            }
+        }
+        return statistics;
+    }
+
+    // All exams of the course merged, in percent of each exam's maximum score
+    public ScoreStatisticsDTO getCourseStatistics(Long courseId) {
+        ScoreSummary merged = new ScoreSummary();
+        for (ScoreStatistics row : statisticsRepository.findExamSummariesByCourseId(courseId)) {
+            merged.merge(row.getScoreSummary());
+        }
+        return new ScoreStatisticsDTO("Course " + courseId + " (%)", 100, merged);
+    }
+}
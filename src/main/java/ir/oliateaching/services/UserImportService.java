@@ -0,0 +1,375 @@
+package ir.oliateaching.services;
+
+import ir.oliateaching.domains.Student;
+import ir.oliateaching.domains.Teacher;
+import ir.oliateaching.domains.User;
+import ir.oliateaching.dto.UserImportDTO;
+import ir.oliateaching.dto.UserImportReportDTO;
+import ir.oliateaching.enums.UserStatus;
+import ir.oliateaching.enums.UserUniqueField;
+import ir.oliateaching.repositories.UserRepository;
+import ir.oliateaching.repositories.UserRepositoryImpl;
+import ir.oliateaching.utils.ApplicationContext;
+import ir.oliateaching.utils.CredentialCache;
+import ir.oliateaching.utils.CsvRecordReader;
+import ir.oliateaching.utils.CsvUserReader;
+import ir.oliateaching.utils.PasswordHasher;
+import ir.oliateaching.utils.UserExistenceFilters;
+import ir.oliateaching.validator.DTOValidator;
+import ir.oliateaching.validator.UniqueFieldException;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.IntConsumer;
+
+
+// Streams a CSV of new students and teachers into the users tables: rows are read in chunks and validated
+// on a worker pool while the previous chunk is written. Each chunk is de-duplicated set-wise, within itself
+// and against existing users with one query, its passwords are hashed and it is inserted with JDBC batches
+// in one transaction. Rejected rows go to a reject file, so at most two chunks are held in memory.
+public class UserImportService {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+    private static final int PROGRESS_EVERY_CHUNKS = 10;
+
+    // Column lengths the sign up validation does not cover
+    private static final int MAX_EMAIL_LENGTH = 50;
+    private static final int MAX_CODE_LENGTH = 10;
+
+    private static final long HASH_BACKOFF_MILLIS = 50;
+    private static final long MAX_HASH_BACKOFF_MILLIS = 1000;
+    private static final int MAX_HASH_ATTEMPTS = 20;
+
+    private final UserRepository<User> userRepository;
+    private final PasswordHasher passwordHasher;
+    private final int chunkSize;
+    private final int workers;
+
+    public UserImportService(EntityManager entityManager) {
+        this(entityManager, DEFAULT_CHUNK_SIZE, Runtime.getRuntime().availableProcessors());
+    }
+
+    public UserImportService(EntityManager entityManager, int chunkSize, int workers) {
+        if (chunkSize < 1 || workers < 1) {
+            throw new IllegalArgumentException("Chunk size and worker count must be positive");
+        }
+        this.userRepository = new UserRepositoryImpl(entityManager);
+        this.passwordHasher = ApplicationContext.getPasswordHasher();
+        this.chunkSize = chunkSize;
+        this.workers = workers;
+    }
+
+    // Imported users are approved by adminId; rejected rows are written to rejectFile with their reason
+    public UserImportReportDTO importUsers(Path file, Path rejectFile, Long adminId) throws IOException {
+        UserImportReportDTO report = new UserImportReportDTO();
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        try (CsvUserReader reader = new CsvUserReader(Files.newBufferedReader(file, StandardCharsets.UTF_8));
+             BufferedWriter rejects = Files.newBufferedWriter(rejectFile, StandardCharsets.UTF_8)) {
+            rejects.write("line,username,email,reason");
+            rejects.newLine();
+
+            List<UserImportDTO> chunk = readChunk(reader, report);
+            CompletableFuture<Object[]> validating = validate(chunk, pool, adminId);
+            int chunks = 0;
+            while (!chunk.isEmpty()) {
+                List<UserImportDTO> nextChunk = readChunk(reader, report);
+                CompletableFuture<Object[]> nextValidating = validate(nextChunk, pool, adminId);
+
+                write(chunk, validating.join(), pool, rejects, report);
+                if (++chunks % PROGRESS_EVERY_CHUNKS == 0) {
+                    printProgress(report, start);
+                }
+                chunk = nextChunk;
+                validating = nextValidating;
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        report.finish((System.nanoTime() - start) / 1_000_000, rejectFile);
+        System.out.println("User import finished: " + report);
+        return report;
+    }
+
+    private List<UserImportDTO> readChunk(CsvUserReader reader, UserImportReportDTO report) throws IOException {
+        List<UserImportDTO> chunk = new ArrayList<>(chunkSize);
+        UserImportDTO row;
+        while (chunk.size() < chunkSize && (row = reader.next()) != null) {
+            report.recordRead();
+            chunk.add(row);
+        }
+        return chunk;
+    }
+
+    // Each result slot holds either the user to insert, password still in plain text, or the rejection reason
+    private CompletableFuture<Object[]> validate(List<UserImportDTO> chunk, ExecutorService pool, Long adminId) {
+        Object[] results = new Object[chunk.size()];
+        LocalDateTime now = LocalDateTime.now();
+        return inParallel(chunk.size(), pool, i -> results[i] = toUser(chunk.get(i), adminId, now))
+                .thenApply(done -> results);
+    }
+
+    private CompletableFuture<Void> inParallel(int size, ExecutorService pool, IntConsumer work) {
+        int slice = Math.max(1, (size + workers - 1) / workers);
+        List<CompletableFuture<Void>> parts = new ArrayList<>();
+        for (int from = 0; from < size; from += slice) {
+            int start = from;
+            int end = Math.min(size, from + slice);
+            parts.add(CompletableFuture.runAsync(() -> {
+                for (int i = start; i < end; i++) {
+                    work.accept(i);
+                }
+            }, pool));
+        }
+        return CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0]));
+    }
+
+    private void write(List<UserImportDTO> chunk, Object[] results, ExecutorService pool,
+                       BufferedWriter rejects, UserImportReportDTO report) throws IOException {
+        List<UserImportDTO> rows = new ArrayList<>(chunk.size());
+        List<User> users = new ArrayList<>(chunk.size());
+        Map<UserUniqueField, Set<String>> seen = new EnumMap<>(UserUniqueField.class);
+        for (UserUniqueField field : UserUniqueField.values()) {
+            seen.put(field, new HashSet<>());
+        }
+        for (int i = 0; i < chunk.size(); i++) {
+            if (results[i] instanceof User user) {
+                // Earlier chunks are already committed, so only this chunk needs checking against itself
+                UserUniqueField repeated = firstRepeated(user, seen);
+                if (repeated != null) {
+                    reject(rejects, chunk.get(i), "Duplicate " + UniqueFieldException.labelOf(repeated).toLowerCase()
+                            + " in file: " + valueOf(user, repeated));
+                    report.recordDuplicate();
+                } else {
+                    rows.add(chunk.get(i));
+                    users.add(user);
+                }
+            } else {
+                reject(rejects, chunk.get(i), (String) results[i]);
+                report.recordInvalid();
+            }
+        }
+
+        // One query for the whole chunk, values the existence filters rule out are not even sent
+        Map<UserUniqueField, Set<String>> candidates = new EnumMap<>(UserUniqueField.class);
+        for (Map.Entry<UserUniqueField, Set<String>> entry : seen.entrySet()) {
+            Set<String> maybeTaken = new HashSet<>();
+            for (String value : entry.getValue()) {
+                if (UserExistenceFilters.mightExist(entry.getKey(), value)) {
+                    maybeTaken.add(value);
+                }
+            }
+            candidates.put(entry.getKey(), maybeTaken);
+        }
+        Map<UserUniqueField, Set<String>> taken = userRepository.findExistingValues(candidates);
+        List<UserImportDTO> newRows = new ArrayList<>(rows.size());
+        List<User> newUsers = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            UserUniqueField conflict = firstTaken(users.get(i), taken);
+            if (conflict != null) {
+                reject(rejects, rows.get(i), UniqueFieldException.labelOf(conflict) + " already exists: "
+                        + valueOf(users.get(i), conflict));
+                report.recordDuplicate();
+            } else {
+                newRows.add(rows.get(i));
+                newUsers.add(users.get(i));
+            }
+        }
+
+        // Only rows that will be inserted pay for hashing, at most one hash per worker is in flight
+        inParallel(newUsers.size(), pool, i -> newUsers.get(i).setPassword(hash(newUsers.get(i).getPassword())))
+                .join();
+        insert(newRows, newUsers, rejects, report);
+    }
+
+    private void insert(List<UserImportDTO> rows, List<User> users, BufferedWriter rejects,
+                        UserImportReportDTO report) throws IOException {
+        try {
+            userRepository.insertBatch(users);
+            imported(users, report);
+        } catch (RuntimeException e) {
+            // Usually a user registered between the duplicate check and the insert, the rows are retried one
+            // by one so only the failing ones are rejected; a unique constraint counts as a duplicate
+            for (int i = 0; i < users.size(); i++) {
+                User user = users.get(i);
+                try {
+                    userRepository.insertBatch(List.of(user));
+                    imported(List.of(user), report);
+                } catch (RuntimeException rowFailure) {
+                    UserUniqueField conflict = UserService.violatedField(rowFailure);
+                    if (conflict != null) {
+                        reject(rejects, rows.get(i), UniqueFieldException.labelOf(conflict) + " already exists: "
+                                + valueOf(user, conflict));
+                        report.recordDuplicate();
+                    } else {
+                        reject(rejects, rows.get(i), "Insert failed: " + rootMessage(rowFailure));
+                        report.recordFailed();
+                    }
+                }
+            }
+        }
+    }
+
+    // The hasher rejects work while its queue is full, logins share it, so the import backs off and retries.
+    // A hasher that is shut down fails at once, one that stays saturated after MAX_HASH_ATTEMPTS stops the import.
+    private String hash(String password) {
+        long backoff = HASH_BACKOFF_MILLIS;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return passwordHasher.hash(password);
+            } catch (RejectedExecutionException e) {
+                if (attempt == MAX_HASH_ATTEMPTS) {
+                    throw new IllegalStateException("Password hasher stayed busy, import stopped", e);
+                }
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("User import interrupted", interrupted);
+                }
+                backoff = Math.min(backoff * 2, MAX_HASH_BACKOFF_MILLIS);
+            }
+        }
+    }
+
+    // Plain JDBC inserts bypass the entity listeners, so the filters and caches are updated here
+    private static void imported(List<User> users, UserImportReportDTO report) {
+        long students = 0;
+        for (User user : users) {
+            for (UserUniqueField field : UserUniqueField.values()) {
+                UserExistenceFilters.add(field, valueOf(user, field));
+            }
+            CredentialCache.invalidate(user.getUsername());
+            if (user instanceof Student) {
+                students++;
+            }
+        }
+        report.recordImported(students, users.size() - students);
+    }
+
+    // User built from a valid row, or the reason the row was rejected
+    private static Object toUser(UserImportDTO row, Long adminId, LocalDateTime now) {
+        if (row.getParseError() != null) {
+            return row.getParseError();
+        }
+        Set<ConstraintViolation<UserImportDTO>> violations = DTOValidator.validate(row);
+        if (!violations.isEmpty()) {
+            return violations.iterator().next().getMessage();
+        }
+        if (row.getEmail().length() > MAX_EMAIL_LENGTH) {
+            return "Email cannot exceed " + MAX_EMAIL_LENGTH + " characters";
+        }
+
+        User user;
+        switch (row.getRole()) {
+            case STUDENT:
+                if (row.getStudentCode() != null && row.getStudentCode().length() > MAX_CODE_LENGTH) {
+                    return "Student code cannot exceed " + MAX_CODE_LENGTH + " characters";
+                }
+                Student student = new Student(row.getUsername(), row.getPassword(), row.getFirstName(),
+                        row.getLastName(), row.getEmail());
+                student.setStudentCode(row.getStudentCode());
+                student.setFieldOfStudy(row.getFieldOfStudy());
+                student.setEntryYear(row.getEntryYear());
+                user = student;
+                break;
+            case TEACHER:
+                if (row.getTeacherCode() != null && row.getTeacherCode().length() > MAX_CODE_LENGTH) {
+                    return "Teacher code cannot exceed " + MAX_CODE_LENGTH + " characters";
+                }
+                Teacher teacher = new Teacher(row.getUsername(), row.getPassword(), row.getFirstName(),
+                        row.getLastName(), row.getEmail());
+                teacher.setTeacherCode(row.getTeacherCode());
+                teacher.setExpertise(row.getExpertise());
+                teacher.setDegree(row.getDegree());
+                user = teacher;
+                break;
+            default:
+                return "Only students and teachers can be imported";
+        }
+        user.setPhoneNumber(row.getPhoneNumber());
+        user.setNationalId(row.getNationalId());
+        // Admission data is trusted, imported users can log in right away
+        user.setStatus(UserStatus.APPROVED);
+        user.setApprovedDate(now);
+        user.setApprovedBy(adminId);
+        return user;
+    }
+
+    private static UserUniqueField firstRepeated(User user, Map<UserUniqueField, Set<String>> seen) {
+        for (UserUniqueField field : UserUniqueField.values()) {
+            String value = valueOf(user, field);
+            if (value != null && seen.get(field).contains(value)) {
+                return field;
+            }
+        }
+        for (UserUniqueField field : UserUniqueField.values()) {
+            String value = valueOf(user, field);
+            if (value != null) {
+                seen.get(field).add(value);
+            }
+        }
+        return null;
+    }
+
+    private static UserUniqueField firstTaken(User user, Map<UserUniqueField, Set<String>> taken) {
+        for (Map.Entry<UserUniqueField, Set<String>> entry : taken.entrySet()) {
+            if (entry.getValue().contains(valueOf(user, entry.getKey()))) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    private static String valueOf(User user, UserUniqueField field) {
+        switch (field) {
+            case USERNAME:
+                return user.getUsername();
+            case EMAIL:
+                return user.getEmail();
+            case NATIONAL_ID:
+                return user.getNationalId();
+            case STUDENT_CODE:
+                return user instanceof Student student ? student.getStudentCode() : null;
+            case TEACHER_CODE:
+                return user instanceof Teacher teacher ? teacher.getTeacherCode() : null;
+            default:
+                return null;
+        }
+    }
+
+    private static void reject(BufferedWriter rejects, UserImportDTO row, String reason) throws IOException {
+        rejects.write(row.getLineNumber() + "," + CsvRecordReader.escape(row.getUsername()) + ","
+                + CsvRecordReader.escape(row.getEmail()) + "," + CsvRecordReader.escape(reason));
+        rejects.newLine();
+    }
+
+    private static String rootMessage(Throwable e) {
+        while (e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e.getMessage();
+    }
+
+    private static void printProgress(UserImportReportDTO report, long start) {
+        long elapsed = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        System.out.printf("Imported %d / read %d users (%.0f rows/s)%n",
+                report.getImported(), report.getRead(), report.getRead() * 1000.0 / elapsed);
+    }
+}
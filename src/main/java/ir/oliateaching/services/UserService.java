@@ -1,59 +1,72 @@
 package ir.oliateaching.services;
 
 
+import ir.oliateaching.dto.UserCredentialDTO;
 import ir.oliateaching.dto.UserSignUpDTO;
 import ir.oliateaching.dto.UserUpdateDTO;
 import ir.oliateaching.enums.UserRole;
 import ir.oliateaching.enums.UserStatus;
+import ir.oliateaching.enums.UserUniqueField;
 import ir.oliateaching.domains.*;
 import ir.oliateaching.repositories.UserRepository;
 import ir.oliateaching.repositories.UserRepositoryImpl;
+import ir.oliateaching.repositories.base.Slice;
+import ir.oliateaching.utils.ApplicationContext;
+import ir.oliateaching.utils.CredentialCache;
+import ir.oliateaching.utils.JpaUtil;
+import ir.oliateaching.utils.LoginMetrics;
+import ir.oliateaching.utils.PasswordHasher;
+import ir.oliateaching.utils.UserExistenceFilters;
 import ir.oliateaching.validator.DTOValidator;
+import ir.oliateaching.validator.UniqueFieldException;
 import jakarta.persistence.EntityManager;
+import org.hibernate.exception.ConstraintViolationException;
 import java.time.LocalDateTime;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 
 public class UserService {
 
+    private static final int EXISTENCE_FILTER_FETCH_SIZE = 1_000;
+
     private final UserRepository<User> userRepository;
+    private final PasswordHasher passwordHasher;
 
     public UserService(EntityManager entityManager) {
         this.userRepository = new UserRepositoryImpl(entityManager);
+        this.passwordHasher = ApplicationContext.getPasswordHasher();
     }
 
     public User signUp(UserSignUpDTO dto) {
         DTOValidator.validateOrThrow(dto);
 
-        if (userRepository.existsByUsername(dto.getUsername())) {
-            throw new IllegalArgumentException("Username already exists: " + dto.getUsername());
-        }
-
-        if (userRepository.existsByEmail(dto.getEmail())) {
-            throw new IllegalArgumentException("Email already exists: " + dto.getEmail());
-        }
-
-        if (dto.getNationalId() != null && userRepository.existsByNationalId(dto.getNationalId())) {
-            throw new IllegalArgumentException("National ID already exists: " + dto.getNationalId());
+        // One query reports every clashing field; the unique constraints still catch a concurrent sign up
+        Map<UserUniqueField, String> values = uniqueValues(dto);
+        Set<UserUniqueField> conflicts = userRepository.findConflicts(values.get(UserUniqueField.USERNAME),
+                values.get(UserUniqueField.EMAIL), values.get(UserUniqueField.NATIONAL_ID),
+                values.get(UserUniqueField.STUDENT_CODE), values.get(UserUniqueField.TEACHER_CODE));
+        if (!conflicts.isEmpty()) {
+            values.keySet().retainAll(conflicts);
+            throw new UniqueFieldException(values);
         }
 
+        String password = passwordHasher.hash(dto.getPassword());
         User user;
         switch (dto.getRole()) {
             case STUDENT:
                 Student student = new Student(
                         dto.getUsername(),
-                        dto.getPassword(),
+                        password,
                         dto.getFirstName(),
                         dto.getLastName(),
                         dto.getEmail()
                 );
 
                 if (dto.getStudentCode() != null) {
-                    Optional<User> existingStudent = userRepository.findByStudentCode(dto.getStudentCode());
-                    if (existingStudent.isPresent()) {
-                        throw new IllegalArgumentException("Student code already exists: " + dto.getStudentCode());
-                    }
                     student.setStudentCode(dto.getStudentCode());
                 }
 
@@ -71,17 +84,13 @@ public class UserService {
             case TEACHER:
                 Teacher teacher = new Teacher(
                         dto.getUsername(),
-                        dto.getPassword(),
+                        password,
                         dto.getFirstName(),
                         dto.getLastName(),
                         dto.getEmail()
                 );
 
                 if (dto.getTeacherCode() != null) {
-                    Optional<User> existingTeacher = userRepository.findByTeacherCode(dto.getTeacherCode());
-                    if (existingTeacher.isPresent()) {
-                        throw new IllegalArgumentException("Teacher code already exists: " + dto.getTeacherCode());
-                    }
                     teacher.setTeacherCode(dto.getTeacherCode());
                 }
 
@@ -99,7 +108,7 @@ public class UserService {
             case ADMIN:
                 Admin admin = new Admin(
                         dto.getUsername(),
-                        dto.getPassword(),
+                        password,
                         dto.getFirstName(),
                         dto.getLastName(),
                         dto.getEmail()
@@ -120,7 +129,72 @@ public class UserService {
             user.setNationalId(dto.getNationalId());
         }
 
-        return (User) userRepository.save(user);
+        // Drops a cached "unknown username" left by an earlier login attempt
+        CredentialCache.invalidateOnCompletion(user.getUsername());
+        try {
+            return (User) userRepository.save(user);
+        } catch (RuntimeException e) {
+            throw translateConstraintViolation(e, values);
+        }
+    }
+
+    // The unique fields of a sign up, only the code that belongs to its role
+    private static Map<UserUniqueField, String> uniqueValues(UserSignUpDTO dto) {
+        Map<UserUniqueField, String> values = new EnumMap<>(UserUniqueField.class);
+        values.put(UserUniqueField.USERNAME, dto.getUsername());
+        values.put(UserUniqueField.EMAIL, dto.getEmail());
+        if (dto.getNationalId() != null) {
+            values.put(UserUniqueField.NATIONAL_ID, dto.getNationalId());
+        }
+        if (dto.getRole() == UserRole.STUDENT && dto.getStudentCode() != null) {
+            values.put(UserUniqueField.STUDENT_CODE, dto.getStudentCode());
+        }
+        if (dto.getRole() == UserRole.TEACHER && dto.getTeacherCode() != null) {
+            values.put(UserUniqueField.TEACHER_CODE, dto.getTeacherCode());
+        }
+        return values;
+    }
+
+    // A unique constraint violated at insert, by a user registered after the conflict check, becomes the
+    // same field error the check would have reported
+    private static RuntimeException translateConstraintViolation(RuntimeException e, Map<UserUniqueField, String> values) {
+        UserUniqueField field = violatedField(e);
+        if (field == null) {
+            return e;
+        }
+        Map<UserUniqueField, String> conflict = new EnumMap<>(UserUniqueField.class);
+        conflict.put(field, values.get(field));
+        return new UniqueFieldException(conflict);
+    }
+
+    // The unique field whose constraint caused the failure, null for any other failure
+    static UserUniqueField violatedField(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation && violation.getConstraintName() != null) {
+                UserUniqueField field = fieldOfConstraint(violation.getConstraintName());
+                if (field != null) {
+                    return field;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static UserUniqueField fieldOfConstraint(String constraintName) {
+        // Some databases report the name qualified or upper case
+        String name = constraintName.toLowerCase();
+        if (name.contains(User.USERNAME_UNIQUE_CONSTRAINT)) {
+            return UserUniqueField.USERNAME;
+        } else if (name.contains(User.EMAIL_UNIQUE_CONSTRAINT)) {
+            return UserUniqueField.EMAIL;
+        } else if (name.contains(User.NATIONAL_ID_UNIQUE_CONSTRAINT)) {
+            return UserUniqueField.NATIONAL_ID;
+        } else if (name.contains(Student.STUDENT_CODE_UNIQUE_CONSTRAINT)) {
+            return UserUniqueField.STUDENT_CODE;
+        } else if (name.contains(Teacher.TEACHER_CODE_UNIQUE_CONSTRAINT)) {
+            return UserUniqueField.TEACHER_CODE;
+        }
+        return null;
     }
 
     public User approveUser(Long userId, Long adminId) {
@@ -137,6 +211,7 @@ public class UserService {
             user.setApprovedDate(LocalDateTime.now());
             user.setApprovedBy(adminId);
 
+            CredentialCache.invalidateOnCompletion(user.getUsername());
             return (User) userRepository.save(user);
         }
 
@@ -152,6 +227,7 @@ public class UserService {
             user.setApprovedDate(LocalDateTime.now());
             user.setApprovedBy(adminId);
 
+            CredentialCache.invalidateOnCompletion(user.getUsername());
             return (User) userRepository.save(user);
         }
 
@@ -187,6 +263,7 @@ public class UserService {
                 teacher.setDegree(dto.getDegree());
             }
 
+            CredentialCache.invalidateOnCompletion(user.getUsername());
             return (User) userRepository.save(user);
         }
 
@@ -209,6 +286,10 @@ public class UserService {
         return userRepository.findAll();
     }
 
+    public Slice<User> getUsersPage(Long afterId, int size) {
+        return userRepository.findSlice(afterId, size);
+    }
+
     public List<User> getUsersByRole(UserRole role) {
         return userRepository.findByRole(role);
     }
@@ -226,26 +307,86 @@ public class UserService {
     }
 
     public void deleteUser(Long id) {
+        userRepository.findById(id).ifPresent(user -> CredentialCache.invalidateOnCompletion(user.getUsername()));
         userRepository.deleteById(id);
     }
 
+    // Fills the existence filters from the users table, run once at startup
+    public void buildExistenceFilters() {
+        long start = System.nanoTime();
+        long users = userRepository.count();
+        JpaUtil.executeInTransaction(userRepository.getEntityManager(), () ->
+                UserExistenceFilters.build(ApplicationContext.getEntityManagerFactory().getProperties(), users,
+                        add -> userRepository.forEachUniqueValue(EXISTENCE_FILTER_FETCH_SIZE, add)));
+        System.out.println("User existence filters built from " + users + " users in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
     public boolean authenticate(String username, String password) {
-        Optional<User> userOpt = userRepository.findByUsername(username);
-        return userOpt.isPresent() &&
-                userOpt.get().getPassword().equals(password) &&
-                userOpt.get().isApproved();
+        return checkCredentials(username, password) != null;
+    }
+
+    // The user of a successful login, loaded by id so it usually comes from the second-level cache
+    public Optional<User> login(String username, String password) {
+        UserCredentialDTO credential = checkCredentials(username, password);
+        return credential == null ? Optional.empty() : userRepository.findById(credential.getId());
+    }
+
+    // Fast path: a cached or projected (id, password, status, role) instead of the full polymorphic user
+    private UserCredentialDTO checkCredentials(String username, String password) {
+        long start = System.nanoTime();
+        UserCredentialDTO credential = null;
+        if (username != null && password != null) {
+            credential = CredentialCache.get(username,
+                    name -> userRepository.findCredentialsByUsername(name).orElse(null));
+        }
+        // Hashing runs on the hasher's own pool. Unknown and unapproved users are hashed against a dummy
+        // so the response time does not tell which usernames exist.
+        boolean accepted = false;
+        if (credential != null && credential.isApproved()) {
+            accepted = passwordHasher.verify(password, credential.getPassword());
+        } else if (password != null) {
+            passwordHasher.verifyDummy(password);
+        }
+        LoginMetrics.record(System.nanoTime() - start, accepted);
+        if (accepted && passwordHasher.needsRehash(credential.getPassword())) {
+            rehash(username, credential.getId(), password);
+        }
+        return accepted ? credential : null;
+    }
+
+    // Upgrades a plain text password or one hashed with a lower work factor, the login itself already succeeded
+    private void rehash(String username, Long userId, String password) {
+        try {
+            String hash = passwordHasher.hash(password);
+            userRepository.findById(userId).ifPresent(user -> {
+                user.setPassword(hash);
+                userRepository.save(user);
+            });
+            CredentialCache.invalidateOnCompletion(username);
+        } catch (RuntimeException e) {
+            System.out.println("Password rehash failed for user " + userId + ": " + e.getMessage());
+        }
+    }
+
+    public PasswordHasher getPasswordHasher() {
+        return passwordHasher;
     }
 
     public long getTotalUsers() {
-        return userRepository.findAll().size();
+        return userRepository.count();
     }
 
     public long getTotalUsersByRole(UserRole role) {
-        return userRepository.findByRole(role).size();
+        return userRepository.countByRole(role);
     }
 
     public long getPendingCount() {
-        return userRepository.findPendingUsers().size();
+        return userRepository.countByStatus(UserStatus.PENDING);
+    }
+
+    public Map<UserRole, Map<UserStatus, Long>> getUserCountsByRoleAndStatus() {
+        return userRepository.countGroupedByRoleAndStatus();
     }
 
 }
@@ -10,11 +10,12 @@ import java.util.Objects;
 public class ApplicationContext {
 
     private static EntityManagerFactory entityManagerFactory;
+    private static PasswordHasher passwordHasher;
 
     private ApplicationContext() {
     }
 
-    public static EntityManagerFactory getEntityManagerFactory() {
+    public static synchronized EntityManagerFactory getEntityManagerFactory() {
         if (entityManagerFactory == null || !entityManagerFactory.isOpen()) {
             try {
                 entityManagerFactory = Persistence.createEntityManagerFactory("default");
@@ -31,7 +32,19 @@ public class ApplicationContext {
         return getEntityManagerFactory().createEntityManager();
     }
 
-    public static void shutdown() {
+    // Shared by every UserService, configured from the persistence unit properties
+    public static synchronized PasswordHasher getPasswordHasher() {
+        if (passwordHasher == null) {
+            passwordHasher = PasswordHasher.fromProperties(getEntityManagerFactory().getProperties());
+        }
+        return passwordHasher;
+    }
+
+    public static synchronized void shutdown() {
+        if (passwordHasher != null) {
+            passwordHasher.shutdown();
+            passwordHasher = null;
+        }
         if (entityManagerFactory != null && entityManagerFactory.isOpen()) {
             entityManagerFactory.close();
             System.out.println("EntityManagerFactory closed.");
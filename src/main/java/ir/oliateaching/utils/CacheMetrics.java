@@ -0,0 +1,62 @@
+package ir.oliateaching.utils;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.hibernate.cache.jcache.internal.JCacheRegionFactory;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import java.util.ArrayList;
+import java.util.List;
+
+
+public class CacheMetrics {
+
+    private CacheMetrics() {
+    }
+
+    public static List<RegionStatistics> snapshot() {
+        List<RegionStatistics> result = new ArrayList<>();
+        RegionFactory regionFactory = ApplicationContext.getEntityManagerFactory()
+                .unwrap(SessionFactoryImplementor.class)
+                .getCache()
+                .getRegionFactory();
+        if (!(regionFactory instanceof JCacheRegionFactory jCacheRegionFactory)) {
+            return result;
+        }
+
+        CacheManager cacheManager = jCacheRegionFactory.getCacheManager();
+        for (String name : cacheManager.getCacheNames()) {
+            Cache<Object, Object> cache = cacheManager.getCache(name);
+            com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache =
+                    cache.unwrap(com.github.benmanes.caffeine.cache.Cache.class);
+            CacheStats stats = nativeCache.stats();
+
+            RegionStatistics region = new RegionStatistics();
+            region.region = name;
+            region.size = nativeCache.estimatedSize();
+            region.hitCount = stats.hitCount();
+            region.missCount = stats.missCount();
+            region.evictionCount = stats.evictionCount();
+            region.hitRate = stats.hitRate();
+            result.add(region);
+        }
+        return result;
+    }
+
+    public static class RegionStatistics {
+        public String region;
+        public long size;
+        public long hitCount;
+        public long missCount;
+        public long evictionCount;
+        public double hitRate;
+
+        @Override
+        public String toString() {
+            return String.format("  %-20s size=%d hits=%d misses=%d evictions=%d hitRate=%.1f%%",
+                    region, size, hitCount, missCount, evictionCount, hitRate * 100);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package ir.oliateaching.utils;
+
+import ir.oliateaching.domains.EssayQuestion;
+import ir.oliateaching.domains.Exam;
+import ir.oliateaching.domains.MultipleChoiceQuestion;
+import ir.oliateaching.domains.Question;
+import ir.oliateaching.enums.QuestionType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+
+
+// Immutable snapshot of everything needed to validate and grade an exam, compiled into arrays indexed
+// by question position (questions ordered by id). Selections are 1-based option numbers as stored in
+// attempt_answers, 0 means unanswered. Built once per exam version, see CompiledExamCache.
+// Also holds the paper rendered once, so students opening the same exam share the same text.
+public final class CompiledExam {
+
+    private final Long examId;
+    private final String title;
+    private final long[] questionIds;
+    private final QuestionType[] types;
+    private final double[] scores;
+    private final int[] optionCounts;
+    private final int[] correctOptions;
+    private final int[] minWords;
+    private final int[] maxWords;
+    private final EssayAnalyzer[] analyzers;
+    private final String[] renderedQuestions;
+    // Multiple choice questions only: text without the options, and the options in canonical order
+    private final String[] headers;
+    private final String[][] options;
+    private final double maxScore;
+    private final int essayCount;
+    // UTF-8 form of the whole paper, built on first use
+    private volatile byte[] paper;
+
+    private CompiledExam(Long examId, String title, Question[] ordered) {
+        int size = ordered.length;
+        this.examId = examId;
+        this.title = title;
+        this.questionIds = new long[size];
+        this.types = new QuestionType[size];
+        this.scores = new double[size];
+        this.optionCounts = new int[size];
+        this.correctOptions = new int[size];
+        this.minWords = new int[size];
+        this.maxWords = new int[size];
+        this.analyzers = new EssayAnalyzer[size];
+        this.renderedQuestions = new String[size];
+        this.headers = new String[size];
+        this.options = new String[size][];
+
+        double total = 0;
+        int essays = 0;
+        for (int i = 0; i < size; i++) {
+            Question question = ordered[i];
+            questionIds[i] = question.getId();
+            types[i] = question.getType();
+            scores[i] = question.getScore();
+            total += question.getScore();
+            renderedQuestions[i] = question.display();
+            if (question instanceof MultipleChoiceQuestion multipleChoice) {
+                optionCounts[i] = multipleChoice.getOptions().size();
+                correctOptions[i] = multipleChoice.getCorrectAnswerIndex() + 1;
+                options[i] = multipleChoice.getOptions().toArray(new String[0]);
+                StringBuilder header = new StringBuilder();
+                try {
+                    multipleChoice.writeHeaderTo(header);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                headers[i] = header.toString();
+            } else if (question instanceof EssayQuestion essay) {
+                essays++;
+                minWords[i] = essay.getMinWords() == null ? 0 : essay.getMinWords();
+                maxWords[i] = essay.getMaxWords() == null ? Integer.MAX_VALUE : essay.getMaxWords();
+                analyzers[i] = EssayAnalyzer.compile(essay.getExpectedKeywords());
+            }
+        }
+        this.maxScore = total;
+        this.essayCount = essays;
+    }
+
+    // Questions must have their options and keywords loaded, e.g. from ExamRepository.findExamPaper
+    public static CompiledExam compile(Exam exam) {
+        Question[] ordered = exam.getQuestions().toArray(new Question[0]);
+        Arrays.sort(ordered, Comparator.comparing(Question::getId));
+        return new CompiledExam(exam.getId(), exam.getExamTitle(), ordered);
+    }
+
+    public Long getExamId() {
+        return examId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public int size() {
+        return questionIds.length;
+    }
+
+    // Position of the question in the snapshot, -1 if it is not part of the exam
+    public int indexOf(long questionId) {
+        int index = Arrays.binarySearch(questionIds, questionId);
+        return index < 0 ? -1 : index;
+    }
+
+    public long getQuestionId(int index) {
+        return questionIds[index];
+    }
+
+    public QuestionType getType(int index) {
+        return types[index];
+    }
+
+    public double getScore(int index) {
+        return scores[index];
+    }
+
+    // Question text as printed by Question.display(), rendered when the snapshot was compiled
+    public String getRenderedQuestion(int index) {
+        return renderedQuestions[index];
+    }
+
+    // Writes the question with its options in the given order, the canonical text when options is null
+    void writeQuestion(int index, Permutation optionOrder, Appendable out) throws IOException {
+        if (optionOrder == null || options[index] == null) {
+            out.append(renderedQuestions[index]);
+            return;
+        }
+        out.append(headers[index]);
+        for (int position = 0; position < optionOrder.size(); position++) {
+            MultipleChoiceQuestion.writeOption(out, position + 1, options[index][optionOrder.apply(position)]);
+        }
+    }
+
+    int getOptionCount(int index) {
+        return optionCounts[index];
+    }
+
+    // The exam as one student sees it, in a fixed per-student question and option order
+    public StudentExamView forStudent(long studentId) {
+        return new StudentExamView(this, studentId);
+    }
+
+    public void writePaper(Writer out) throws IOException {
+        out.write("=== ");
+        out.write(title);
+        out.write(" ===\n");
+        for (int i = 0; i < renderedQuestions.length; i++) {
+            out.write('\n');
+            out.write(Integer.toString(i + 1));
+            out.write(") ");
+            out.write(renderedQuestions[i]);
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    // Copies the cached bytes of the paper, nothing is rendered or encoded again
+    public void writePaper(OutputStream out) throws IOException {
+        byte[] bytes = paper;
+        if (bytes == null) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(renderedQuestions.length * 256);
+            writePaper(new OutputStreamWriter(buffer, StandardCharsets.UTF_8));
+            bytes = buffer.toByteArray();
+            paper = bytes;
+        }
+        out.write(bytes);
+        out.flush();
+    }
+
+    public boolean isValidChoice(int index, int selectedOption) {
+        return types[index] == QuestionType.MULTIPLE_CHOICES
+                && selectedOption >= 1 && selectedOption <= optionCounts[index];
+    }
+
+    public boolean isCorrect(int index, int selectedOption) {
+        return correctOptions[index] != 0 && selectedOption == correctOptions[index];
+    }
+
+    public boolean isWithinWordLimits(int index, int words) {
+        return words >= minWords[index] && words <= maxWords[index];
+    }
+
+    // Keyword automaton of an essay question, null for multiple choice questions
+    public EssayAnalyzer getAnalyzer(int index) {
+        return analyzers[index];
+    }
+
+    // Multiple choice score of one attempt stored at selections[offset .. offset + size())
+    public double grade(int[] selections, int offset) {
+        double total = 0;
+        for (int i = 0; i < correctOptions.length; i++) {
+            int correct = correctOptions[i];
+            if (correct != 0 && selections[offset + i] == correct) {
+                total += scores[i];
+            }
+        }
+        return total;
+    }
+
+    public double getMaxScore() {
+        return maxScore;
+    }
+
+    // Essay questions need a teacher, such exams are never fully graded automatically
+    public boolean hasEssays() {
+        return essayCount > 0;
+    }
+}
@@ -0,0 +1,49 @@
+package ir.oliateaching.utils;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+
+// Process-wide cache of CompiledExam snapshots, invalidated by CompiledExamInvalidator. Bounded like the
+// second-level cache regions: at most MAX_ENTRIES snapshots, each dropped after IDLE_MINUTES unused.
+public final class CompiledExamCache {
+
+    public static final long MAX_ENTRIES = 500;
+    public static final long IDLE_MINUTES = 60;
+
+    private static final GuardedCache<Long, CompiledExam> SNAPSHOTS = new GuardedCache<>(Caffeine.newBuilder()
+            .maximumSize(MAX_ENTRIES)
+            .expireAfterAccess(Duration.ofMinutes(IDLE_MINUTES))
+            .build());
+
+    private CompiledExamCache() {
+    }
+
+    public static CompiledExam get(Long examId, Function<Long, CompiledExam> compiler) {
+        CompiledExam snapshot = SNAPSHOTS.getIfPresent(examId);
+        return snapshot != null ? snapshot : SNAPSHOTS.load(examId, compiler);
+    }
+
+    public static boolean isCached(Long examId) {
+        // Quietly, a status check must not keep an idle snapshot alive
+        return SNAPSHOTS.peek(examId) != null;
+    }
+
+    public static void invalidate(Long examId) {
+        SNAPSHOTS.invalidate(examId);
+    }
+
+    public static void invalidateOnCompletion(Long examId) {
+        SNAPSHOTS.invalidateOnCompletion(examId);
+    }
+
+    public static void clear() {
+        SNAPSHOTS.invalidateAll();
+    }
+
+    public static long size() {
+        return SNAPSHOTS.size();
+    }
+}
@@ -0,0 +1,57 @@
+package ir.oliateaching.utils;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.jcache.internal.JCacheRegionFactory;
+
+import javax.cache.Cache;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+
+// Builds every second-level cache region as a bounded Caffeine cache (W-TinyLFU size
+// eviction plus expire-after-write). Sizes come from persistence.xml, per region:
+//   ir.oliateaching.cache.<region>.max_entries / ttl_seconds, falling back to the "default" region
+public class ConfigurableJCacheRegionFactory extends JCacheRegionFactory {
+
+    public static final String PROPERTY_PREFIX = "ir.oliateaching.cache.";
+    public static final String DEFAULT_REGION = "default";
+    public static final String MAX_ENTRIES = "max_entries";
+    public static final String TTL_SECONDS = "ttl_seconds";
+
+    private static final long DEFAULT_MAX_ENTRIES = 10_000;
+    private static final long DEFAULT_TTL_SECONDS = 600;
+
+    private Map<String, Object> configValues = Map.of();
+
+    @Override
+    protected void prepareForUse(SessionFactoryOptions settings, Map<String, Object> configValues) {
+        this.configValues = configValues;
+        super.prepareForUse(settings, configValues);
+    }
+
+    @Override
+    protected Cache<Object, Object> createCache(String regionName) {
+        long maxEntries = regionSetting(regionName, MAX_ENTRIES, DEFAULT_MAX_ENTRIES);
+        long ttlSeconds = regionSetting(regionName, TTL_SECONDS, DEFAULT_TTL_SECONDS);
+
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setTypes(Object.class, Object.class);
+        configuration.setStoreByValue(false);
+        configuration.setNativeStatisticsEnabled(true);
+        configuration.setMaximumSize(OptionalLong.of(maxEntries));
+        if (ttlSeconds > 0) {
+            configuration.setExpireAfterWrite(OptionalLong.of(TimeUnit.SECONDS.toNanos(ttlSeconds)));
+        }
+        return getCacheManager().createCache(regionName, configuration);
+    }
+
+    private long regionSetting(String regionName, String key, long fallback) {
+        Object value = configValues.get(PROPERTY_PREFIX + regionName + "." + key);
+        if (value == null) {
+            value = configValues.get(PROPERTY_PREFIX + DEFAULT_REGION + "." + key);
+        }
+        return value == null ? fallback : Long.parseLong(value.toString().trim());
+    }
+}
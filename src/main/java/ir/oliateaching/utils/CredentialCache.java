@@ -0,0 +1,90 @@
+package ir.oliateaching.utils;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import ir.oliateaching.dto.UserCredentialDTO;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+
+// Process-wide cache of login credentials by username, bounded to MAX_ENTRIES. Unknown usernames are
+// cached too, for a shorter time, so repeated attempts with a wrong username do not reach the database.
+// UserService invalidates a username whenever its user is created, approved, rejected, updated or deleted.
+public final class CredentialCache {
+
+    public static final long MAX_ENTRIES = 10_000;
+    public static final long TTL_SECONDS = 600;
+    public static final long NEGATIVE_TTL_SECONDS = 30;
+
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong NEGATIVE_HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+    private static final AtomicLong EVICTIONS = new AtomicLong();
+
+    private static final GuardedCache<String, Entry> ENTRIES = new GuardedCache<>(Caffeine.newBuilder()
+            .maximumSize(MAX_ENTRIES)
+            .expireAfter(Expiry.<String, Entry>creating((username, entry) ->
+                    Duration.ofSeconds(entry.credential == null ? NEGATIVE_TTL_SECONDS : TTL_SECONDS)))
+            .evictionListener((String username, Entry entry, RemovalCause cause) -> {
+                if (cause == RemovalCause.SIZE) {
+                    EVICTIONS.incrementAndGet();
+                }
+            })
+            .build());
+
+    private CredentialCache() {
+    }
+
+    // Cached credentials of the username, or loaded through loader; null when no such user exists
+    public static UserCredentialDTO get(String username, Function<String, UserCredentialDTO> loader) {
+        Entry entry = ENTRIES.getIfPresent(username);
+        if (entry != null) {
+            if (entry.credential == null) {
+                NEGATIVE_HITS.incrementAndGet();
+            } else {
+                HITS.incrementAndGet();
+            }
+            return entry.credential;
+        }
+        MISSES.incrementAndGet();
+        return ENTRIES.load(username, key -> new Entry(loader.apply(key))).credential;
+    }
+
+    public static void invalidate(String username) {
+        ENTRIES.invalidate(username);
+    }
+
+    public static void invalidateOnCompletion(String username) {
+        ENTRIES.invalidateOnCompletion(username);
+    }
+
+    public static void clear() {
+        ENTRIES.invalidateAll();
+    }
+
+    public static long size() {
+        return ENTRIES.size();
+    }
+
+    public static String statistics() {
+        long hits = HITS.get();
+        long negativeHits = NEGATIVE_HITS.get();
+        long misses = MISSES.get();
+        long lookups = hits + negativeHits + misses;
+        return String.format("  %-20s size=%d hits=%d negativeHits=%d misses=%d evictions=%d hitRate=%.1f%%",
+                "credentials", size(), hits, negativeHits, misses, EVICTIONS.get(),
+                lookups == 0 ? 0.0 : (hits + negativeHits) * 100.0 / lookups);
+    }
+
+    // Caffeine does not store nulls, an unknown username is cached as an entry without credentials
+    private static final class Entry {
+        private final UserCredentialDTO credential;
+
+        private Entry(UserCredentialDTO credential) {
+            this.credential = credential;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package ir.oliateaching.utils;
+
+import ir.oliateaching.dto.QuestionImportDTO;
+
+import java.io.IOException;
+import java.io.Reader;
+
+
+// Header: type,text,score,items,correct_answer,min_words,max_words (any order).
+// items holds the options or keywords separated by '|', quoted fields may contain commas and new lines.
+public class CsvQuestionBankReader extends QuestionBankReader {
+
+    public static final String TYPE_HEADER = "type";
+    public static final String TEXT_HEADER = "text";
+    public static final String SCORE_HEADER = "score";
+    public static final String ITEMS_HEADER = "items";
+    public static final String CORRECT_ANSWER_HEADER = "correct_answer";
+    public static final String MIN_WORDS_HEADER = "min_words";
+    public static final String MAX_WORDS_HEADER = "max_words";
+    public static final char ITEM_SEPARATOR = '|';
+
+    private final CsvRecordReader csv;
+
+    public CsvQuestionBankReader(Reader reader) throws IOException {
+        this.csv = new CsvRecordReader(reader, "Question bank file is empty");
+        if (!csv.hasColumn(TYPE_HEADER) || !csv.hasColumn(TEXT_HEADER) || !csv.hasColumn(SCORE_HEADER)) {
+            throw new IllegalArgumentException("CSV header must contain type, text and score columns");
+        }
+    }
+
+    @Override
+    public QuestionImportDTO next() throws IOException {
+        if (!csv.next()) {
+            return null;
+        }
+
+        QuestionImportDTO item = new QuestionImportDTO();
+        item.setLineNumber(csv.getLineNumber());
+        setType(item, column(TYPE_HEADER));
+        item.setText(column(TEXT_HEADER));
+        try {
+            String score = column(SCORE_HEADER);
+            item.setScore(score == null ? 0 : Double.parseDouble(score.trim()));
+            item.setCorrectAnswerIndex(parseInteger(column(CORRECT_ANSWER_HEADER)));
+            item.setMinWords(parseInteger(column(MIN_WORDS_HEADER)));
+            item.setMaxWords(parseInteger(column(MAX_WORDS_HEADER)));
+        } catch (NumberFormatException e) {
+            item.setParseError("Invalid number: " + e.getMessage());
+        }
+        String items = column(ITEMS_HEADER);
+        if (items != null && !items.isEmpty()) {
+            int start = 0;
+            for (int i = 0; i <= items.length(); i++) {
+                if (i == items.length() || items.charAt(i) == ITEM_SEPARATOR) {
+                    item.getItems().add(items.substring(start, i).trim());
+                    start = i + 1;
+                }
+            }
+        }
+        return item;
+    }
+
+    private String column(String header) {
+        return csv.column(header);
+    }
+
+    private static Integer parseInteger(String value) {
+        return value == null || value.isBlank() ? null : Integer.valueOf(value.trim());
+    }
+
+    @Override
+    public void close() throws IOException {
+        csv.close();
+    }
+}
@@ -0,0 +1,127 @@
+package ir.oliateaching.utils;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+// Streams the records of a CSV file with a header row, one record at a time. Columns are looked up by
+// their lower-cased header; quoted fields may contain commas, doubled quotes and new lines.
+public class CsvRecordReader implements Closeable {
+
+    private final BufferedReader reader;
+    private final Map<String, Integer> columns = new HashMap<>();
+    private final List<String> record = new ArrayList<>();
+    private final StringBuilder field = new StringBuilder();
+    private long lineNumber = 1;
+    private long recordLineNumber;
+
+    // Reads the header, emptyMessage is the error for a file without one
+    public CsvRecordReader(Reader reader, String emptyMessage) throws IOException {
+        this.reader = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader);
+        if (!readRecord()) {
+            throw new IllegalArgumentException(emptyMessage);
+        }
+        for (int i = 0; i < record.size(); i++) {
+            columns.put(record.get(i).trim().toLowerCase(), i);
+        }
+    }
+
+    public boolean hasColumn(String header) {
+        return columns.containsKey(header);
+    }
+
+    // Moves to the next non-blank record, false at the end of input
+    public boolean next() throws IOException {
+        do {
+            recordLineNumber = lineNumber;
+            if (!readRecord()) {
+                return false;
+            }
+        } while (record.size() == 1 && record.get(0).isBlank());
+        return true;
+    }
+
+    // Line the current record starts on
+    public long getLineNumber() {
+        return recordLineNumber;
+    }
+
+    public String column(String header) {
+        Integer index = columns.get(header);
+        return index == null || index >= record.size() ? null : record.get(index);
+    }
+
+    // Reads one record into 'record', false at the end of input
+    private boolean readRecord() throws IOException {
+        record.clear();
+        field.setLength(0);
+        boolean quoted = false;
+        boolean any = false;
+        int c;
+        while ((c = reader.read()) != -1) {
+            any = true;
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    if (reader.read() == '"') {
+                        field.append('"');
+                    } else {
+                        reader.reset();
+                        quoted = false;
+                    }
+                } else {
+                    if (c == '\n') {
+                        lineNumber++;
+                    }
+                    field.append((char) c);
+                }
+                continue;
+            }
+            switch (c) {
+                case '"':
+                    quoted = true;
+                    break;
+                case ',':
+                    record.add(field.toString());
+                    field.setLength(0);
+                    break;
+                case '\r':
+                    break;
+                case '\n':
+                    lineNumber++;
+                    record.add(field.toString());
+                    return true;
+                default:
+                    field.append((char) c);
+                    break;
+            }
+        }
+        if (!any) {
+            return false;
+        }
+        record.add(field.toString());
+        return true;
+    }
+
+    // Quotes a value for writing when it contains a separator, quote or line break
+    public static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,96 @@
+package ir.oliateaching.utils;
+
+import ir.oliateaching.dto.UserImportDTO;
+import ir.oliateaching.enums.UserRole;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+
+// Header: role,username,password,first_name,last_name,email and optionally phone_number,national_id,
+// student_code,field_of_study,entry_year,teacher_code,expertise,degree (any order). Read one row at a time.
+public class CsvUserReader implements Closeable {
+
+    public static final String ROLE_HEADER = "role";
+    public static final String USERNAME_HEADER = "username";
+    public static final String PASSWORD_HEADER = "password";
+    public static final String FIRST_NAME_HEADER = "first_name";
+    public static final String LAST_NAME_HEADER = "last_name";
+    public static final String EMAIL_HEADER = "email";
+    public static final String PHONE_NUMBER_HEADER = "phone_number";
+    public static final String NATIONAL_ID_HEADER = "national_id";
+    public static final String STUDENT_CODE_HEADER = "student_code";
+    public static final String FIELD_OF_STUDY_HEADER = "field_of_study";
+    public static final String ENTRY_YEAR_HEADER = "entry_year";
+    public static final String TEACHER_CODE_HEADER = "teacher_code";
+    public static final String EXPERTISE_HEADER = "expertise";
+    public static final String DEGREE_HEADER = "degree";
+
+    private final CsvRecordReader csv;
+
+    public CsvUserReader(Reader reader) throws IOException {
+        this.csv = new CsvRecordReader(reader, "User file is empty");
+        for (String header : new String[]{ROLE_HEADER, USERNAME_HEADER, PASSWORD_HEADER,
+                FIRST_NAME_HEADER, LAST_NAME_HEADER, EMAIL_HEADER}) {
+            if (!csv.hasColumn(header)) {
+                throw new IllegalArgumentException("CSV header must contain role, username, password, "
+                        + "first_name, last_name and email columns");
+            }
+        }
+    }
+
+    // Next row of the file, or null at the end
+    public UserImportDTO next() throws IOException {
+        if (!csv.next()) {
+            return null;
+        }
+
+        UserImportDTO row = new UserImportDTO();
+        row.setLineNumber(csv.getLineNumber());
+        String role = trimmed(ROLE_HEADER);
+        if (role != null) {
+            try {
+                row.setRole(UserRole.valueOf(role.toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                row.setParseError("Unknown role: " + role);
+            }
+        }
+        row.setUsername(trimmed(USERNAME_HEADER));
+        row.setPassword(csv.column(PASSWORD_HEADER));
+        row.setFirstName(trimmed(FIRST_NAME_HEADER));
+        row.setLastName(trimmed(LAST_NAME_HEADER));
+        row.setEmail(trimmed(EMAIL_HEADER));
+        row.setPhoneNumber(trimmed(PHONE_NUMBER_HEADER));
+        row.setNationalId(trimmed(NATIONAL_ID_HEADER));
+        row.setStudentCode(trimmed(STUDENT_CODE_HEADER));
+        row.setFieldOfStudy(trimmed(FIELD_OF_STUDY_HEADER));
+        row.setTeacherCode(trimmed(TEACHER_CODE_HEADER));
+        row.setExpertise(trimmed(EXPERTISE_HEADER));
+        row.setDegree(trimmed(DEGREE_HEADER));
+        String entryYear = trimmed(ENTRY_YEAR_HEADER);
+        if (entryYear != null) {
+            try {
+                row.setEntryYear(Integer.valueOf(entryYear));
+            } catch (NumberFormatException e) {
+                row.setParseError("Invalid entry year: " + entryYear);
+            }
+        }
+        return row;
+    }
+
+    // Empty cells are read as missing values
+    private String trimmed(String header) {
+        String value = csv.column(header);
+        if (value == null) {
+            return null;
+        }
+        value = value.trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        csv.close();
+    }
+}
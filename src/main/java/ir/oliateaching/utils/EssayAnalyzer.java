@@ -0,0 +1,313 @@
+package ir.oliateaching.utils;
+
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+// Word counting and keyword matching for essay answers, both single pass and allocation free.
+// Keywords are compiled once into an Aho-Corasick automaton over folded text: lower case, accents and
+// Arabic harakat removed, Arabic letter forms mapped to Persian (ي/ى→ی, ك→ک, ة→ه, أ/إ/آ→ا, ؤ→و),
+// Persian and Arabic digits mapped to ASCII, ZWNJ ignored. A keyword must start at a word boundary
+// but may be followed by a suffix, so "cache" matches "caches" and "کتاب" matches "کتاب‌ها".
+// Instances are immutable and thread-safe.
+public final class EssayAnalyzer {
+
+    private static final char SKIP = '\u0000';
+    private static final char SEPARATOR = ' ';
+    private static final char WORD_START = '\u0001';
+    private static final char[] FOLD = buildFoldTable();
+
+    private final int keywordCount;
+    // Trie transitions in an open-addressing table keyed by (state << 16 | symbol)
+    private final long[] transitionKeys;
+    private final int[] transitionTargets;
+    private final int transitionMask;
+    private final int[] fail;
+    // Keywords recognized in each state, fail-link outputs included: outputs[outputStart[s] .. outputStart[s + 1])
+    private final int[] outputStart;
+    private final int[] outputs;
+    // Per-thread "seen in this scan" marks, stamped with a scan number so they never need clearing
+    private final ThreadLocal<int[]> seenStamps;
+    private final ThreadLocal<int[]> scanCounter = ThreadLocal.withInitial(() -> new int[1]);
+
+    private EssayAnalyzer(List<String> patterns) {
+        this.keywordCount = patterns.size();
+
+        List<Map<Character, Integer>> children = new ArrayList<>();
+        List<List<Integer>> terminal = new ArrayList<>();
+        children.add(new HashMap<>());
+        terminal.add(new ArrayList<>());
+        for (int k = 0; k < patterns.size(); k++) {
+            int state = 0;
+            for (char symbol : patterns.get(k).toCharArray()) {
+                Integer next = children.get(state).get(symbol);
+                if (next == null) {
+                    next = children.size();
+                    children.get(state).put(symbol, next);
+                    children.add(new HashMap<>());
+                    terminal.add(new ArrayList<>());
+                }
+                state = next;
+            }
+            terminal.get(state).add(k);
+        }
+
+        int states = children.size();
+        int edges = states - 1;
+        int capacity = Integer.highestOneBit(Math.max(2, edges * 2) - 1) << 1;
+        this.transitionKeys = new long[capacity];
+        this.transitionTargets = new int[capacity];
+        this.transitionMask = capacity - 1;
+        Arrays.fill(transitionKeys, -1L);
+        for (int state = 0; state < states; state++) {
+            for (Map.Entry<Character, Integer> edge : children.get(state).entrySet()) {
+                putTransition(state, edge.getKey(), edge.getValue());
+            }
+        }
+
+        // Breadth-first so a state's fail target is complete before the state itself
+        this.fail = new int[states];
+        List<Set<Integer>> found = new ArrayList<>(states);
+        for (int state = 0; state < states; state++) {
+            found.add(new LinkedHashSet<>(terminal.get(state)));
+        }
+        ArrayDeque<Integer> queue = new ArrayDeque<>(children.get(0).values());
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (Map.Entry<Character, Integer> edge : children.get(state).entrySet()) {
+                int child = edge.getValue();
+                int target = state == 0 ? 0 : step(fail[state], edge.getKey());
+                fail[child] = target == child ? 0 : target;
+                found.get(child).addAll(found.get(fail[child]));
+                queue.add(child);
+            }
+        }
+
+        this.outputStart = new int[states + 1];
+        int total = 0;
+        for (int state = 0; state < states; state++) {
+            outputStart[state] = total;
+            total += found.get(state).size();
+        }
+        outputStart[states] = total;
+        this.outputs = new int[total];
+        int position = 0;
+        for (int state = 0; state < states; state++) {
+            for (int keyword : found.get(state)) {
+                outputs[position++] = keyword;
+            }
+        }
+
+        this.seenStamps = ThreadLocal.withInitial(() -> new int[keywordCount]);
+    }
+
+    // Duplicate and blank keywords (after folding) are dropped
+    public static EssayAnalyzer compile(List<String> keywords) {
+        Set<String> patterns = new LinkedHashSet<>();
+        for (String keyword : keywords) {
+            if (keyword != null) {
+                String pattern = toPattern(keyword);
+                if (!pattern.isEmpty()) {
+                    patterns.add(pattern);
+                }
+            }
+        }
+        return new EssayAnalyzer(new ArrayList<>(patterns));
+    }
+
+    // Same result as trim().split("\\s+").length for non-blank text, Unicode spaces included, 0 for blank text
+    public static int countWords(CharSequence text) {
+        int words = 0;
+        boolean inWord = false;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+                inWord = false;
+            } else if (!inWord) {
+                inWord = true;
+                words++;
+            }
+        }
+        return words;
+    }
+
+    public int getKeywordCount() {
+        return keywordCount;
+    }
+
+    // Number of distinct keywords found in the text
+    public int countMatches(CharSequence text) {
+        if (keywordCount == 0) {
+            return 0;
+        }
+        int[] seen = seenStamps.get();
+        int[] counter = scanCounter.get();
+        int scan = ++counter[0];
+        if (scan == 0) {
+            Arrays.fill(seen, 0);
+            scan = counter[0] = 1;
+        }
+
+        int matched = 0;
+        int state = 0;
+        boolean inWord = false;
+        for (int i = 0, length = text.length(); i < length && matched < keywordCount; i++) {
+            char symbol = FOLD[text.charAt(i)];
+            if (symbol == SKIP) {
+                continue;
+            }
+            if (symbol == SEPARATOR) {
+                if (inWord) {
+                    state = step(state, SEPARATOR);
+                    inWord = false;
+                }
+                continue;
+            }
+            if (!inWord) {
+                state = step(state, WORD_START);
+                inWord = true;
+            }
+            state = step(state, symbol);
+            for (int o = outputStart[state], end = outputStart[state + 1]; o < end; o++) {
+                int keyword = outputs[o];
+                if (seen[keyword] != scan) {
+                    seen[keyword] = scan;
+                    matched++;
+                }
+            }
+        }
+        return matched;
+    }
+
+    // Share of the keywords found in the text, 1 when the question has no keywords
+    public double coverage(CharSequence text) {
+        return keywordCount == 0 ? 1.0 : (double) countMatches(text) / keywordCount;
+    }
+
+    private int step(int state, char symbol) {
+        while (true) {
+            int next = transition(state, symbol);
+            if (next >= 0) {
+                return next;
+            }
+            if (state == 0) {
+                return 0;
+            }
+            state = fail[state];
+        }
+    }
+
+    private int transition(int state, char symbol) {
+        long key = ((long) state << 16) | symbol;
+        int slot = mix(key) & transitionMask;
+        while (transitionKeys[slot] != -1L) {
+            if (transitionKeys[slot] == key) {
+                return transitionTargets[slot];
+            }
+            slot = (slot + 1) & transitionMask;
+        }
+        return -1;
+    }
+
+    private void putTransition(int state, char symbol, int target) {
+        long key = ((long) state << 16) | symbol;
+        int slot = mix(key) & transitionMask;
+        while (transitionKeys[slot] != -1L) {
+            slot = (slot + 1) & transitionMask;
+        }
+        transitionKeys[slot] = key;
+        transitionTargets[slot] = target;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    // A keyword as the symbols the scanner feeds: WORD_START before each word, one SEPARATOR between words
+    private static String toPattern(String keyword) {
+        StringBuilder pattern = new StringBuilder(keyword.length() + 4);
+        boolean inWord = false;
+        for (int i = 0; i < keyword.length(); i++) {
+            char symbol = FOLD[keyword.charAt(i)];
+            if (symbol == SKIP) {
+                continue;
+            }
+            if (symbol == SEPARATOR) {
+                if (inWord) {
+                    pattern.append(SEPARATOR);
+                    inWord = false;
+                }
+                continue;
+            }
+            if (!inWord) {
+                pattern.append(WORD_START);
+                inWord = true;
+            }
+            pattern.append(symbol);
+        }
+        int length = pattern.length();
+        if (length > 0 && pattern.charAt(length - 1) == SEPARATOR) {
+            pattern.setLength(length - 1);
+        }
+        return pattern.toString();
+    }
+
+    private static char[] buildFoldTable() {
+        char[] fold = new char[Character.MAX_VALUE + 1];
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            fold[c] = foldChar((char) c);
+        }
+        return fold;
+    }
+
+    private static char foldChar(char c) {
+        int type = Character.getType(c);
+        if (type == Character.NON_SPACING_MARK || type == Character.ENCLOSING_MARK
+                || type == Character.COMBINING_SPACING_MARK || type == Character.FORMAT
+                || c == 'ـ') {
+            // Accents, harakat, ZWNJ/ZWJ and tatweel do not change the word
+            return SKIP;
+        }
+        if (!Character.isLetterOrDigit(c)) {
+            return SEPARATOR;
+        }
+        int digit = Character.digit(c, 10);
+        if (digit >= 0) {
+            return (char) ('0' + digit);
+        }
+        switch (c) {
+            case 'ي':
+            case 'ى':
+                return 'ی';
+            case 'ك':
+                return 'ک';
+            case 'ة':
+                return 'ه';
+            case 'آ':
+            case 'أ':
+            case 'إ':
+                return 'ا';
+            case 'ؤ':
+                return 'و';
+        }
+        char lower = Character.toLowerCase(c);
+        String decomposed = Normalizer.normalize(String.valueOf(lower), Normalizer.Form.NFD);
+        if (decomposed.length() > 1 && Character.isLetter(decomposed.charAt(0))) {
+            for (int i = 1; i < decomposed.length(); i++) {
+                if (Character.getType(decomposed.charAt(i)) != Character.NON_SPACING_MARK) {
+                    return lower;
+                }
+            }
+            return decomposed.charAt(0);
+        }
+        return lower;
+    }
+}
@@ -0,0 +1,72 @@
+package ir.oliateaching.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import jakarta.transaction.Synchronization;
+import org.hibernate.Session;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+
+// Caffeine cache whose values are loaded from the database. Every invalidation bumps a generation, and a
+// value loaded across one is returned but not cached, so a load racing an update cannot bring the old row back.
+final class GuardedCache<K, V> {
+
+    private final Cache<K, V> cache;
+    private final AtomicLong generation = new AtomicLong();
+
+    GuardedCache(Cache<K, V> cache) {
+        this.cache = cache;
+    }
+
+    V getIfPresent(K key) {
+        return cache.getIfPresent(key);
+    }
+
+    V peek(K key) {
+        return cache.policy().getIfPresentQuietly(key);
+    }
+
+    // Loads outside the cache, concurrent misses on one key may both load; the first value cached wins
+    V load(K key, Function<K, V> loader) {
+        long loadedAt = generation.get();
+        V value = loader.apply(key);
+        if (generation.get() == loadedAt) {
+            V raced = cache.asMap().putIfAbsent(key, value);
+            return raced != null ? raced : value;
+        }
+        return value;
+    }
+
+    void invalidate(K key) {
+        generation.incrementAndGet();
+        cache.invalidate(key);
+    }
+
+    // Invalidates now and again once the current transaction ends, so a value loaded from the old row
+    // before the commit does not survive it
+    void invalidateOnCompletion(K key) {
+        invalidate(key);
+        if (UnitOfWork.isActive() && UnitOfWork.current().getTransaction().isActive()) {
+            UnitOfWork.current().unwrap(Session.class).getTransaction().registerSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    invalidate(key);
+                }
+            });
+        }
+    }
+
+    void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    long size() {
+        return cache.estimatedSize();
+    }
+}
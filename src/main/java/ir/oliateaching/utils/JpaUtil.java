@@ -29,6 +29,11 @@ public class JpaUtil {
         }
     }
 
+    // Uses the EntityManager of the current unit of work, opening one if the thread has none
+    public static <E> E executeInTransaction(Supplier<E> logicSupplier) {
+        return UnitOfWork.execute(() -> executeInTransaction(UnitOfWork.current(), logicSupplier));
+    }
+
     public static void executeInTransaction(EntityManager entityManager, Runnable logic) {
         executeInTransaction(entityManager, () -> {
             logic.run();
@@ -0,0 +1,96 @@
+package ir.oliateaching.utils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import ir.oliateaching.dto.QuestionImportDTO;
+
+import java.io.IOException;
+import java.io.Reader;
+
+
+// A top-level array of objects: type, text, score, options, correctAnswer, keywords, minWords, maxWords.
+// The file is read token by token, only the current object is ever held in memory.
+public class JsonQuestionBankReader extends QuestionBankReader {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final JsonParser parser;
+
+    public JsonQuestionBankReader(Reader reader) throws IOException {
+        this.parser = JSON_FACTORY.createParser(reader);
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            throw new IllegalArgumentException("Question bank JSON must be an array of questions");
+        }
+    }
+
+    @Override
+    public QuestionImportDTO next() throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == null || token == JsonToken.END_ARRAY) {
+            return null;
+        }
+        if (token != JsonToken.START_OBJECT) {
+            throw new IllegalArgumentException("Expected a question object at line "
+                    + parser.currentLocation().getLineNr());
+        }
+
+        QuestionImportDTO item = new QuestionImportDTO();
+        item.setLineNumber(parser.currentLocation().getLineNr());
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken value = parser.nextToken();
+            try {
+                switch (name) {
+                    case "type":
+                        setType(item, parser.getValueAsString());
+                        break;
+                    case "text":
+                        item.setText(parser.getValueAsString());
+                        break;
+                    case "score":
+                        item.setScore(parser.getDoubleValue());
+                        break;
+                    case "options":
+                    case "keywords":
+                        readItems(item, value);
+                        break;
+                    case "correctAnswer":
+                        item.setCorrectAnswerIndex(value == JsonToken.VALUE_NULL ? null : parser.getIntValue());
+                        break;
+                    case "minWords":
+                        item.setMinWords(value == JsonToken.VALUE_NULL ? null : parser.getIntValue());
+                        break;
+                    case "maxWords":
+                        item.setMaxWords(value == JsonToken.VALUE_NULL ? null : parser.getIntValue());
+                        break;
+                    default:
+                        parser.skipChildren();
+                        break;
+                }
+            } catch (IOException e) {
+                if (!value.isScalarValue()) {
+                    throw e;
+                }
+                item.setParseError("Invalid value for '" + name + "'");
+            }
+        }
+        return item;
+    }
+
+    private void readItems(QuestionImportDTO item, JsonToken value) throws IOException {
+        if (value != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            item.setParseError("Options and keywords must be arrays");
+            return;
+        }
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            item.getItems().add(parser.getValueAsString());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+}
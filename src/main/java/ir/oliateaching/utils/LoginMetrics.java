@@ -0,0 +1,57 @@
+package ir.oliateaching.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+// Latency of credential checks, with percentiles from power-of-two microsecond buckets
+public final class LoginMetrics {
+
+    private static final int BUCKETS = 32;
+
+    private static final AtomicLong ACCEPTED = new AtomicLong();
+    private static final AtomicLong REJECTED = new AtomicLong();
+    private static final AtomicLong TOTAL_NANOS = new AtomicLong();
+    private static final AtomicLong MAX_NANOS = new AtomicLong();
+    // Bucket i counts checks that took less than 2^i microseconds, and at least 2^(i - 1)
+    private static final AtomicLongArray HISTOGRAM = new AtomicLongArray(BUCKETS);
+
+    private LoginMetrics() {
+    }
+
+    public static void record(long nanos, boolean accepted) {
+        (accepted ? ACCEPTED : REJECTED).incrementAndGet();
+        TOTAL_NANOS.addAndGet(nanos);
+        MAX_NANOS.accumulateAndGet(nanos, Math::max);
+        long micros = nanos / 1_000;
+        HISTOGRAM.incrementAndGet(Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros)));
+    }
+
+    public static long getCount() {
+        return ACCEPTED.get() + REJECTED.get();
+    }
+
+    // Upper bound, in microseconds, of the bucket holding the given fraction (0 - 1) of the checks
+    public static long percentileMicros(double fraction) {
+        long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+        double rank = Math.max(0, Math.min(1, fraction)) * count;
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += HISTOGRAM.get(i);
+            if (seen >= rank && seen > 0) {
+                return 1L << i;
+            }
+        }
+        return MAX_NANOS.get() / 1_000;
+    }
+
+    public static String statistics() {
+        long count = getCount();
+        return String.format("  logins=%d accepted=%d rejected=%d avg=%dus p50<=%dus p99<=%dus max=%dus",
+                count, ACCEPTED.get(), REJECTED.get(), count == 0 ? 0 : TOTAL_NANOS.get() / count / 1_000,
+                percentileMicros(0.5), percentileMicros(0.99), MAX_NANOS.get() / 1_000);
+    }
+}
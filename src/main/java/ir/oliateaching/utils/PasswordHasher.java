@@ -0,0 +1,207 @@
+package ir.oliateaching.utils;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+// PBKDF2-HMAC-SHA256 password hashing on its own bounded pool, so a login storm queues here instead of
+// occupying every request thread with key stretching. When the queue is full new work is rejected at once with
+// a RejectedExecutionException. Hashes are stored as $pbkdf2-sha256$<work factor>$<salt>$<hash>, with
+// 2^(work factor) iterations, so raising the work factor only affects new hashes; needsRehash tells which
+// stored ones to upgrade. Stored values without the prefix are legacy plain text passwords.
+//   ir.oliateaching.password.work_factor / threads / queue_capacity
+public class PasswordHasher {
+
+    public static final String PROPERTY_PREFIX = "ir.oliateaching.password.";
+    public static final int DEFAULT_WORK_FACTOR = 16;
+    public static final int MIN_WORK_FACTOR = 10;
+    public static final int MAX_WORK_FACTOR = 24;
+    public static final int DEFAULT_QUEUE_CAPACITY = 1_000;
+
+    private static final String PREFIX = "$pbkdf2-sha256$";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+
+    private final int workFactor;
+    private final ThreadPoolExecutor executor;
+    private final SecureRandom random = new SecureRandom();
+    // Well formed but matches no password, verifying against it costs as much as a real check
+    private final String dummyHash;
+
+    private final AtomicLong hashed = new AtomicLong();
+    private final AtomicLong verified = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+
+    public PasswordHasher(int workFactor, int threads, int queueCapacity) {
+        if (workFactor < MIN_WORK_FACTOR || workFactor > MAX_WORK_FACTOR) {
+            throw new IllegalArgumentException("Work factor must be between " + MIN_WORK_FACTOR
+                    + " and " + MAX_WORK_FACTOR + ": " + workFactor);
+        }
+        if (threads <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("Threads and queue capacity must be positive");
+        }
+        this.workFactor = workFactor;
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        this.dummyHash = encode(workFactor, salt, new byte[HASH_BITS / 8]);
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> Thread.ofPlatform().name("password-hasher-" + counter.incrementAndGet())
+                        .daemon().unstarted(runnable),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public static PasswordHasher fromProperties(Map<String, Object> properties) {
+        int workFactor = intProperty(properties, "work_factor", DEFAULT_WORK_FACTOR);
+        int threads = intProperty(properties, "threads", Runtime.getRuntime().availableProcessors());
+        int queueCapacity = intProperty(properties, "queue_capacity", DEFAULT_QUEUE_CAPACITY);
+        return new PasswordHasher(workFactor, threads, queueCapacity);
+    }
+
+    private static int intProperty(Map<String, Object> properties, String name, int defaultValue) {
+        Object value = properties.get(PROPERTY_PREFIX + name);
+        return value == null ? defaultValue : Integer.parseInt(value.toString().trim());
+    }
+
+    public int getWorkFactor() {
+        return workFactor;
+    }
+
+    public CompletableFuture<String> hashAsync(String password) {
+        return submit(() -> {
+            byte[] salt = new byte[SALT_BYTES];
+            random.nextBytes(salt);
+            hashed.incrementAndGet();
+            return encode(workFactor, salt, derive(password, salt, workFactor));
+        });
+    }
+
+    public CompletableFuture<Boolean> verifyAsync(String password, String stored) {
+        if (stored == null || password == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        if (!stored.startsWith(PREFIX)) {
+            // Legacy plain text, cheap enough to compare on the caller's thread
+            return CompletableFuture.completedFuture(MessageDigest.isEqual(
+                    password.getBytes(StandardCharsets.UTF_8), stored.getBytes(StandardCharsets.UTF_8)));
+        }
+        return submit(() -> {
+            String[] parts = stored.substring(PREFIX.length()).split("\\$");
+            if (parts.length != 3) {
+                return false;
+            }
+            int factor = Integer.parseInt(parts[0]);
+            byte[] salt = Base64.getUrlDecoder().decode(parts[1]);
+            byte[] expected = Base64.getUrlDecoder().decode(parts[2]);
+            verified.incrementAndGet();
+            return MessageDigest.isEqual(expected, derive(password, salt, factor));
+        });
+    }
+
+    // Blocking forms for callers that need the result right away
+    public String hash(String password) {
+        return join(hashAsync(password));
+    }
+
+    public boolean verify(String password, String stored) {
+        return join(verifyAsync(password, stored));
+    }
+
+    // Spends the same hashing as verify for a login that is rejected without a stored hash to check
+    public void verifyDummy(String password) {
+        verify(password, dummyHash);
+    }
+
+    // Plain text and hashes made with a lower work factor are upgraded on the next successful login
+    public boolean needsRehash(String stored) {
+        if (stored == null || !stored.startsWith(PREFIX)) {
+            return true;
+        }
+        int end = stored.indexOf('$', PREFIX.length());
+        return end < 0 || Integer.parseInt(stored.substring(PREFIX.length(), end)) < workFactor;
+    }
+
+    private <T> CompletableFuture<T> submit(Callable<T> work) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                long start = System.nanoTime();
+                try {
+                    result.complete(work.call());
+                } catch (Exception e) {
+                    result.completeExceptionally(e);
+                } finally {
+                    totalNanos.addAndGet(System.nanoTime() - start);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            if (executor.isShutdown()) {
+                result.completeExceptionally(new IllegalStateException("Password hasher is shut down"));
+            } else {
+                // Saturation keeps its own type, callers that can wait retry on it and nothing else
+                rejected.incrementAndGet();
+                result.completeExceptionally(new RejectedExecutionException("Too many logins in progress, please try again"));
+            }
+        }
+        return result;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException("Password hashing failed", e.getCause());
+        }
+    }
+
+    private static byte[] derive(String password, byte[] salt, int factor) throws GeneralSecurityException {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, 1 << factor, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private static String encode(int factor, byte[] salt, byte[] hash) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return PREFIX + factor + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(hash);
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @Override
+    public String toString() {
+        long operations = hashed.get() + verified.get();
+        return String.format("  workFactor=%d threads=%d queued=%d hashed=%d verified=%d rejected=%d avg=%dms",
+                workFactor, executor.getMaximumPoolSize(), getQueueDepth(), hashed.get(), verified.get(),
+                rejected.get(), operations == 0 ? 0 : totalNanos.get() / operations / 1_000_000);
+    }
+}
@@ -0,0 +1,99 @@
+package ir.oliateaching.utils;
+
+
+// Seeded pseudo-random permutation of [0, size) computed per index, nothing is stored or shuffled.
+// A 4-round Feistel network over the smallest even number of bits covering size is a bijection on that
+// power of two; cycle walking (re-applying it until the result falls below size) restricts it to [0, size)
+// in fewer than 4 rounds on average.
+public final class Permutation {
+
+    private static final int ROUNDS = 4;
+
+    private final int size;
+    private final int halfBits;
+    private final long halfMask;
+    private final long[] keys = new long[ROUNDS];
+
+    public Permutation(long seed, int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Size must not be negative");
+        }
+        this.size = size;
+        int bits = Math.max(2, 32 - Integer.numberOfLeadingZeros(Math.max(1, size - 1)));
+        this.halfBits = (bits + 1) / 2;
+        this.halfMask = (1L << halfBits) - 1;
+        long state = seed;
+        for (int i = 0; i < ROUNDS; i++) {
+            state += 0x9E3779B97F4A7C15L;
+            keys[i] = mix(state);
+        }
+    }
+
+    // Seed for one student's view of one exam, or of one question of it
+    public static long seed(long... parts) {
+        long seed = 0x2545F4914F6CDD1DL;
+        for (long part : parts) {
+            seed = mix(seed ^ part) + 0x9E3779B97F4A7C15L;
+        }
+        return seed;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Canonical index shown at the given position
+    public int apply(int position) {
+        checkIndex(position);
+        long value = position;
+        do {
+            value = encrypt(value);
+        } while (value >= size);
+        return (int) value;
+    }
+
+    // Position at which the given canonical index is shown
+    public int inverse(int index) {
+        checkIndex(index);
+        long value = index;
+        do {
+            value = decrypt(value);
+        } while (value >= size);
+        return (int) value;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+    }
+
+    private long encrypt(long value) {
+        long left = value >>> halfBits;
+        long right = value & halfMask;
+        for (int i = 0; i < ROUNDS; i++) {
+            long next = left ^ (mix(right ^ keys[i]) & halfMask);
+            left = right;
+            right = next;
+        }
+        return (left << halfBits) | right;
+    }
+
+    private long decrypt(long value) {
+        long left = value >>> halfBits;
+        long right = value & halfMask;
+        for (int i = ROUNDS - 1; i >= 0; i--) {
+            long previous = right ^ (mix(left ^ keys[i]) & halfMask);
+            right = left;
+            left = previous;
+        }
+        return (left << halfBits) | right;
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
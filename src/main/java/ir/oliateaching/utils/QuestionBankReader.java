@@ -0,0 +1,45 @@
+package ir.oliateaching.utils;
+
+import ir.oliateaching.dto.QuestionImportDTO;
+import ir.oliateaching.enums.QuestionType;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+
+// Reads a question-bank file one item at a time, so memory does not depend on the file size
+public abstract class QuestionBankReader implements Closeable {
+
+    public static QuestionBankReader open(Path file) throws IOException {
+        String name = file.getFileName().toString().toLowerCase();
+        if (!name.endsWith(".csv") && !name.endsWith(".json")) {
+            throw new IllegalArgumentException("Unsupported question bank format: " + file.getFileName());
+        }
+        BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        try {
+            // Both constructors already read the start of the file
+            return name.endsWith(".csv") ? new CsvQuestionBankReader(reader) : new JsonQuestionBankReader(reader);
+        } catch (IOException | RuntimeException e) {
+            reader.close();
+            throw e;
+        }
+    }
+
+    // Next item of the file, or null at the end
+    public abstract QuestionImportDTO next() throws IOException;
+
+    protected static void setType(QuestionImportDTO item, String value) {
+        if (value == null || value.isBlank()) {
+            return;
+        }
+        try {
+            item.setType(QuestionType.valueOf(value.trim().toUpperCase()));
+        } catch (IllegalArgumentException e) {
+            item.setType(null);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package ir.oliateaching.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+
+// Mergeable summary of scores expressed as a percentage of the maximum score (0 - 100), so summaries of
+// different exams can be combined. Moments are kept with Welford's update and merged with Chan's formula;
+// percentiles come from a histogram of 100 one-percent buckets, interpolated inside the bucket.
+public final class ScoreSummary {
+
+    public static final int BUCKETS = 100;
+    private static final byte FORMAT_VERSION = 1;
+
+    private long count;
+    private double mean;
+    private double m2;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private final long[] histogram = new long[BUCKETS];
+
+    public static double toPercent(double score, double maxScore) {
+        return maxScore <= 0 ? 0 : score * 100 / maxScore;
+    }
+
+    public void add(double percent) {
+        addRepeated(percent, 1);
+    }
+
+    // Adds the same value n times in O(1), e.g. all the attempts that left a question unanswered
+    public void addRepeated(double percent, long n) {
+        if (n <= 0) {
+            return;
+        }
+        double value = Math.max(0, Math.min(100, percent));
+        combine(n, value, 0);
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        histogram[bucketOf(value)] += n;
+    }
+
+    public void merge(ScoreSummary other) {
+        if (other.count == 0) {
+            return;
+        }
+        combine(other.count, other.mean, other.m2);
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        for (int i = 0; i < BUCKETS; i++) {
+            histogram[i] += other.histogram[i];
+        }
+    }
+
+    private void combine(long otherCount, double otherMean, double otherM2) {
+        long total = count + otherCount;
+        double delta = otherMean - mean;
+        mean += delta * otherCount / total;
+        m2 += otherM2 + delta * delta * ((double) count * otherCount / total);
+        count = total;
+    }
+
+    private static int bucketOf(double percent) {
+        return Math.min(BUCKETS - 1, (int) percent);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public double getVariance() {
+        return count == 0 ? 0 : m2 / count;
+    }
+
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    public double getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    public double getMax() {
+        return count == 0 ? 0 : max;
+    }
+
+    // Value below which the given fraction (0 - 1) of the scores fall, accurate to one bucket
+    public double percentile(double fraction) {
+        if (count == 0) {
+            return 0;
+        }
+        double rank = Math.max(0, Math.min(1, fraction)) * count;
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            long inBucket = histogram[i];
+            if (inBucket > 0 && seen + inBucket >= rank) {
+                double lower = Math.max(i, min);
+                double upper = Math.min(i + 1, max);
+                return lower + (upper - lower) * (rank - seen) / inBucket;
+            }
+            seen += inBucket;
+        }
+        return max;
+    }
+
+    // Counts regrouped into the given number of equal-width buckets, which must divide 100
+    public long[] getHistogram(int buckets) {
+        if (buckets <= 0 || BUCKETS % buckets != 0) {
+            throw new IllegalArgumentException("Bucket count must divide " + BUCKETS + ": " + buckets);
+        }
+        long[] grouped = new long[buckets];
+        int width = BUCKETS / buckets;
+        for (int i = 0; i < BUCKETS; i++) {
+            grouped[i / width] += histogram[i];
+        }
+        return grouped;
+    }
+
+    // Compact form: version, count and moments, then only the non-empty buckets as (gap, count) varints
+    public byte[] toBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        out.write(FORMAT_VERSION);
+        writeVarLong(out, count);
+        ByteBuffer moments = ByteBuffer.allocate(4 * Double.BYTES);
+        moments.putDouble(mean).putDouble(m2).putDouble(getMin()).putDouble(getMax());
+        out.writeBytes(moments.array());
+        int previous = -1;
+        for (int i = 0; i < BUCKETS; i++) {
+            if (histogram[i] != 0) {
+                writeVarLong(out, i - previous);
+                writeVarLong(out, histogram[i]);
+                previous = i;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    public static ScoreSummary fromBytes(byte[] bytes) {
+        ScoreSummary summary = new ScoreSummary();
+        if (bytes == null || bytes.length == 0) {
+            return summary;
+        }
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        byte version = in.get();
+        if (version != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported score summary format: " + version);
+        }
+        summary.count = readVarLong(in);
+        summary.mean = in.getDouble();
+        summary.m2 = in.getDouble();
+        summary.min = in.getDouble();
+        summary.max = in.getDouble();
+        if (summary.count == 0) {
+            summary.min = Double.POSITIVE_INFINITY;
+            summary.max = Double.NEGATIVE_INFINITY;
+        }
+        int bucket = -1;
+        while (in.hasRemaining()) {
+            bucket += (int) readVarLong(in);
+            summary.histogram[bucket] = readVarLong(in);
+        }
+        return summary;
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ScoreSummary{" +
+                "count=" + count +
+                ", mean=" + String.format("%.2f", mean) +
+                ", stdDev=" + String.format("%.2f", getStandardDeviation()) +
+                ", min=" + getMin() +
+                ", max=" + getMax() +
+                '}';
+    }
+}
@@ -0,0 +1,74 @@
+package ir.oliateaching.utils;
+
+import java.io.IOException;
+
+
+// One student's order of the questions of a CompiledExam and of the options of each question. Orders are
+// seeded by (examId, studentId), so they are the same every time the student opens the exam, and are
+// computed per index by Permutation: no per-student copy of the questions or options is ever made.
+// Positions and option numbers shown to the student are translated back to canonical ones here, so stored
+// answers and grading only ever see the canonical correctAnswerIndex.
+public final class StudentExamView {
+
+    private final CompiledExam exam;
+    private final long studentId;
+    private final Permutation questionOrder;
+
+    StudentExamView(CompiledExam exam, long studentId) {
+        this.exam = exam;
+        this.studentId = studentId;
+        this.questionOrder = new Permutation(Permutation.seed(exam.getExamId(), studentId), exam.size());
+    }
+
+    public CompiledExam getExam() {
+        return exam;
+    }
+
+    public int size() {
+        return exam.size();
+    }
+
+    // Canonical index of the question shown at the given position
+    public int questionAt(int position) {
+        return questionOrder.apply(position);
+    }
+
+    public int positionOf(int index) {
+        return questionOrder.inverse(index);
+    }
+
+    public long getQuestionId(int position) {
+        return exam.getQuestionId(questionAt(position));
+    }
+
+    public void writeQuestion(int position, Appendable out) throws IOException {
+        int index = questionAt(position);
+        exam.writeQuestion(index, optionOrder(index), out);
+    }
+
+    public boolean isValidChoice(int position, int shownOption) {
+        return exam.isValidChoice(questionAt(position), shownOption);
+    }
+
+    // Canonical 1-based option for the 1-based option number the student saw
+    public int toCanonicalOption(int position, int shownOption) {
+        int index = questionAt(position);
+        Permutation options = optionOrder(index);
+        return options == null ? shownOption : options.apply(shownOption - 1) + 1;
+    }
+
+    // Option number the student saw for a canonical 1-based option, e.g. to show a stored answer back
+    public int toShownOption(int position, int canonicalOption) {
+        int index = questionAt(position);
+        Permutation options = optionOrder(index);
+        return options == null ? canonicalOption : options.inverse(canonicalOption - 1) + 1;
+    }
+
+    private Permutation optionOrder(int index) {
+        int count = exam.getOptionCount(index);
+        if (count < 2) {
+            return null;
+        }
+        return new Permutation(Permutation.seed(exam.getExamId(), studentId, exam.getQuestionId(index)), count);
+    }
+}
@@ -0,0 +1,168 @@
+package ir.oliateaching.utils;
+
+import java.util.List;
+
+
+// Hierarchical timing wheel: LEVELS wheels of SLOTS buckets, each level a SLOTS times coarser tick than the
+// one below. Scheduling and cancelling unlink a node from a bucket in O(1); advancing expires the level 0
+// bucket of every passed tick and, when a lower wheel wraps around, cascades the next bucket of the coarser
+// wheel down. Deadlines beyond the top wheel are parked in its last bucket and re-placed on cascade.
+public class TimingWheel<T> {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    private final long tickMillis;
+    private final Timeout<T>[][] buckets;
+    private long currentTick;
+    private int size;
+
+    public TimingWheel(long tickMillis, long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick must be positive");
+        }
+        this.tickMillis = tickMillis;
+        this.currentTick = startMillis / tickMillis;
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Timeout<T>[][] buckets = new Timeout[LEVELS][SLOTS];
+        this.buckets = buckets;
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                Timeout<T> head = new Timeout<>(null, 0, this);
+                head.previous = head;
+                head.next = head;
+                buckets[level][slot] = head;
+            }
+        }
+    }
+
+    public long getTickMillis() {
+        return tickMillis;
+    }
+
+    // Longest delay that is placed without being parked, about 1.9 days with 10 ms ticks
+    public long getSpanMillis() {
+        return tickMillis << (SLOT_BITS * LEVELS);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized Timeout<T> schedule(T payload, long deadlineMillis) {
+        // Round up, a timeout never fires before its deadline
+        Timeout<T> timeout = new Timeout<>(payload, (deadlineMillis + tickMillis - 1) / tickMillis, this);
+        place(timeout);
+        size++;
+        return timeout;
+    }
+
+    // Moves time forward to nowMillis and adds the payloads of every timeout that became due to expired
+    public synchronized void advance(long nowMillis, List<T> expired) {
+        long targetTick = nowMillis / tickMillis;
+        while (currentTick < targetTick) {
+            currentTick++;
+            // Coarser wheels first, so timeouts cascading through several levels end up in the right bucket
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                    cascade(level, (int) (currentTick >>> (SLOT_BITS * level)) & SLOT_MASK, expired);
+                }
+            }
+            drain(buckets[0][(int) currentTick & SLOT_MASK], expired);
+        }
+    }
+
+    private void place(Timeout<T> timeout) {
+        long delay = timeout.deadlineTick - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delay >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        long tick = timeout.deadlineTick;
+        if (delay <= 0) {
+            // Already due, fires on the next tick
+            tick = currentTick + 1;
+        } else if (delay >= 1L << (SLOT_BITS * LEVELS)) {
+            // Parked in the top bucket cascaded last, it is placed again from there
+            tick = currentTick - (1L << (SLOT_BITS * (LEVELS - 1)));
+        }
+        Timeout<T> head = buckets[level][(int) (tick >>> (SLOT_BITS * level)) & SLOT_MASK];
+        timeout.previous = head.previous;
+        timeout.next = head;
+        head.previous.next = timeout;
+        head.previous = timeout;
+    }
+
+    private void cascade(int level, int slot, List<T> expired) {
+        Timeout<T> head = buckets[level][slot];
+        Timeout<T> timeout = head.next;
+        head.next = head;
+        head.previous = head;
+        while (timeout != head) {
+            Timeout<T> next = timeout.next;
+            if (timeout.deadlineTick <= currentTick) {
+                expire(timeout, expired);
+            } else {
+                place(timeout);
+            }
+            timeout = next;
+        }
+    }
+
+    private void drain(Timeout<T> head, List<T> expired) {
+        Timeout<T> timeout = head.next;
+        head.next = head;
+        head.previous = head;
+        while (timeout != head) {
+            Timeout<T> next = timeout.next;
+            expire(timeout, expired);
+            timeout = next;
+        }
+    }
+
+    private void expire(Timeout<T> timeout, List<T> expired) {
+        timeout.next = null;
+        timeout.previous = null;
+        size--;
+        expired.add(timeout.payload);
+    }
+
+    public static final class Timeout<T> {
+        private final T payload;
+        private final long deadlineTick;
+        private final TimingWheel<T> wheel;
+        private Timeout<T> previous;
+        private Timeout<T> next;
+
+        private Timeout(T payload, long deadlineTick, TimingWheel<T> wheel) {
+            this.payload = payload;
+            this.deadlineTick = deadlineTick;
+            this.wheel = wheel;
+        }
+
+        public T getPayload() {
+            return payload;
+        }
+
+        public long getDeadlineMillis() {
+            return deadlineTick * wheel.tickMillis;
+        }
+
+        // Returns false when the timeout has already fired or was cancelled before
+        public boolean cancel() {
+            synchronized (wheel) {
+                if (next == null) {
+                    return false;
+                }
+                previous.next = next;
+                next.previous = previous;
+                next = null;
+                previous = null;
+                wheel.size--;
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package ir.oliateaching.utils;
+
+import jakarta.persistence.EntityManager;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.function.Supplier;
+
+
+public class UnitOfWork {
+
+    private static final ThreadLocal<EntityManager> CURRENT = new ThreadLocal<>();
+
+    private static final EntityManager SHARED = (EntityManager) Proxy.newProxyInstance(
+            EntityManager.class.getClassLoader(),
+            new Class<?>[]{EntityManager.class},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getCriteriaBuilder":
+                        return ApplicationContext.getEntityManagerFactory().getCriteriaBuilder();
+                    case "getMetamodel":
+                        return ApplicationContext.getEntityManagerFactory().getMetamodel();
+                    case "getEntityManagerFactory":
+                        return ApplicationContext.getEntityManagerFactory();
+                    case "isOpen":
+                        return true;
+                    case "close":
+                        return null;
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "Shared EntityManager bound to " + CURRENT.get();
+                }
+                try {
+                    return method.invoke(current(), args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+    );
+
+    private UnitOfWork() {
+    }
+
+    // Runs the work with its own EntityManager bound to the calling thread, closed on completion.
+    // Nested calls on the same thread join the outer unit of work.
+    public static <E> E execute(Supplier<E> work) {
+        if (CURRENT.get() != null) {
+            return work.get();
+        }
+        EntityManager entityManager = ApplicationContext.getEntityManager();
+        CURRENT.set(entityManager);
+        try {
+            return work.get();
+        } finally {
+            CURRENT.remove();
+            if (entityManager.getTransaction().isActive()) {
+                entityManager.getTransaction().rollback();
+            }
+            entityManager.close();
+        }
+    }
+
+    public static void execute(Runnable work) {
+        execute(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    public static EntityManager current() {
+        EntityManager entityManager = CURRENT.get();
+        if (entityManager == null) {
+            throw new IllegalStateException("No unit of work bound to thread " + Thread.currentThread());
+        }
+        return entityManager;
+    }
+
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    // Thread-safe EntityManager that delegates every call to the current unit of work
+    public static EntityManager sharedEntityManager() {
+        return SHARED;
+    }
+}
@@ -0,0 +1,30 @@
+package ir.oliateaching.utils;
+
+import ir.oliateaching.domains.Student;
+import ir.oliateaching.domains.Teacher;
+import ir.oliateaching.domains.User;
+import ir.oliateaching.enums.UserUniqueField;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostUpdate;
+
+
+// Adds the unique fields of every inserted or updated user to UserExistenceFilters. Runs right after the
+// statement, before the commit, so no reader can see the row while the filter still says absent.
+public class UserExistenceFilterListener {
+
+    @PostPersist
+    @PostUpdate
+    public void saved(Object entity) {
+        if (!(entity instanceof User user)) {
+            return;
+        }
+        UserExistenceFilters.add(UserUniqueField.USERNAME, user.getUsername());
+        UserExistenceFilters.add(UserUniqueField.EMAIL, user.getEmail());
+        UserExistenceFilters.add(UserUniqueField.NATIONAL_ID, user.getNationalId());
+        if (user instanceof Student student) {
+            UserExistenceFilters.add(UserUniqueField.STUDENT_CODE, student.getStudentCode());
+        } else if (user instanceof Teacher teacher) {
+            UserExistenceFilters.add(UserUniqueField.TEACHER_CODE, teacher.getTeacherCode());
+        }
+    }
+}
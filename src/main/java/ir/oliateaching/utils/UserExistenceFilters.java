@@ -0,0 +1,128 @@
+package ir.oliateaching.utils;
+
+import ir.oliateaching.enums.UserUniqueField;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+
+// Process-wide Bloom filters over the unique fields of users. A definite "absent" lets UserRepositoryImpl
+// skip its existence query; "maybe" still goes to the database. Until build has run every value is a maybe.
+// Filled by streaming the users table at startup and kept current by UserExistenceFilterListener; the unique
+// constraints stay the final authority, e.g. for rows written by another process after the build.
+//   ir.oliateaching.user_filter.expected_entries / false_positive_rate
+public final class UserExistenceFilters {
+
+    public static final String PROPERTY_PREFIX = "ir.oliateaching.user_filter.";
+    public static final long DEFAULT_EXPECTED_ENTRIES = 100_000;
+    public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+
+    private static volatile Map<UserUniqueField, FieldFilter> filters;
+    // Filters being built, written to as well so values saved during the build are not lost
+    private static volatile Map<UserUniqueField, FieldFilter> building;
+
+    private UserExistenceFilters() {
+    }
+
+    // Builds new filters from source, which passes every existing (field, value) to its argument
+    public static void build(Map<String, Object> properties, long existingUsers,
+                             Consumer<BiConsumer<UserUniqueField, String>> source) {
+        Object expectedProperty = properties.get(PROPERTY_PREFIX + "expected_entries");
+        Object rateProperty = properties.get(PROPERTY_PREFIX + "false_positive_rate");
+        long expected = expectedProperty == null ? DEFAULT_EXPECTED_ENTRIES : Long.parseLong(expectedProperty.toString().trim());
+        double rate = rateProperty == null ? DEFAULT_FALSE_POSITIVE_RATE : Double.parseDouble(rateProperty.toString().trim());
+        // Leaves room to grow, past the expected entries the false positive rate climbs quickly
+        expected = Math.max(expected, existingUsers * 2);
+
+        Map<UserUniqueField, FieldFilter> next = new EnumMap<>(UserUniqueField.class);
+        for (UserUniqueField field : UserUniqueField.values()) {
+            next.put(field, new FieldFilter(new BloomFilter(expected, rate)));
+        }
+        building = next;
+        try {
+            source.accept((field, value) -> next.get(field).filter.put(value));
+            filters = next;
+        } finally {
+            building = null;
+        }
+    }
+
+    public static boolean isBuilt() {
+        return filters != null;
+    }
+
+    public static void add(UserUniqueField field, String value) {
+        if (value == null) {
+            return;
+        }
+        Map<UserUniqueField, FieldFilter> next = building;
+        if (next != null) {
+            next.get(field).filter.put(value);
+        }
+        Map<UserUniqueField, FieldFilter> current = filters;
+        if (current != null) {
+            current.get(field).filter.put(value);
+        }
+    }
+
+    // False only when no user has the value
+    public static boolean mightExist(UserUniqueField field, String value) {
+        Map<UserUniqueField, FieldFilter> current = filters;
+        if (current == null || value == null) {
+            return true;
+        }
+        FieldFilter filter = current.get(field);
+        if (filter.filter.mightContain(value)) {
+            filter.maybes.incrementAndGet();
+            return true;
+        }
+        filter.skipped.incrementAndGet();
+        return false;
+    }
+
+    // Reported by the caller when the database did not have a value the filter answered maybe for
+    public static void recordFalsePositive(UserUniqueField field) {
+        Map<UserUniqueField, FieldFilter> current = filters;
+        if (current != null) {
+            current.get(field).falsePositives.incrementAndGet();
+        }
+    }
+
+    public static List<String> statistics() {
+        List<String> result = new ArrayList<>();
+        Map<UserUniqueField, FieldFilter> current = filters;
+        if (current == null) {
+            result.add("  not built");
+            return result;
+        }
+        for (Map.Entry<UserUniqueField, FieldFilter> entry : current.entrySet()) {
+            FieldFilter filter = entry.getValue();
+            BloomFilter bloom = filter.filter;
+            long maybes = filter.maybes.get();
+            result.add(String.format("  %-14s entries=%d/%d memory=%dKB hashes=%d fpp=%.2f%% estimatedFpp=%.3f%%"
+                            + " skipped=%d maybe=%d falsePositives=%d observedFpp=%.2f%%",
+                    entry.getKey(), bloom.getEntries(), bloom.getExpectedEntries(), bloom.getMemoryBytes() / 1024,
+                    bloom.getHashCount(), bloom.getFalsePositiveRate() * 100, bloom.getEstimatedFalsePositiveRate() * 100,
+                    filter.skipped.get(), maybes, filter.falsePositives.get(),
+                    maybes + filter.skipped.get() == 0 ? 0.0
+                            : filter.falsePositives.get() * 100.0 / (maybes + filter.skipped.get())));
+        }
+        return result;
+    }
+
+    private static final class FieldFilter {
+        private final BloomFilter filter;
+        private final AtomicLong skipped = new AtomicLong();
+        private final AtomicLong maybes = new AtomicLong();
+        private final AtomicLong falsePositives = new AtomicLong();
+
+        private FieldFilter(BloomFilter filter) {
+            this.filter = filter;
+        }
+    }
+}
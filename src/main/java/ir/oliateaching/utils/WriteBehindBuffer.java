@@ -0,0 +1,189 @@
+package ir.oliateaching.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+
+// Bounded append-only buffer drained by one writer thread. Items that arrive together are handed
+// to the flusher as one batch (group commit); each submit future completes once its batch is written.
+// A failed batch is retried item by item, so only the items that fail on their own are failed.
+public class WriteBehindBuffer<T> implements AutoCloseable {
+
+    private final BlockingQueue<Pending<T>> queue;
+    private final Consumer<List<T>> flusher;
+    private final int maxBatch;
+    private final long lingerNanos;
+    private final long offerTimeoutMillis;
+    private final Thread writer;
+    private volatile boolean closed;
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+
+    public WriteBehindBuffer(String name, int capacity, int maxBatch, long lingerMillis,
+                             long offerTimeoutMillis, Consumer<List<T>> flusher) {
+        if (capacity < 1 || maxBatch < 1) {
+            throw new IllegalArgumentException("Capacity and batch size must be positive");
+        }
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.flusher = flusher;
+        this.maxBatch = maxBatch;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.writer = Thread.ofPlatform().name(name).daemon().start(this::drain);
+    }
+
+    // Completes when the item is durable, fails if the buffer stays full or the batch cannot be written
+    public CompletableFuture<Void> submit(T item) {
+        Pending<T> pending = new Pending<>(item);
+        if (closed) {
+            pending.future.completeExceptionally(new IllegalStateException("Buffer is closed"));
+            return pending.future;
+        }
+        try {
+            if (!queue.offer(pending, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                pending.future.completeExceptionally(new RejectedExecutionException("Write buffer is full"));
+            } else if (closed && queue.remove(pending)) {
+                // Offered after close() took the last items, nobody would ever write it
+                pending.future.completeExceptionally(new IllegalStateException("Buffer is closed"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.future.completeExceptionally(e);
+        }
+        return pending.future;
+    }
+
+    private void drain() {
+        List<Pending<T>> batch = new ArrayList<>(maxBatch);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Pending<T> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // Wait a little for more items so a burst becomes one transaction
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < maxBatch) {
+                    queue.drainTo(batch, maxBatch - batch.size());
+                    long left = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatch || left <= 0) {
+                        break;
+                    }
+                    Pending<T> next = queue.poll(left, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                closed = true;
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Pending<T>> batch) {
+        List<T> items = new ArrayList<>(batch.size());
+        for (Pending<T> pending : batch) {
+            items.add(pending.item);
+        }
+        try {
+            flusher.accept(items);
+            written.addAndGet(items.size());
+            batches.incrementAndGet();
+            for (Pending<T> pending : batch) {
+                pending.future.complete(null);
+            }
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                fail(batch.get(0), e);
+                return;
+            }
+            // One bad item must not fail the unrelated items of its batch, they are written one by one
+            System.out.println("Write-behind batch of " + items.size() + " failed, retrying one by one: " + e.getMessage());
+            for (Pending<T> pending : batch) {
+                try {
+                    flusher.accept(List.of(pending.item));
+                    written.incrementAndGet();
+                    batches.incrementAndGet();
+                    pending.future.complete(null);
+                } catch (RuntimeException itemFailure) {
+                    fail(pending, itemFailure);
+                }
+            }
+        }
+    }
+
+    private void fail(Pending<T> pending, RuntimeException e) {
+        failed.incrementAndGet();
+        System.out.println("Write-behind item failed: " + e.getMessage());
+        pending.future.completeExceptionally(e);
+    }
+
+    public int getQueued() {
+        return queue.size();
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getBatches() {
+        return batches.get();
+    }
+
+    // Stops accepting items and waits until everything already queued is written.
+    // The writer is not interrupted, an interrupt in the middle of a JDBC call could break the connection.
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Items offered while the writer was stopping
+        List<Pending<T>> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (!rest.isEmpty()) {
+            flush(rest);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "WriteBehindBuffer{" +
+                "queued=" + getQueued() +
+                ", written=" + getWritten() +
+                ", failed=" + getFailed() +
+                ", batches=" + getBatches() +
+                '}';
+    }
+
+    private static class Pending<T> {
+        private final T item;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private Pending(T item) {
+            this.item = item;
+        }
+    }
+}
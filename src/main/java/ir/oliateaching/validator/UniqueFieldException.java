@@ -0,0 +1,54 @@
+package ir.oliateaching.validator;
+
+import ir.oliateaching.enums.UserUniqueField;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+
+// Every unique field of a user that clashes with an existing one, with the value that was given for it
+public class UniqueFieldException extends IllegalArgumentException {
+
+    private final Map<UserUniqueField, String> conflicts;
+
+    public UniqueFieldException(Map<UserUniqueField, String> conflicts) {
+        super(buildMessage(conflicts));
+        this.conflicts = Collections.unmodifiableMap(new EnumMap<>(conflicts));
+    }
+
+    public Map<UserUniqueField, String> getConflicts() {
+        return conflicts;
+    }
+
+    private static String buildMessage(Map<UserUniqueField, String> conflicts) {
+        StringBuilder message = new StringBuilder();
+        for (Map.Entry<UserUniqueField, String> conflict : conflicts.entrySet()) {
+            if (message.length() > 0) {
+                message.append("\n");
+            }
+            message.append(labelOf(conflict.getKey())).append(" already exists");
+            if (conflict.getValue() != null) {
+                message.append(": ").append(conflict.getValue());
+            }
+        }
+        return message.toString();
+    }
+
+    public static String labelOf(UserUniqueField field) {
+        switch (field) {
+            case USERNAME:
+                return "Username";
+            case EMAIL:
+                return "Email";
+            case NATIONAL_ID:
+                return "National ID";
+            case STUDENT_CODE:
+                return "Student code";
+            case TEACHER_CODE:
+                return "Teacher code";
+            default:
+                return field.name();
+        }
+    }
+}